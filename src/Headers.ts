@@ -53,18 +53,39 @@ const SEMICOLON_SEPARATED = new Set(
   ["Content-Type", "Cookie", "Prefer"].map((h) => h.toLowerCase()),
 );
 
+function lookupKey(name: Word): string {
+  return name.toLowerCase().toString();
+}
+
 export class Headers implements Iterable<[Word, Word | null]> {
   // null means the header must not be sent, for example
   // curl -H 'Host:' example.com
   readonly headers: [Word, Word | null][];
   readonly lowercase: boolean;
+  // The lowercased name of each header in this.headers. These are private
+  // fields so that they aren't part of the JSON output.
+  readonly #names: string[];
+  // Maps each lowercased name to the index of the first header with that name.
+  // Set to null when headers are removed or inserted at the start and rebuilt
+  // on the next lookup.
+  #index: Map<string, number> | null = null;
 
   constructor(
-    headerArgs?: Word[],
+    // Passing a Headers object makes a copy of it
+    headerArgs?: Word[] | Headers,
     warnings: Warnings = [],
     // Used for warnings
     argName = "--header/H",
   ) {
+    if (headerArgs instanceof Headers) {
+      this.headers = headerArgs.headers.map(
+        ([name, value]): [Word, Word | null] => [name, value],
+      );
+      this.lowercase = headerArgs.lowercase;
+      this.#names = [...headerArgs.#names];
+      return;
+    }
+
     let headers: [Word, Word | null][] = [];
 
     if (headerArgs) {
@@ -149,6 +170,7 @@ export class Headers implements Iterable<[Word, Word | null]> {
         mergeChar = "; ";
       }
       if (mergeChar) {
+        // All of them at once, joinWords() builds one Word with a WordBuilder
         const merged = joinWords(
           nonEmptyHeaders.map((h) => h[1]) as Word[],
           mergeChar,
@@ -169,10 +191,40 @@ export class Headers implements Iterable<[Word, Word | null]> {
           nonEmptyHeaders[nonEmptyHeaders.length - 1][0]
         }" headers, only the last one will be sent`,
       ]);
-      headers = headers.concat(nonEmptyHeaders);
+      for (const header of nonEmptyHeaders) {
+        headers.push(header);
+      }
     }
 
     this.headers = headers;
+    this.#names = headers.map((h) => lookupKey(h[0]));
+  }
+
+  // Returns the index of the first header with this (lowercased) name, or -1
+  #indexOf(lookup: string): number {
+    if (this.#index === null) {
+      this.#index = new Map();
+      for (let i = this.#names.length - 1; i >= 0; i--) {
+        this.#index.set(this.#names[i], i);
+      }
+    }
+    const i = this.#index.get(lookup);
+    return i === undefined ? -1 : i;
+  }
+
+  #push(name: Word, value: Word | null) {
+    const lookup = lookupKey(name);
+    this.headers.push([name, value]);
+    this.#names.push(lookup);
+    if (this.#index !== null && !this.#index.has(lookup)) {
+      this.#index.set(lookup, this.headers.length - 1);
+    }
+  }
+
+  #remove(i: number) {
+    this.headers.splice(i, 1);
+    this.#names.splice(i, 1);
+    this.#index = null;
   }
 
   get length(): number {
@@ -187,13 +239,8 @@ export class Headers implements Iterable<[Word, Word | null]> {
 
   // Gets the first header, matching case-insensitively
   get(header: string): Word | null | undefined {
-    const lookup = header.toLowerCase();
-    for (const [h, v] of this.headers) {
-      if (h.toLowerCase().toString() === lookup) {
-        return v;
-      }
-    }
-    return undefined;
+    const i = this.#indexOf(header.toLowerCase());
+    return i === -1 ? undefined : this.headers[i][1];
   }
 
   getContentType(): string | null | undefined {
@@ -205,13 +252,7 @@ export class Headers implements Iterable<[Word, Word | null]> {
   }
 
   has(header: Word | string): boolean {
-    const lookup = header.toLowerCase();
-    for (const h of this.headers) {
-      if (eq(h[0].toLowerCase(), lookup)) {
-        return true;
-      }
-    }
-    return false;
+    return this.#indexOf(header.toLowerCase().toString()) !== -1;
   }
 
   // Doesn't overwrite existing headers
@@ -225,7 +266,7 @@ export class Headers implements Iterable<[Word, Word | null]> {
     }
     const k = typeof header === "string" ? new Word(header) : header;
     const v = typeof value === "string" ? new Word(value) : value;
-    this.headers.push([k, v]);
+    this.#push(k, v);
     return true;
   }
 
@@ -240,6 +281,8 @@ export class Headers implements Iterable<[Word, Word | null]> {
     const k = typeof header === "string" ? new Word(header) : header;
     const v = typeof value === "string" ? new Word(value) : value;
     this.headers.unshift([k, v]);
+    this.#names.unshift(lookupKey(k));
+    this.#index = null;
     return true;
   }
 
@@ -251,22 +294,23 @@ export class Headers implements Iterable<[Word, Word | null]> {
     const v = typeof value === "string" ? new Word(value) : value;
 
     // keep it in the same place if we overwrite
-    const searchHeader = k.toLowerCase().toString();
-    for (let i = 0; i < this.headers.length; i++) {
-      if (eq(this.headers[i][0].toLowerCase(), searchHeader)) {
-        this.headers[i][1] = v;
-        return;
-      }
+    const i = this.#indexOf(lookupKey(k));
+    if (i !== -1) {
+      this.headers[i][1] = v;
+      return;
     }
 
-    this.headers.push([k, v]);
+    this.#push(k, v);
   }
 
   delete(header: string) {
     const lookup = header.toLowerCase();
+    if (this.#indexOf(lookup) === -1) {
+      return;
+    }
     for (let i = this.headers.length - 1; i >= 0; i--) {
-      if (this.headers[i][0].toLowerCase().toString() === lookup) {
-        this.headers.splice(i, 1);
+      if (this.#names[i] === lookup) {
+        this.#remove(i);
       }
     }
   }
@@ -275,7 +319,7 @@ export class Headers implements Iterable<[Word, Word | null]> {
   clearNulls() {
     for (let i = this.headers.length - 1; i >= 0; i--) {
       if (this.headers[i][1] === null) {
-        this.headers.splice(i, 1);
+        this.#remove(i);
       }
     }
   }
@@ -284,8 +328,8 @@ export class Headers implements Iterable<[Word, Word | null]> {
   count(header: string) {
     let count = 0;
     const lookup = header.toLowerCase();
-    for (const h of this.headers || []) {
-      if (h[0].toLowerCase().toString() === lookup) {
+    for (const name of this.#names) {
+      if (name === lookup) {
         count += 1;
       }
     }
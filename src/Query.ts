@@ -1,5 +1,8 @@
-import { Word, eq } from "./shell/Word.ts";
-import { UTF8encoder } from "./utils.ts";
+import { Word, WordBuilder } from "./shell/Word.ts";
+import {
+  percentEncode as _percentEncode,
+  percentDecode,
+} from "./percentEncoding.ts";
 
 export type QueryList = Array<[Word, Word]>;
 export type QueryDict = Array<[Word, Word | Array<Word>]>;
@@ -7,67 +10,69 @@ export type QueryDict = Array<[Word, Word | Array<Word>]>;
 // Can't have a QueryDict without a QueryList
 export type Query = [QueryList, QueryDict | null] | [null, null];
 
-// Match Python's urllib.parse.quote() behavior
-// https://github.com/python/cpython/blob/3.11/Lib/urllib/parse.py#L826
-// curl and Python let you send non-ASCII characters by encoding each UTF-8 byte.
-// TODO: ignore hex case?
-function _percentEncode(s: string): string {
-  return [...UTF8encoder.encode(s)]
-    .map((b) => {
-      if (
-        // A-Z
-        (b >= 0x41 && b <= 0x5a) ||
-        // a-z
-        (b >= 0x61 && b <= 0x7a) ||
-        // 0-9
-        (b >= 0x30 && b <= 0x39) ||
-        // -._~
-        b === 0x2d ||
-        b === 0x2e ||
-        b === 0x5f ||
-        b === 0x7e
-      ) {
-        return String.fromCharCode(b);
-      }
-      return "%" + b.toString(16).toUpperCase().padStart(2, "0");
-    })
-    .join("");
+// Applies f to the strings in a Word, leaving variables/commands alone
+function mapStrings(s: Word, f: (s: string) => string): Word {
+  const ret = new WordBuilder();
+  for (const token of s.tokens) {
+    ret.add(typeof token === "string" ? f(token) : token);
+  }
+  return ret.build();
 }
 
 export function percentEncode(s: Word): Word {
-  const newTokens = [];
-  for (const token of s.tokens) {
-    if (typeof token === "string") {
-      newTokens.push(_percentEncode(token));
-    } else {
-      newTokens.push(token);
-    }
-  }
-  return new Word(newTokens);
+  return mapStrings(s, _percentEncode);
 }
 export function percentEncodePlus(s: Word): Word {
-  const newTokens = [];
-  for (const token of s.tokens) {
-    if (typeof token === "string") {
-      newTokens.push(_percentEncode(token).replace(/%20/g, "+"));
-    } else {
-      newTokens.push(token);
-    }
-  }
-  return new Word(newTokens);
+  return mapStrings(s, (t) => _percentEncode(t, true));
 }
 
 // Reimplements decodeURIComponent but ignores variables/commands
 export function wordDecodeURIComponent(s: Word): Word {
-  const newTokens = [];
-  for (const token of s.tokens) {
-    if (typeof token === "string") {
-      newTokens.push(decodeURIComponent(token));
-    } else {
-      newTokens.push(token);
+  return mapStrings(s, percentDecode);
+}
+
+// Whether percent-encoding decoded gives encoded
+function encodesTo(decoded: Word, encoded: Word, plus: boolean): boolean {
+  if (decoded.tokens.length !== encoded.tokens.length) {
+    return false;
+  }
+  for (let i = 0; i < decoded.tokens.length; i++) {
+    const d = decoded.tokens[i];
+    const e = encoded.tokens[i];
+    if (typeof d === "string") {
+      if (typeof e !== "string" || _percentEncode(d, plus) !== e) {
+        return false;
+      }
+    } else if (typeof e === "string" || d.text !== e.text) {
+      return false;
+    }
+  }
+  return true;
+}
+
+// Decodes a key or value from an application/x-www-form-urlencoded string.
+// Returns null if it contains invalid percent-encoded characters or
+// if encoding the result doesn't give back the original string.
+export function decodeQueryComponent(s: Word): Word | null {
+  let decoded;
+  try {
+    // https://url.spec.whatwg.org/#urlencoded-parsing
+    // recommends replacing + with space before decoding.
+    decoded = wordDecodeURIComponent(s.replace(/\+/g, " "));
+  } catch (e) {
+    if (e instanceof URIError) {
+      return null;
     }
+    throw e;
   }
-  return new Word(newTokens);
+  // TODO: this is a bit Python-specific, ideally we would check how each runtime/library
+  // percent-encodes query strings. For example, a %27 character in the input query
+  // string will be decoded to a ' but won't be re-encoded into a %27 by encodeURIComponent
+  // If the original data used %20 instead of + (what requests will send), that's close enough
+  if (!encodesTo(decoded, s, false) && !encodesTo(decoded, s, true)) {
+    return null;
+  }
+  return decoded;
 }
 
 // if url is 'example.com?' the s is ''
@@ -86,32 +91,11 @@ export function parseQueryString(s: Word | null): Query {
     }
 
     const [key, val] = param.split("=", 2);
-    let decodedKey;
-    let decodedVal;
-    try {
-      // https://url.spec.whatwg.org/#urlencoded-parsing
-      // recommends replacing + with space before decoding.
-      decodedKey = wordDecodeURIComponent(key.replace(/\+/g, " "));
-      decodedVal = wordDecodeURIComponent(val.replace(/\+/g, " "));
-    } catch (e) {
-      if (e instanceof URIError) {
-        // Query string contains invalid percent encoded characters,
-        // we cannot properly convert it.
-        return [null, null];
-      }
-      throw e;
-    }
-    // If the query string doesn't round-trip, we cannot properly convert it.
-    // TODO: this is a bit Python-specific, ideally we would check how each runtime/library
-    // percent-encodes query strings. For example, a %27 character in the input query
-    // string will be decoded to a ' but won't be re-encoded into a %27 by encodeURIComponent
-    const roundTripKey = percentEncode(decodedKey);
-    const roundTripVal = percentEncode(decodedVal);
-    // If the original data used %20 instead of + (what requests will send), that's close enough
-    if (
-      (!eq(roundTripKey, key) && !eq(roundTripKey.replace(/%20/g, "+"), key)) ||
-      (!eq(roundTripVal, val) && !eq(roundTripVal.replace(/%20/g, "+"), val))
-    ) {
+    // If the query string contains invalid percent encoded characters or
+    // doesn't round-trip, we cannot properly convert it.
+    const decodedKey = decodeQueryComponent(key);
+    const decodedVal = decodeQueryComponent(val);
+    if (decodedKey === null || decodedVal === null) {
       return [null, null];
     }
     asList.push([decodedKey, decodedVal]);
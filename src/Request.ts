@@ -1,4 +1,4 @@
-import { Word, eq, mergeWords, joinWords } from "./shell/Word.ts";
+import { Word, WordBuilder, eq, mergeWords, joinWords } from "./shell/Word.ts";
 
 import { CCError, has, isInt } from "./utils.ts";
 import { warnf, warnIfPartsIgnored } from "./Warnings.ts";
@@ -18,6 +18,8 @@ export type { AuthType } from "./curl/auth.ts";
 import { parseurl, type Curl_URL } from "./curl/url.ts";
 
 import { parseQueryString, percentEncodePlus } from "./Query.ts";
+import { startPhase, endPhase } from "./timings.ts";
+import { checkSignal } from "./limits.ts";
 import type { QueryList, QueryDict } from "./Query.ts";
 
 import { parseForm } from "./curl/form.ts";
@@ -534,14 +536,14 @@ function buildData(
   stdinFile?: Word,
 ): [DataParam[], Word, string | null] {
   const data: DataParam[] = [];
-  let dataStrState = new Word();
+  let dataStrState = new WordBuilder();
   for (const [i, x] of configData.entries()) {
     const type = x[0];
     let value = x[1];
     let name: Word | null = null;
 
     if (i > 0 && type !== "json") {
-      dataStrState = dataStrState.append("&");
+      dataStrState.add("&");
     }
 
     if (type === "urlencode") {
@@ -554,11 +556,11 @@ function buildData(
 
       if (splitOn === "=") {
         if (name && name.toBool()) {
-          dataStrState = dataStrState.add(name).append("=");
+          dataStrState.add(name).add("=");
         }
         // curl's --data-urlencode percent-encodes spaces as "+"
         // https://github.com/curl/curl/blob/curl-7_86_0/src/tool_getparam.c#L630
-        dataStrState = dataStrState.add(percentEncodePlus(value));
+        dataStrState.add(percentEncodePlus(value));
         continue;
       }
 
@@ -598,9 +600,9 @@ function buildData(
     }
 
     if (filename !== null) {
-      if (dataStrState.toBool()) {
-        data.push(dataStrState);
-        dataStrState = new Word();
+      if (!dataStrState.isEmpty()) {
+        data.push(dataStrState.build());
+        dataStrState = new WordBuilder();
       }
       const dataParam: DataParam = {
         // If `filename` isn't null, then `type` can't be "raw"
@@ -612,28 +614,29 @@ function buildData(
       }
       data.push(dataParam);
     } else {
-      dataStrState = dataStrState.add(value);
+      dataStrState.add(value);
     }
   }
-  if (dataStrState.toBool()) {
-    data.push(dataStrState);
+  if (!dataStrState.isEmpty()) {
+    data.push(dataStrState.build());
   }
 
   let dataStrReadsFile: string | null = null;
-  const dataStr = mergeWords(
-    ...data.map((d) => {
-      if (!(d instanceof Word)) {
-        dataStrReadsFile ||= d.filename.toString(); // report first file
-        if (d.name) {
-          return mergeWords(d.name, "=@", d.filename);
-        }
-        return d.filename.prepend("@");
+  const dataStr = new WordBuilder();
+  for (const d of data) {
+    if (!(d instanceof Word)) {
+      dataStrReadsFile ||= d.filename.toString(); // report first file
+      if (d.name) {
+        dataStr.add(d.name).add("=@").add(d.filename);
+      } else {
+        dataStr.add("@").add(d.filename);
       }
-      return d;
-    }),
-  );
+    } else {
+      dataStr.add(d);
+    }
+  }
 
-  return [data, dataStr, dataStrReadsFile];
+  return [data, dataStr.build(), dataStrReadsFile];
 }
 
 // Parses a Content-Type header into a type and a list of parameters
@@ -649,8 +652,11 @@ function parseContentType(
 
   // See https://www.w3.org/Protocols/rfc1341/4_Content-Type.html
   // TODO: could be better, like reading to the next semicolon
+  // The parameter name can't start with whitespace, otherwise \s* and the
+  // name can split whitespace between them in every possible way, which is
+  // quadratic if there's no "=" after it.
   const params = rest.match(
-    /;\s*([^;=]+)=(?:("[^"]*")|([^()<>@,;:\\"/[\]?.=]*))/g,
+    /;\s*([^;=\s][^;=]*)=(?:("[^"]*")|([^()<>@,;:\\"/[\]?.=]*))/g,
   );
   if (rest.trim() && !params) {
     return null;
@@ -658,7 +664,7 @@ function parseContentType(
   const parsedParams: Array<[string, string]> = [];
   for (const param of params || []) {
     const parsedParam = param.match(
-      /;\s*([^;=]+)=(?:("[^"]*")|([^()<>@,;:\\"/[\]?.=]*))/,
+      /;\s*([^;=\s][^;=]*)=(?:("[^"]*")|([^()<>@,;:\\"/[\]?.=]*))/,
     );
     if (!parsedParam) {
       return null;
@@ -1620,13 +1626,29 @@ export function buildRequests(
   stdin?: Word,
   stdinFile?: Word,
 ): Request[] {
+  checkSignal();
+  const start = startPhase();
   if (!global_.configs.length) {
     // shouldn't happen
     warnf(global_, ["no-configs", "got empty config object"]);
   }
-  return global_.configs.map((config) =>
+  const requests = global_.configs.map((config) =>
     buildRequest(global_, config, stdin, stdinFile),
   );
+  endPhase("buildRequests", start);
+  return requests;
+}
+
+// Generators modify request.headers (for example to remove a header that's
+// passed some other way), so they need their own copy of the headers if the
+// same Request objects are going to be passed to more than one generator.
+// Everything else in a Request is treated as read-only by the generators.
+export function copyRequest(request: Request): Request {
+  return {
+    ...request,
+    headers: new Headers(request.headers),
+    proxyHeaders: new Headers(request.proxyHeaders),
+  };
 }
 
 export function getFirst(
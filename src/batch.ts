@@ -0,0 +1,148 @@
+// `curlconverter --batch <file>` converts one curl command per line of a JSON
+// Lines file to one or more languages, spreading the work across a pool of
+// worker threads.
+//
+// Each input line is either
+//   a JSON string of Bash code: "curl example.com"
+//   a JSON array of arguments: ["curl", "example.com"]
+//   an object: {"command": ..., "id": ..., "stdin": ...}
+// and produces one output line, in the same order as the input, like
+//   {"line": 1, "id": ..., "results": {"python": {"code": ..., "warnings": []}}}
+// Lines that can't be read produce {"line": 2, "error": "..."} instead.
+
+import { once } from "events";
+import readline from "readline";
+import type { Readable, Writable } from "stream";
+
+import { WorkerPool } from "./pool.ts";
+import type { ConvertRequest, ConvertResult } from "./convert.ts";
+
+export interface BatchRecord {
+  line: number;
+  id?: unknown;
+  results?: { [language: string]: ConvertResult };
+  error?: string;
+}
+
+function isStringArray(value: unknown): value is string[] {
+  return Array.isArray(value) && value.every((v) => typeof v === "string");
+}
+
+function toRequest(value: unknown): [ConvertRequest, unknown] {
+  if (typeof value === "string" || isStringArray(value)) {
+    return [{ command: value }, undefined];
+  }
+  if (value && typeof value === "object" && !Array.isArray(value)) {
+    const { command, id, stdin } = value as {
+      command?: unknown;
+      id?: unknown;
+      stdin?: unknown;
+    };
+    if (typeof command !== "string" && !isStringArray(command)) {
+      throw new Error('"command" must be a string or an array of strings');
+    }
+    if (stdin !== undefined && typeof stdin !== "string") {
+      throw new Error('"stdin" must be a string');
+    }
+    return [{ command, stdin }, id];
+  }
+  throw new Error(
+    "expected a string, an array of strings or an object with a command",
+  );
+}
+
+async function convertLine(
+  pool: WorkerPool,
+  line: string,
+  lineNumber: number,
+  languages: string[],
+): Promise<BatchRecord> {
+  let request: ConvertRequest;
+  let id: unknown;
+  try {
+    [request, id] = toRequest(JSON.parse(line));
+  } catch (e) {
+    return { line: lineNumber, error: (e as Error).message };
+  }
+
+  const record: BatchRecord = { line: lineNumber };
+  if (id !== undefined) {
+    record.id = id;
+  }
+  try {
+    // Parses the command once for all the languages
+    record.results = await pool.convertMany(
+      request.command,
+      languages,
+      request.stdin,
+    );
+  } catch (e) {
+    record.error = (e as Error).message;
+  }
+  return record;
+}
+
+export async function convertBatch(
+  input: Readable,
+  output: Writable,
+  languages: string[],
+  threads?: number,
+): Promise<void> {
+  const pool = new WorkerPool(threads);
+  // Bounds how many lines are held in memory, including finished lines
+  // waiting for an earlier line to finish so they can be written in order.
+  const maxInFlight = pool.size * 4;
+
+  const finished = new Map<number, string>();
+  let nextToWrite = 0;
+  let inFlight = 0;
+  let wake: (() => void) | null = null;
+
+  const done = (index: number, record: BatchRecord) => {
+    finished.set(index, JSON.stringify(record) + "\n");
+    while (finished.has(nextToWrite)) {
+      output.write(finished.get(nextToWrite));
+      finished.delete(nextToWrite);
+      nextToWrite++;
+      inFlight--;
+    }
+    if (wake) {
+      const w = wake;
+      wake = null;
+      w();
+    }
+  };
+  const waitUntil = async (condition: () => boolean) => {
+    while (!condition()) {
+      await new Promise<void>((resolve) => (wake = resolve));
+    }
+  };
+
+  try {
+    const lines = readline.createInterface({ input, crlfDelay: Infinity });
+    let lineNumber = 0;
+    let index = 0;
+    for await (const line of lines) {
+      lineNumber++;
+      if (!line.trim()) {
+        continue;
+      }
+      await waitUntil(() => inFlight < maxInFlight);
+      if (output.writableNeedDrain) {
+        await once(output, "drain");
+      }
+
+      const i = index++;
+      inFlight++;
+      convertLine(pool, line, lineNumber, languages).then((record) =>
+        done(i, record),
+      );
+    }
+    await waitUntil(() => inFlight === 0);
+    if (output.writableNeedDrain) {
+      await once(output, "drain");
+    }
+  } finally {
+    await pool.close();
+  }
+}
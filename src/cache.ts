@@ -0,0 +1,145 @@
+// An opt-in, size-bounded cache of conversion results.
+//
+// Services that convert the same commands over and over (like the output of
+// "Copy as cURL" for popular APIs) can call enableCache() to remember the
+// parsed Request objects for each (command, supported arguments) pair and the
+// generated code for each (command, language) pair, along with the warnings
+// produced along the way, so that a cache hit returns exactly what a miss
+// would've returned.
+//
+// Keys are hashes of the command, so the command itself is also stored and
+// compared on a hit to rule out hash collisions. The cache only lives in
+// memory, so the generator version is implicitly part of the key.
+//
+// Conversions with a limit on the syntax nodes or arguments of the command
+// don't use the cache, because what's cached doesn't say how many there were
+// (see limits.ts).
+
+export interface CacheStats {
+  hits: number;
+  misses: number;
+  evictions: number;
+  size: number;
+  maxSize: number;
+}
+
+interface CacheEntry<V> {
+  command: string;
+  value: V;
+}
+
+// A least recently used cache. Map iterates in insertion order, so
+// re-inserting an entry on every hit keeps the least recently used
+// entry first.
+export class LRUCache<V> {
+  readonly maxSize: number;
+  private readonly entries = new Map<string, CacheEntry<V>>();
+  hits = 0;
+  misses = 0;
+  evictions = 0;
+
+  constructor(maxSize = 1000) {
+    this.maxSize = Math.max(1, maxSize);
+  }
+
+  get(key: string, command: string): V | undefined {
+    const entry = this.entries.get(key);
+    if (entry === undefined || entry.command !== command) {
+      this.misses += 1;
+      return undefined;
+    }
+    this.entries.delete(key);
+    this.entries.set(key, entry);
+    this.hits += 1;
+    return entry.value;
+  }
+
+  set(key: string, command: string, value: V) {
+    this.entries.delete(key);
+    this.entries.set(key, { command, value });
+    while (this.entries.size > this.maxSize) {
+      const oldest = this.entries.keys().next().value as string;
+      this.entries.delete(oldest);
+      this.evictions += 1;
+    }
+  }
+
+  clear() {
+    this.entries.clear();
+  }
+
+  get stats(): CacheStats {
+    return {
+      hits: this.hits,
+      misses: this.misses,
+      evictions: this.evictions,
+      size: this.entries.size,
+      maxSize: this.maxSize,
+    };
+  }
+}
+
+// cyrb53, a fast non-cryptographic 53-bit string hash
+// https://github.com/bryc/code/blob/master/jshash/experimental/cyrb53.js
+export function hash(str: string, seed = 0): string {
+  let h1 = 0xdeadbeef ^ seed;
+  let h2 = 0x41c6ce57 ^ seed;
+  for (let i = 0; i < str.length; i++) {
+    const ch = str.charCodeAt(i);
+    h1 = Math.imul(h1 ^ ch, 2654435761);
+    h2 = Math.imul(h2 ^ ch, 1597334677);
+  }
+  h1 = Math.imul(h1 ^ (h1 >>> 16), 2246822507);
+  h1 ^= Math.imul(h2 ^ (h2 >>> 13), 3266489909);
+  h2 = Math.imul(h2 ^ (h2 >>> 16), 2246822507);
+  h2 ^= Math.imul(h1 ^ (h1 >>> 13), 3266489909);
+  return (4294967296 * (2097151 & h2) + (h1 >>> 0)).toString(36);
+}
+
+// Commands can be strings or argv arrays, which are stored as JSON. The
+// prefix keeps the Bash command '["curl","example.com"]' from being
+// confused with the argv ["curl", "example.com"].
+export function commandKey(command: string | string[]): string {
+  return typeof command === "string"
+    ? "s:" + command
+    : "a:" + JSON.stringify(command);
+}
+
+const argsKeys = new WeakMap<Set<string>, string>();
+// Generators export their supported arguments as a Set that never changes
+export function supportedArgsKey(supportedArgs?: Set<string>): string {
+  if (supportedArgs === undefined) {
+    return "";
+  }
+  let key = argsKeys.get(supportedArgs);
+  if (key === undefined) {
+    key = hash([...supportedArgs].sort().join(","));
+    argsKeys.set(supportedArgs, key);
+  }
+  return key;
+}
+
+let cache: LRUCache<unknown> | null = null;
+
+/**
+ * Starts caching the parsed commands used by every toX() and toXWarn()
+ * function and the code generated by convertMany().
+ * @param maxSize the maximum number of results to keep. When it's exceeded,
+ * the least recently used result is dropped.
+ */
+export function enableCache(maxSize = 1000) {
+  cache = new LRUCache(maxSize);
+}
+
+// Stops caching and drops everything that was cached
+export function disableCache() {
+  cache = null;
+}
+
+export function cacheStats(): CacheStats | null {
+  return cache ? cache.stats : null;
+}
+
+export function getCache(): LRUCache<unknown> | null {
+  return cache;
+}
@@ -1,6 +1,6 @@
 #!/usr/bin/env node
 
-import { CCError, has } from "./utils.ts";
+import { CCError } from "./utils.ts";
 import type { Warnings } from "./Warnings.ts";
 import { Word } from "./shell/Word.ts";
 import {
@@ -12,339 +12,24 @@ import {
 import type { LongOpts, ShortOpts } from "./curl/opts.ts";
 
 import { buildRequests } from "./Request.ts";
-import type { Request } from "./Request.ts";
+import { generate } from "./generate.ts";
+import { setTimingsHook, summarizeTimings } from "./timings.ts";
+import type { PhaseTiming } from "./timings.ts";
 
 import {
-  _toAnsible,
-  toAnsibleWarn,
-  supportedArgs as supportedArgsAnsible,
-} from "./generators/ansible.ts";
-import {
-  _toC,
-  toCWarn,
-  supportedArgs as supportedArgsC,
-} from "./generators/c.ts";
-import {
-  _toCFML,
-  toCFMLWarn,
-  supportedArgs as supportedArgsCFML,
-} from "./generators/cfml.ts";
-import {
-  _toClojure,
-  toClojureWarn,
-  supportedArgs as supportedArgsClojure,
-} from "./generators/clojure.ts";
-import {
-  _toCSharp,
-  toCSharpWarn,
-  supportedArgs as supportedArgsCSharp,
-} from "./generators/csharp.ts";
-import {
-  _toDart,
-  toDartWarn,
-  supportedArgs as supportedArgsDart,
-} from "./generators/dart.ts";
-import {
-  _toElixir,
-  toElixirWarn,
-  supportedArgs as supportedArgsElixir,
-} from "./generators/elixir.ts";
-import {
-  _toGo,
-  toGoWarn,
-  supportedArgs as supportedArgsGo,
-} from "./generators/go.ts";
-import {
-  _toHarString,
-  toHarStringWarn,
-  supportedArgs as supportedArgsHarString,
-} from "./generators/har.ts";
-import {
-  _toHTTP,
-  toHTTPWarn,
-  supportedArgs as supportedArgsHTTP,
-} from "./generators/http.ts";
-import {
-  _toHttpie,
-  toHttpieWarn,
-  supportedArgs as supportedArgsHttpie,
-} from "./generators/httpie.ts";
-import {
-  _toJava,
-  toJavaWarn,
-  supportedArgs as supportedArgsJava,
-} from "./generators/java/java.ts";
-import {
-  _toJavaHttpUrlConnection,
-  toJavaHttpUrlConnectionWarn,
-  supportedArgs as supportedArgsJavaHttpUrlConnection,
-} from "./generators/java/httpurlconnection.ts";
-import {
-  _toJavaJsoup,
-  toJavaJsoupWarn,
-  supportedArgs as supportedArgsJavaJsoup,
-} from "./generators/java/jsoup.ts";
-import {
-  _toJavaOkHttp,
-  toJavaOkHttpWarn,
-  supportedArgs as supportedArgsJavaOkHttp,
-} from "./generators/java/okhttp.ts";
-import {
-  _toJavaScript,
-  toJavaScriptWarn,
-  javaScriptSupportedArgs as supportedArgsJavaScript,
-} from "./generators/javascript/javascript.ts";
-import {
-  _toJavaScriptJquery,
-  toJavaScriptJqueryWarn,
-  supportedArgs as supportedArgsJavaScriptJquery,
-} from "./generators/javascript/jquery.ts";
-import {
-  _toJavaScriptXHR,
-  toJavaScriptXHRWarn,
-  supportedArgs as supportedArgsJavaScriptXHR,
-} from "./generators/javascript/xhr.ts";
-import {
-  _toJsonString,
-  toJsonStringWarn,
-  supportedArgs as supportedArgsJsonString,
-} from "./generators/json.ts";
-import {
-  _toJulia,
-  toJuliaWarn,
-  supportedArgs as supportedArgsJulia,
-} from "./generators/julia.ts";
-import {
-  _toKotlin,
-  toKotlinWarn,
-  supportedArgs as supportedArgsKotlin,
-} from "./generators/kotlin.ts";
-import {
-  _toLua,
-  toLuaWarn,
-  supportedArgs as supportedArgsLua,
-} from "./generators/lua.ts";
-import {
-  _toMATLAB,
-  toMATLABWarn,
-  supportedArgs as supportedArgsMATLAB,
-} from "./generators/matlab/matlab.ts";
-import {
-  _toNode,
-  toNodeWarn,
-  nodeSupportedArgs as supportedArgsNode,
-} from "./generators/javascript/javascript.ts";
-import {
-  _toNodeAxios,
-  toNodeAxiosWarn,
-  supportedArgs as supportedArgsNodeAxios,
-} from "./generators/javascript/axios.ts";
-import {
-  _toNodeGot,
-  toNodeGotWarn,
-  supportedArgs as supportedArgsNodeGot,
-} from "./generators/javascript/got.ts";
-import {
-  _toNodeHttp,
-  toNodeHttpWarn,
-  supportedArgs as supportedArgsNodeHttp,
-} from "./generators/javascript/http.ts";
-import {
-  _toNodeKy,
-  toNodeKyWarn,
-  supportedArgs as supportedArgsNodeKy,
-} from "./generators/javascript/ky.ts";
-import {
-  _toNodeRequest,
-  toNodeRequestWarn,
-  supportedArgs as supportedArgsNodeRequest,
-} from "./generators/javascript/request.ts";
-import {
-  _toNodeSuperAgent,
-  toNodeSuperAgentWarn,
-  supportedArgs as supportedArgsNodeSuperAgent,
-} from "./generators/javascript/superagent.ts";
-import {
-  _toOCaml,
-  toOCamlWarn,
-  supportedArgs as supportedArgsOCaml,
-} from "./generators/ocaml.ts";
-import {
-  _toObjectiveC,
-  toObjectiveCWarn,
-  supportedArgs as supportedArgsObjectiveC,
-} from "./generators/objectivec.ts";
-import {
-  _toPerl,
-  toPerlWarn,
-  supportedArgs as supportedArgsPerl,
-} from "./generators/perl.ts";
-import {
-  _toPhp,
-  toPhpWarn,
-  supportedArgs as supportedArgsPhp,
-} from "./generators/php/php.ts";
-import {
-  _toPhpGuzzle,
-  toPhpGuzzleWarn,
-  supportedArgs as supportedArgsPhpGuzzle,
-} from "./generators/php/guzzle.ts";
-import {
-  _toPhpRequests,
-  toPhpRequestsWarn,
-  supportedArgs as supportedArgsPhpRequests,
-} from "./generators/php/requests.ts";
-import {
-  _toPowershellRestMethod,
-  toPowershellRestMethodWarn,
-  supportedArgs as supportedArgsPowershellRestMethod,
-} from "./generators/powershell.ts";
-import {
-  _toPowershellWebRequest,
-  toPowershellWebRequestWarn,
-  supportedArgs as supportedArgsPowershellWebRequest,
-} from "./generators/powershell.ts";
-import {
-  _toPython,
-  toPythonWarn,
-  supportedArgs as supportedArgsPython,
-} from "./generators/python/python.ts";
-import {
-  _toPythonHttp,
-  toPythonHttpWarn,
-  supportedArgs as supportedArgsPythonHttp,
-} from "./generators/python/http.ts";
-import {
-  _toR,
-  toRWarn,
-  supportedArgs as supportedArgsR,
-} from "./generators/r/httr.ts";
-import {
-  _toRHttr2,
-  toRHttr2Warn,
-  supportedArgs as supportedArgsRHttr2,
-} from "./generators/r/httr2.ts";
-import {
-  _toRuby,
-  toRubyWarn,
-  supportedArgs as supportedArgsRuby,
-} from "./generators/ruby/ruby.ts";
-import {
-  _toRubyHttparty,
-  toRubyHttpartyWarn,
-  supportedArgs as supportedArgsRubyHttparty,
-} from "./generators/ruby/httparty.ts";
-import {
-  _toRust,
-  toRustWarn,
-  supportedArgs as supportedArgsRust,
-} from "./generators/rust.ts";
-import {
-  _toSwift,
-  toSwiftWarn,
-  supportedArgs as supportedArgsSwift,
-} from "./generators/swift.ts";
-import {
-  _toWget,
-  toWgetWarn,
-  supportedArgs as supportedArgsWget,
-} from "./generators/wget.ts";
+  languages,
+  defaultLanguage,
+  isLanguage,
+  loadLanguage,
+} from "./languages.ts";
+
+import type { ConvertRequest, ConvertResult } from "./convert.ts";
 
 import fs from "fs";
 
 // This line is updated by extract_curl_args.py
 const VERSION = "4.12.0 (curl 8.2.1)";
 
-// sets a default in case --language isn't passed
-const defaultLanguage = "python";
-
-// Maps options for --language to functions
-// NOTE: make sure to update this when adding language support
-// prettier-ignore
-const translate: {
-  [key: string]: [
-    (request: Request[], warnings?: Warnings) => string,
-    (curlCommand: string | string[], warnings?: Warnings) => [string, Warnings],
-    Set<string>,
-  ];
-} = {
-  ansible: [_toAnsible, toAnsibleWarn, supportedArgsAnsible],
-  c: [_toC, toCWarn, supportedArgsC],
-  cfml: [_toCFML, toCFMLWarn, supportedArgsCFML],
-  clojure: [_toClojure, toClojureWarn, supportedArgsClojure],
-  csharp: [_toCSharp, toCSharpWarn, supportedArgsCSharp],
-  "c#": [_toCSharp, toCSharpWarn, supportedArgsCSharp], // undocumented alias
-  browser: [_toJavaScript, toJavaScriptWarn, supportedArgsJavaScript], // for backwards compatibility, undocumented
-  dart: [_toDart, toDartWarn, supportedArgsDart],
-  elixir: [_toElixir, toElixirWarn, supportedArgsElixir],
-  go: [_toGo, toGoWarn, supportedArgsGo],
-  golang: [_toGo, toGoWarn, supportedArgsGo], // undocumented alias
-  har: [_toHarString, toHarStringWarn, supportedArgsHarString],
-  http: [_toHTTP, toHTTPWarn, supportedArgsHTTP],
-  httpie: [_toHttpie, toHttpieWarn, supportedArgsHttpie],
-  java: [_toJava, toJavaWarn, supportedArgsJava],
-  "java-httpurlconnection": [_toJavaHttpUrlConnection, toJavaHttpUrlConnectionWarn, supportedArgsJavaHttpUrlConnection],
-  "java-jsoup": [_toJavaJsoup, toJavaJsoupWarn, supportedArgsJavaJsoup],
-  "java-okhttp": [_toJavaOkHttp, toJavaOkHttpWarn, supportedArgsJavaOkHttp],
-  javascript: [_toJavaScript, toJavaScriptWarn, supportedArgsJavaScript],
-  "javascript-axios": [_toNodeAxios, toNodeAxiosWarn, supportedArgsNodeAxios], // undocumented alias
-  "javascript-fetch": [_toJavaScript, toJavaScriptWarn, supportedArgsJavaScript], // undocumented alias
-  "javascript-got": [_toNodeGot, toNodeGotWarn, supportedArgsNodeGot], // undocumented alias
-  "javascript-ky": [_toNodeKy, toNodeKyWarn, supportedArgsNodeKy], // undocumented alias
-  "javascript-jquery": [_toJavaScriptJquery, toJavaScriptJqueryWarn, supportedArgsJavaScriptJquery],
-  "javascript-request": [_toNodeRequest, toNodeRequestWarn, supportedArgsNodeRequest], // undocumented alias
-  "javascript-superagent": [_toNodeSuperAgent, toNodeSuperAgentWarn, supportedArgsNodeSuperAgent], // undocumented alias
-  "javascript-xhr": [_toJavaScriptXHR, toJavaScriptXHRWarn, supportedArgsJavaScriptXHR],
-  json: [_toJsonString, toJsonStringWarn, supportedArgsJsonString],
-  julia: [_toJulia, toJuliaWarn, supportedArgsJulia],
-  kotlin: [_toKotlin, toKotlinWarn, supportedArgsKotlin],
-  lua: [_toLua, toLuaWarn, supportedArgsLua],
-  matlab: [_toMATLAB, toMATLABWarn, supportedArgsMATLAB],
-  node: [_toNode, toNodeWarn, supportedArgsNode],
-  "node-axios": [_toNodeAxios, toNodeAxiosWarn, supportedArgsNodeAxios],
-  "node-fetch": [_toNode, toNodeWarn, supportedArgsNode], // undocumented alias
-  "node-got": [_toNodeGot, toNodeGotWarn, supportedArgsNodeGot],
-  "node-http": [_toNodeHttp, toNodeHttpWarn, supportedArgsNodeHttp], // undocumented alias
-  "node-ky": [_toNodeKy, toNodeKyWarn, supportedArgsNodeKy],
-  "node-jquery": [_toJavaScriptJquery, toJavaScriptJqueryWarn, supportedArgsJavaScriptJquery], // undocumented alias
-  "node-request": [_toNodeRequest, toNodeRequestWarn, supportedArgsNodeRequest],
-  "node-superagent": [_toNodeSuperAgent, toNodeSuperAgentWarn, supportedArgsNodeSuperAgent],
-  "node-xhr": [_toJavaScriptXHR, toJavaScriptXHRWarn, supportedArgsJavaScriptXHR], // undocumented alias
-  nodejs: [_toNode, toNodeWarn, supportedArgsNode], // undocumented alias
-  "nodejs-axios": [_toNodeAxios, toNodeAxiosWarn, supportedArgsNodeAxios], // undocumented alias
-  "nodejs-fetch": [_toNode, toNodeWarn, supportedArgsNode], // undocumented alias
-  "nodejs-got": [_toNodeGot, toNodeGotWarn, supportedArgsNodeGot], // undocumented alias
-  "nodejs-http": [_toNodeHttp, toNodeHttpWarn, supportedArgsNodeHttp], // undocumented alias
-  "nodejs-ky": [_toNodeKy, toNodeKyWarn, supportedArgsNodeKy], // undocumented alias
-  "nodejs-jquery": [_toJavaScriptJquery, toJavaScriptJqueryWarn, supportedArgsJavaScriptJquery], // undocumented alias
-  "nodejs-request": [_toNodeRequest, toNodeRequestWarn, supportedArgsNodeRequest], // undocumented alias
-  "nodejs-superagent": [_toNodeSuperAgent, toNodeSuperAgentWarn, supportedArgsNodeSuperAgent], // undocumented alias
-  "nodejs-xhr": [_toJavaScriptXHR, toJavaScriptXHRWarn, supportedArgsJavaScriptXHR], // undocumented alias
-  objc: [_toObjectiveC, toObjectiveCWarn, supportedArgsObjectiveC],
-  objectivec: [_toObjectiveC, toObjectiveCWarn, supportedArgsObjectiveC], // undocumented alias
-  "objective-c": [_toObjectiveC, toObjectiveCWarn, supportedArgsObjectiveC], // undocumented alias
-  ocaml: [_toOCaml, toOCamlWarn, supportedArgsOCaml],
-  perl: [_toPerl, toPerlWarn, supportedArgsPerl],
-  php: [_toPhp, toPhpWarn, supportedArgsPhp],
-  "php-curl": [_toPhp, toPhpWarn, supportedArgsPhp], // undocumented alias
-  "php-guzzle": [_toPhpGuzzle, toPhpGuzzleWarn, supportedArgsPhpGuzzle],
-  "php-requests": [_toPhpRequests, toPhpRequestsWarn, supportedArgsPhpRequests],
-  powershell: [_toPowershellRestMethod, toPowershellRestMethodWarn, supportedArgsPowershellRestMethod],
-  "powershell-restmethod": [_toPowershellRestMethod, toPowershellRestMethodWarn, supportedArgsPowershellRestMethod], // undocumented alias
-  "powershell-webrequest": [_toPowershellWebRequest, toPowershellWebRequestWarn, supportedArgsPowershellWebRequest],
-  python: [_toPython, toPythonWarn, supportedArgsPython],
-  "python-http": [_toPythonHttp, toPythonHttpWarn, supportedArgsPythonHttp],
-  "python-httpclient": [_toPythonHttp, toPythonHttpWarn, supportedArgsPythonHttp], // undocumented alias
-  r: [_toR, toRWarn, supportedArgsR],
-  "r-httr": [_toR, toRWarn, supportedArgsR], // undocumented alias
-  "r-httr2": [_toRHttr2, toRHttr2Warn, supportedArgsRHttr2],
-  ruby: [_toRuby, toRubyWarn, supportedArgsRuby],
-  "ruby-httparty": [_toRubyHttparty, toRubyHttpartyWarn, supportedArgsRubyHttparty],
-  rust: [_toRust, toRustWarn, supportedArgsRust],
-  swift: [_toSwift, toSwiftWarn, supportedArgsSwift],
-  wget: [_toWget, toWgetWarn, supportedArgsWget],
-};
-
 const USAGE = `Usage: curlconverter [--language <language>] [-] [curl_options...]
 
 language: the language to convert the curl command to. The choices are
@@ -400,6 +85,15 @@ language: the language to convert the curl command to. The choices are
 
 --verbose/-v: print warnings and error tracebacks
 
+--timings: print how long each phase of the conversion took and how much the heap grew while it ran
+
+--serve <socket>: keep running and convert commands sent as JSON lines to a Unix domain socket
+
+--socket <socket>: send the command to a curlconverter started with --serve instead of converting it
+
+--batch <file>: convert each line of a JSON Lines file (or - for stdin), printing one line of JSON per input line.
+  --language can be a comma-separated list of languages in this mode
+
 curl_options: these should be passed exactly as they would be passed to curl.
   see 'curl --help' or 'curl --manual' for which options are allowed here`;
 
@@ -407,6 +101,10 @@ const curlconverterLongOpts: LongOpts = {
   ...curlLongOpts,
   language: { type: "string", name: "language" },
   stdin: { type: "bool", name: "stdin" },
+  serve: { type: "string", name: "serve" },
+  socket: { type: "string", name: "socket" },
+  batch: { type: "string", name: "batch" },
+  timings: { type: "bool", name: "timings" },
 };
 const curlconverterShortOpts: ShortOpts = {
   ...curlShortOpts,
@@ -443,9 +141,32 @@ function exitWithError(error: unknown, verbose = false): never {
   process.exit(2); // curl exits with 2 so we do too
 }
 
+function formatBytes(bytes: number): string {
+  return (bytes < 0 ? "-" : "+") + (Math.abs(bytes) / 1024).toFixed(1) + "KB";
+}
+function printTimings(timings: PhaseTiming[]) {
+  const row = (name: string, ms: string, heap: string) =>
+    console.error(name.padEnd(16) + ms.padStart(12) + heap.padStart(12));
+  row("phase", "time", "heap");
+  let totalMs = 0;
+  let totalBytes = 0;
+  for (const t of summarizeTimings(timings)) {
+    row(t.phase, t.durationMs.toFixed(3) + "ms", formatBytes(t.heapDeltaBytes));
+    totalMs += t.durationMs;
+    totalBytes += t.heapDeltaBytes;
+  }
+  row("total", totalMs.toFixed(3) + "ms", formatBytes(totalBytes));
+}
+
 // argv is ['node', 'cli.js', ...]
 // parseArgs() ignores the first argument but we need to remove "node"
 const argv = process.argv.slice(1).map((arg) => new Word(arg));
+// Look for --timings before parsing the arguments so that parsing them is
+// timed too. If it turns out to be an option's value, it's turned off again.
+const timings: PhaseTiming[] = [];
+if (process.argv.includes("--timings")) {
+  setTimingsHook((t) => timings.push(t));
+}
 let global_, seenArgs;
 let warnings: Warnings = [];
 try {
@@ -468,31 +189,149 @@ if (global_.version) {
   console.log("curlconverter " + VERSION);
   process.exit(0);
 }
+if (!global_.timings) {
+  setTimingsHook(null);
+}
 const verbose = !!global_.verbose;
 const commandFromStdin = global_.stdin;
 const language = global_.language || defaultLanguage;
-if (!has(translate, language)) {
+
+if (global_.batch !== undefined) {
+  const batchLanguages = language.split(",");
+  const unknown = batchLanguages.filter((l) => !isLanguage(l));
+  if (unknown.length) {
+    exitWithError(
+      new CCError(
+        "unexpected --language: " +
+          unknown.map((l) => JSON.stringify(l)).join(", ") +
+          "\n" +
+          "must be one of: " +
+          Object.keys(languages).sort().join(", "),
+      ),
+      verbose,
+    );
+  }
+  const extraArgs = seenArgs
+    .filter((a) => !["batch", "verbose", "language"].includes(a[0]))
+    .map((a) => a[1]);
+  if (extraArgs.length) {
+    exitWithError(
+      new CCError(
+        "if you pass --batch, you can't also pass " + extraArgs.join(", "),
+      ),
+      verbose,
+    );
+  }
+  const { convertBatch } = await import("./batch.ts");
+  const input =
+    global_.batch === "-"
+      ? process.stdin
+      : fs.createReadStream(global_.batch, "utf8");
+  try {
+    await convertBatch(input, process.stdout, batchLanguages);
+  } catch (e) {
+    exitWithError(e, verbose);
+  }
+  process.exit(0);
+}
+
+if (!isLanguage(language)) {
   exitWithError(
     new CCError(
       "unexpected --language: " +
         JSON.stringify(language) +
         "\n" +
         "must be one of: " +
-        Object.keys(translate).sort().join(", "),
+        Object.keys(languages).sort().join(", "),
     ),
     verbose,
   );
 }
 
+// The server does the conversions, so there's nothing to time here
+for (const arg of ["serve", "socket"] as const) {
+  if (global_.timings && global_[arg] !== undefined) {
+    exitWithError(
+      new CCError("if you pass --" + arg + ", you can't also pass --timings"),
+      verbose,
+    );
+  }
+}
+
+if (global_.serve !== undefined) {
+  const { serve } = await import("./server.ts");
+  try {
+    await serve(global_.serve);
+  } catch (e) {
+    exitWithError(e, verbose);
+  }
+  process.exit(0);
+}
+
 if (!seenArgs.length) {
   console.log(USAGE.trim());
   process.exit(2);
 }
 
-const [generator, warnGenerator, supportedArgs] = translate[language];
+if (global_.socket !== undefined) {
+  // Let the server do the conversion. It has everything loaded already.
+  const { sendRequest } = await import("./server.ts");
+  let request: ConvertRequest;
+  if (commandFromStdin) {
+    request = { command: fs.readFileSync(0, "utf8"), language };
+  } else {
+    // Forward the arguments exactly as they were passed, minus the ones
+    // that are only meant for this process.
+    const args = process.argv.slice(2);
+    const forwarded = ["curl"];
+    for (let i = 0; i < args.length; i++) {
+      if (args[i] === "--") {
+        forwarded.push(...args.slice(i));
+        break;
+      }
+      if (args[i] === "--language" || args[i] === "--socket") {
+        i++;
+        continue;
+      }
+      forwarded.push(args[i]);
+    }
+    request = { command: forwarded, language };
+    if (!process.stdin.isTTY) {
+      request.stdin = fs.readFileSync(0).toString();
+    }
+  }
+  let response: ConvertResult;
+  try {
+    response = await sendRequest(global_.socket, request);
+  } catch (e) {
+    exitWithError(e, verbose);
+  }
+  printWarnings(warnings.concat(response.warnings), verbose);
+  if (response.error !== undefined) {
+    exitWithError(
+      response.ccError
+        ? new CCError(response.error)
+        : new Error(response.error),
+      verbose,
+    );
+  }
+  process.stdout.write(response.code ?? "");
+  process.exit(0);
+}
+
+// Only the selected generator (and what it imports) gets loaded
+const [generator, warnGenerator, supportedArgs] = await loadLanguage(language);
 const extraArgs = seenArgs.filter((a) => {
   const [arg, actual] = a;
-  const ignore = ["stdin", "verbose", "language"].includes(arg);
+  const ignore = [
+    "stdin",
+    "verbose",
+    "language",
+    "serve",
+    "socket",
+    "batch",
+    "timings",
+  ].includes(arg);
   if (!ignore && !supportedArgs.has(arg)) {
     warnings.push([
       arg,
@@ -551,7 +390,7 @@ warning: Pass options to curlconverter as if it was curl instead:
 warning: curlconverter 'curl example.com' -> curlconverter example.com`);
   }
   try {
-    code = generator(requests, warnings);
+    code = generate(generator, requests, warnings);
   } catch (e) {
     exitWithError(e, verbose);
   }
@@ -560,3 +399,6 @@ warning: curlconverter 'curl example.com' -> curlconverter example.com`);
 
 printWarnings(warnings, verbose);
 process.stdout.write(code);
+if (global_.timings) {
+  printTimings(timings);
+}
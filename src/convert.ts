@@ -0,0 +1,258 @@
+// Converts commands without throwing, so that the result can be sent to
+// another process or thread as JSON.
+// Used by the --serve server and the worker threads of --batch.
+
+import { CCError } from "./utils.ts";
+import type { Warnings } from "./Warnings.ts";
+import { Word } from "./shell/Word.ts";
+import {
+  parseArgs,
+  curlLongOpts,
+  curlLongOptsShortened,
+  curlShortOpts,
+} from "./curl/opts.ts";
+import { buildRequests, copyRequest } from "./Request.ts";
+import type { Request } from "./Request.ts";
+import { parseForAll, warnUnsupported } from "./parse.ts";
+import { TokenizeSession } from "./shell/tokenizer.ts";
+import { defaultLanguage, loadLanguage } from "./languages.ts";
+import { commandKey, getCache, hash } from "./cache.ts";
+import { generate } from "./generate.ts";
+import {
+  LimitError,
+  checkInput,
+  checkOutput,
+  limitsParsing,
+  withLimits,
+} from "./limits.ts";
+import type { Limit, Limits } from "./limits.ts";
+
+export interface ConvertRequest {
+  // A string of Bash code or curl's argv, starting with "curl"
+  command: string | string[];
+  language?: string;
+  // What the curl command would read from stdin, only used with argv
+  stdin?: string;
+  // An AbortSignal can't be sent to another thread, so ConverterPool sends
+  // these without the signal
+  limits?: Limits;
+}
+
+export interface ConvertResult {
+  code?: string;
+  warnings: Warnings;
+  error?: string;
+  // Whether error came from a CCError (and is meant to be shown to the user)
+  ccError?: boolean;
+  // Which limit was hit, if error came from a LimitError
+  limit?: Limit;
+}
+
+function errorResult(e: unknown, warnings: Warnings): ConvertResult {
+  const result: ConvertResult = {
+    warnings,
+    error: e instanceof Error ? e.message : String(e),
+    ccError: e instanceof CCError,
+  };
+  if (e instanceof LimitError) {
+    result.limit = e.limit;
+  }
+  return result;
+}
+
+// Cached results are copied so that callers can't modify the cached warnings
+function getCachedCode(
+  kind: "convert" | "convertMany",
+  language: string,
+  command: string | string[] | TokenizeSession,
+  stdin: string | undefined,
+  limits: Limits | undefined,
+): ConvertResult | undefined {
+  const cache = getCache();
+  if (
+    cache === null ||
+    stdin !== undefined ||
+    command instanceof TokenizeSession ||
+    (limits !== undefined && limitsParsing([limits]))
+  ) {
+    return undefined;
+  }
+  const commandStr = commandKey(command);
+  const hit = cache.get(
+    kind + ":" + language + ":" + hash(commandStr),
+    commandStr,
+  ) as ConvertResult | undefined;
+  return hit && { code: hit.code, warnings: [...hit.warnings] };
+}
+
+// Cached results might have been converted with different limits or none.
+// The limits that can't be checked afterwards skip the cache instead, see
+// limitsParsing().
+function checkCachedCode(
+  result: ConvertResult,
+  command: string | string[] | TokenizeSession,
+  limits: Limits | undefined,
+): ConvertResult {
+  if (limits === undefined || command instanceof TokenizeSession) {
+    return result;
+  }
+  try {
+    withLimits(limits, () => {
+      checkInput(command);
+      checkOutput(result.code ?? "");
+    });
+  } catch (e) {
+    return errorResult(e, result.warnings);
+  }
+  return result;
+}
+
+function setCachedCode(
+  kind: "convert" | "convertMany",
+  language: string,
+  command: string | string[] | TokenizeSession,
+  stdin: string | undefined,
+  result: ConvertResult,
+) {
+  const cache = getCache();
+  if (
+    cache === null ||
+    stdin !== undefined ||
+    command instanceof TokenizeSession ||
+    result.error !== undefined
+  ) {
+    return;
+  }
+  const commandStr = commandKey(command);
+  // convertMany() orders warnings differently, so it's cached separately
+  cache.set(kind + ":" + language + ":" + hash(commandStr), commandStr, {
+    code: result.code,
+    warnings: [...result.warnings],
+  });
+}
+
+export async function convert(request: ConvertRequest): Promise<ConvertResult> {
+  const language = request.language || defaultLanguage;
+  const cached = getCachedCode(
+    "convert",
+    language,
+    request.command,
+    request.stdin,
+    request.limits,
+  );
+  if (cached !== undefined) {
+    return checkCachedCode(cached, request.command, request.limits);
+  }
+
+  let warnings: Warnings = [];
+  try {
+    const [generator, warnGenerator, supportedArgs] =
+      await loadLanguage(language);
+
+    // Also checks the signal, which could have been aborted while the
+    // generator was loading
+    const code = withLimits(request.limits ?? {}, () => {
+      if (typeof request.command === "string") {
+        let code;
+        [code, warnings] = warnGenerator(request.command, warnings);
+        return code;
+      }
+      if (!Array.isArray(request.command) || !request.command.length) {
+        throw new CCError("no arguments provided");
+      }
+      checkInput(request.command);
+      const [global_] = parseArgs(
+        request.command.map((arg) => new Word(arg)),
+        curlLongOpts,
+        curlLongOptsShortened,
+        curlShortOpts,
+        supportedArgs,
+        warnings,
+      );
+      const stdin =
+        request.stdin !== undefined ? new Word(request.stdin) : undefined;
+      return generate(generator, buildRequests(global_, stdin), warnings);
+    });
+    const result = { code, warnings };
+    setCachedCode("convert", language, request.command, request.stdin, result);
+    return result;
+  } catch (e) {
+    return errorResult(e, warnings);
+  }
+}
+
+/**
+ * Converts a command to several languages, parsing it only once.
+ * Returns the same code and warnings as calling each language's toXWarn()
+ * function, except that warnings about unsupported arguments come after
+ * all the other warnings from parsing.
+ * @param command can also be a TokenizeSession, for commands being edited
+ * @param stdin what the command reads from stdin, if command is an argv array
+ * @param limits how much work converting it can do, see withLimits(). The
+ * signal is checked before each language is generated.
+ */
+export async function convertMany(
+  command: string | string[] | TokenizeSession,
+  languages: string[],
+  stdin?: string,
+  limits: Limits = {},
+): Promise<{ [language: string]: ConvertResult }> {
+  const results: { [language: string]: ConvertResult } = {};
+
+  const cached: { [language: string]: ConvertResult } = {};
+  const uncached: string[] = [];
+  for (const language of languages) {
+    const result = getCachedCode(
+      "convertMany",
+      language,
+      command,
+      stdin,
+      limits,
+    );
+    if (result !== undefined) {
+      cached[language] = checkCachedCode(result, command, limits);
+    } else {
+      uncached.push(language);
+    }
+  }
+  if (!uncached.length) {
+    return cached;
+  }
+
+  const warnings: Warnings = [];
+  let requests: Request[], seenArgs: [string, string][];
+  try {
+    [requests, seenArgs] = withLimits(limits, () =>
+      parseForAll(
+        command,
+        warnings,
+        stdin !== undefined ? new Word(stdin) : undefined,
+      ),
+    );
+  } catch (e) {
+    for (const language of languages) {
+      results[language] = cached[language] || errorResult(e, [...warnings]);
+    }
+    return results;
+  }
+
+  for (const language of languages) {
+    if (cached[language]) {
+      results[language] = cached[language];
+      continue;
+    }
+    const languageWarnings: Warnings = [...warnings];
+    try {
+      const [generator, , supportedArgs] = await loadLanguage(language);
+      warnUnsupported(seenArgs, supportedArgs, languageWarnings);
+      const code = withLimits(limits, () =>
+        generate(generator, requests.map(copyRequest), languageWarnings),
+      );
+      results[language] = { code, warnings: languageWarnings };
+      setCachedCode("convertMany", language, command, stdin, results[language]);
+    } catch (e) {
+      results[language] = errorResult(e, languageWarnings);
+    }
+  }
+  return results;
+}
@@ -1,6 +1,8 @@
 import { CCError, has } from "../utils.ts";
 import { Word, eq, firstShellToken } from "../shell/Word.ts";
 import { warnf, underlineNode, type Warnings } from "../Warnings.ts";
+import { startPhase, endPhase } from "../timings.ts";
+import { checkWords } from "../limits.ts";
 import {
   CURLAUTH_BASIC,
   CURLAUTH_DIGEST,
@@ -960,6 +962,10 @@ export interface GlobalConfig {
   // These are specific to the curlconverter cli
   language?: string;
   stdin?: boolean;
+  serve?: string;
+  socket?: string;
+  batch?: string;
+  timings?: boolean;
 }
 
 function checkSupported(
@@ -1060,7 +1066,11 @@ function pushArgValue(
       global_[argName] = value;
       break;
 
-    case "language": // --language is a curlconverter specific option
+    // These are curlconverter specific options
+    case "language":
+    case "serve":
+    case "socket":
+    case "batch":
       global_[argName] = value.toString();
       return;
   }
@@ -1232,6 +1242,8 @@ export function parseArgs(
   supportedOpts?: Set<string>,
   warnings: Warnings = [],
 ): [GlobalConfig, [string, string][]] {
+  checkWords(args.length);
+  const start = startPhase();
   let config: OperationConfig = {
     authtype: CURLAUTH_BASIC,
     proxyauthtype: CURLAUTH_BASIC,
@@ -1413,5 +1425,6 @@ export function parseArgs(
       }
     }
   }
+  endPhase("parseArgs", start);
   return [global_, seen];
 }
@@ -0,0 +1,22 @@
+// Every toXWarn() function and convertMany() call their generator through
+// generate(), which times it as the "generate" phase (see timings.ts),
+// checks the signal before it starts and checks the code it returned against
+// the output limit (see limits.ts).
+
+import type { Request } from "./Request.ts";
+import type { Warnings } from "./Warnings.ts";
+import { timeGeneration } from "./timings.ts";
+import { checkSignal, checkOutput } from "./limits.ts";
+
+export function generate<T>(
+  generator: (requests: Request[], warnings: Warnings) => T,
+  requests: Request[],
+  warnings: Warnings,
+): T {
+  checkSignal();
+  const code = timeGeneration(generator, requests, warnings);
+  if (typeof code === "string") {
+    checkOutput(code);
+  }
+  return code;
+}
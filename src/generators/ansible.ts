@@ -1,6 +1,7 @@
 import { Word, eq } from "../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../parse.ts";
 import type { Request, Warnings } from "../parse.ts";
+import { generate } from "../generate.ts";
 import { parseQueryString, type QueryList, type QueryDict } from "../Query.ts";
 
 import yaml from "yamljs";
@@ -356,7 +357,7 @@ export function toAnsibleWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const ansible = _toAnsible(requests, warnings);
+  const ansible = generate(_toAnsible, requests, warnings);
   return [ansible, warnings];
 }
 export function toAnsible(curlCommand: string | string[]): string {
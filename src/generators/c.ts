@@ -1,6 +1,9 @@
 import { Word, eq, mergeWords } from "../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../parse.ts";
 import type { Request, Warnings } from "../parse.ts";
+import { generate } from "../generate.ts";
+import { checkGenerating } from "../limits.ts";
+import { compileEscaper } from "./escape.ts";
 
 export const supportedArgs = new Set([
   ...COMMON_SUPPORTED_ARGS,
@@ -222,42 +225,31 @@ export const supportedArgs = new Set([
   "no-insecure",
 ]);
 
-const regexEscape = /"|\\|\p{C}|[^ \P{Z}]/gu;
+const escape = compileEscaper({
+  escapes: {
+    "\x07": "\\a",
+    "\b": "\\b",
+    "\f": "\\f",
+    "\n": "\\n",
+    "\r": "\\r",
+    "\t": "\\t",
+    "\v": "\\v",
+    "\\": "\\\\",
+    '"': '\\"',
+  },
+  escapeOther(c: string): string {
+    const hex = (c.codePointAt(0) as number).toString(16);
+    if (hex.length <= 2) {
+      return "\\x" + hex.padStart(2, "0");
+    }
+    if (hex.length <= 4) {
+      return "\\u" + hex.padStart(4, "0");
+    }
+    return "\\U" + hex.padStart(8, "0");
+  },
+});
 export function reprStr(s: string): string {
-  return (
-    '"' +
-    s.replace(regexEscape, (c: string): string => {
-      switch (c) {
-        case "\x07":
-          return "\\a";
-        case "\b":
-          return "\\b";
-        case "\f":
-          return "\\f";
-        case "\n":
-          return "\\n";
-        case "\r":
-          return "\\r";
-        case "\t":
-          return "\\t";
-        case "\v":
-          return "\\v";
-        case "\\":
-          return "\\\\";
-        case '"':
-          return '\\"';
-      }
-      const hex = (c.codePointAt(0) as number).toString(16);
-      if (hex.length <= 2) {
-        return "\\x" + hex.padStart(2, "0");
-      }
-      if (hex.length <= 4) {
-        return "\\u" + hex.padStart(4, "0");
-      }
-      return "\\U" + hex.padStart(8, "0");
-    }) +
-    '"'
-  );
+  return '"' + escape(s) + '"';
 }
 
 export function repr(word: Word, imports: Set<string>): string {
@@ -537,7 +529,9 @@ function requestToC(
   }
 
   const headerLines = [];
+  let headersLength = 0;
   for (const [headerName, headerValue] of request.headers) {
+    checkGenerating(code.length + headersLength);
     const h = headerName.toLowerCase();
     if (eq(h, "user-agent") || eq(h, "referer")) {
       continue;
@@ -561,6 +555,7 @@ function requestToC(
           ");\n",
       );
     }
+    headersLength += headerLines[headerLines.length - 1].length;
   }
   if (headerLines.length) {
     preamble += "  struct curl_slist *headers;\n";
@@ -1362,7 +1357,7 @@ export function toCWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const c = _toC(requests, warnings);
+  const c = generate(_toC, requests, warnings);
   return [c, warnings];
 }
 
@@ -1,6 +1,7 @@
 import { Word } from "../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../parse.ts";
 import type { Request, Warnings } from "../parse.ts";
+import { generate } from "../generate.ts";
 
 import { esc as jsesc } from "./javascript/javascript.ts";
 
@@ -146,7 +147,7 @@ export function toCFMLWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const cfml = _toCFML(requests, warnings);
+  const cfml = generate(_toCFML, requests, warnings);
   return [cfml, warnings];
 }
 
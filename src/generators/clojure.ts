@@ -2,6 +2,7 @@ import { CCError } from "../utils.ts";
 import { Word, eq } from "../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../parse.ts";
 import type { Request, Warnings } from "../parse.ts";
+import { generate } from "../generate.ts";
 import type { QueryList, QueryDict } from "../Query.ts";
 import { Headers } from "../Headers.ts";
 import type { DataParam } from "../Request.ts";
@@ -513,7 +514,7 @@ export function toClojureWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const clojure = _toClojure(requests, warnings);
+  const clojure = generate(_toClojure, requests, warnings);
   return [clojure, warnings];
 }
 export function toClojure(curlCommand: string | string[]): string {
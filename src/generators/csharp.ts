@@ -2,6 +2,7 @@ import { has, isInt } from "../utils.ts";
 import { Word, eq, joinWords } from "../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../parse.ts";
 import type { Request, Warnings } from "../parse.ts";
+import { generate } from "../generate.ts";
 
 export const supportedArgs = new Set([
   ...COMMON_SUPPORTED_ARGS,
@@ -375,7 +376,7 @@ export function toCSharpWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const cSharp = _toCSharp(requests, warnings);
+  const cSharp = generate(_toCSharp, requests, warnings);
   return [cSharp, warnings];
 }
 export function toCSharp(curlCommand: string | string[]): string {
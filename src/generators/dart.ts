@@ -1,6 +1,7 @@
 import { Word, eq } from "../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../parse.ts";
 import type { Request, Warnings } from "../parse.ts";
+import { generate } from "../generate.ts";
 import { parseQueryString } from "../Query.ts";
 
 import { esc as jsesc } from "./javascript/javascript.ts";
@@ -284,7 +285,7 @@ export function toDartWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const dart = _toDart(requests, warnings);
+  const dart = generate(_toDart, requests, warnings);
   return [dart, warnings];
 }
 
@@ -2,6 +2,7 @@ import { warnIfPartsIgnored } from "../Warnings.ts";
 import { Word, joinWords } from "../shell/Word.ts";
 import { parse, COMMON_SUPPORTED_ARGS } from "../parse.ts";
 import type { Request, Warnings } from "../parse.ts";
+import { generate } from "../generate.ts";
 import { parseQueryString } from "../Query.ts";
 
 export const supportedArgs = new Set([
@@ -340,7 +341,7 @@ export function toElixirWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const elixir = _toElixir(requests, warnings);
+  const elixir = generate(_toElixir, requests, warnings);
   return [elixir, warnings];
 }
 
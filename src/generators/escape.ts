@@ -0,0 +1,239 @@
+// Escapes strings for string literals in the generated code.
+//
+// Each language declares which characters it escapes and how once, as
+// EscapeRules, and compileEscaper() turns that into a function that skips
+// to the first character that might need escaping with a single regex
+// search, then scans the string's char codes with lookup tables and copies
+// them into a buffer, instead of calling a function for every regex match,
+// because request bodies can be megabytes of JSON or binary data. Strings
+// that don't need escaping are returned as-is and short strings that do are
+// cached, because the same header names and values get escaped over and over.
+//
+// Like the /"|\\|\p{C}|[^ \P{Z}]/gu regexes this replaced, the characters
+// that are escaped are the ones in the rules, control, format, private use,
+// unassigned and unpaired surrogate characters (\p{C}) and all separators
+// (\p{Z}) except space.
+
+export interface EscapeRules {
+  // What each of these ASCII characters turns into
+  escapes: { [char: string]: string };
+  // Like escapes, but only used when the next character isn't a digit,
+  // otherwise escapeOther() is used
+  escapesUnlessDigitFollows?: { [char: string]: string };
+  // What any other character that needs escaping turns into. c is a whole
+  // code point, so it's 2 code units long if it's astral.
+  // It's only called once per character.
+  escapeOther: (c: string) => string;
+}
+
+export type Escaper = (s: string) => string;
+
+const SPECIAL = /[\p{C}\p{Z}]/u;
+
+// NON_ASCII[c] is 1 if the non-ASCII BMP character c doesn't need escaping,
+// 2 if it does and 0 if we haven't checked yet
+const NON_ASCII = new Uint8Array(0x10000);
+function isSpecial(c: number): boolean {
+  let special = NON_ASCII[c];
+  if (special === 0) {
+    special = SPECIAL.test(String.fromCharCode(c)) ? 2 : 1;
+    NON_ASCII[c] = special;
+  }
+  return special === 2;
+}
+const ASTRAL = new Map<number, boolean>();
+function isSpecialAstral(codePoint: number): boolean {
+  let special = ASTRAL.get(codePoint);
+  if (special === undefined) {
+    special = SPECIAL.test(String.fromCodePoint(codePoint));
+    ASTRAL.set(codePoint, special);
+  }
+  return special;
+}
+
+function isHighSurrogate(c: number): boolean {
+  return c >= 0xd800 && c <= 0xdbff;
+}
+function isLowSurrogate(c: number): boolean {
+  return c >= 0xdc00 && c <= 0xdfff;
+}
+function isDigit(c: number): boolean {
+  return c >= 0x30 && c <= 0x39;
+}
+
+// The escaped string is built up in here. Escapers don't call each other,
+// so they can all share it.
+const INITIAL_BUFFER_SIZE = 1024;
+const MAX_KEPT_BUFFER_SIZE = 1024 * 1024;
+let buffer = new Uint16Array(INITIAL_BUFFER_SIZE);
+function reserve(used: number, needed: number) {
+  if (used + needed > buffer.length) {
+    const grown = new Uint16Array(Math.max(buffer.length * 2, used + needed));
+    grown.set(buffer.subarray(0, used));
+    buffer = grown;
+  }
+}
+// String.fromCharCode() takes each char code as an argument.
+// apply() is a lot faster than spreading the typed array.
+const CHUNK_SIZE = 8192;
+function bufferToString(length: number): string {
+  let s = "";
+  for (let i = 0; i < length; i += CHUNK_SIZE) {
+    const chunk = buffer.subarray(i, Math.min(i + CHUNK_SIZE, length));
+    s += String.fromCharCode.apply(null, chunk as unknown as number[]);
+  }
+  if (buffer.length > MAX_KEPT_BUFFER_SIZE) {
+    buffer = new Uint16Array(INITIAL_BUFFER_SIZE);
+  }
+  return s;
+}
+
+const MAX_CACHED_LENGTH = 256;
+const MAX_CACHE_SIZE = 1024;
+
+function regexEscape(c: string): string {
+  return "\\u" + c.charCodeAt(0).toString(16).padStart(4, "0");
+}
+
+const KEEP = 0;
+const ESCAPE = 1;
+const ESCAPE_UNLESS_DIGIT_FOLLOWS = 2;
+
+export function compileEscaper(rules: EscapeRules): Escaper {
+  const escapeOther = rules.escapeOther;
+  // What to do with each ASCII character and what it turns into
+  const asciiKind = new Uint8Array(0x80);
+  const ascii: string[] = new Array(0x80).fill("");
+  const asciiBeforeNonDigit: string[] = new Array(0x80).fill("");
+  for (let c = 0; c < 0x80; c++) {
+    if (c < 0x20 || c === 0x7f) {
+      asciiKind[c] = ESCAPE;
+      ascii[c] = escapeOther(String.fromCharCode(c));
+    }
+  }
+  for (const [c, escaped] of Object.entries(rules.escapes)) {
+    const code = c.charCodeAt(0);
+    if (c.length !== 1 || code >= 0x80) {
+      throw new Error("escape table keys must be ASCII characters: " + c);
+    }
+    asciiKind[code] = ESCAPE;
+    ascii[code] = escaped;
+  }
+  for (const [c, escaped] of Object.entries(
+    rules.escapesUnlessDigitFollows ?? {},
+  )) {
+    const code = c.charCodeAt(0);
+    if (c.length !== 1 || code >= 0x80 || asciiKind[code] === KEEP) {
+      throw new Error(
+        "escapesUnlessDigitFollows keys must be ASCII control characters or " +
+          "also be in escapes: " +
+          c,
+      );
+    }
+    asciiKind[code] = ESCAPE_UNLESS_DIGIT_FOLLOWS;
+    asciiBeforeNonDigit[code] = escaped;
+  }
+  // Matches the characters in the rules and everything that isn't printable
+  // ASCII. Unicode property escapes make regexes a lot slower on non-ASCII
+  // text than the lookup tables are.
+  const mightNeedEscape = new RegExp(
+    "[^ -~]|[" + Object.keys(rules.escapes).map(regexEscape).join("") + "]",
+  );
+  const nonAscii = new Map<number, string>();
+  function escapeNonAscii(codePoint: number): string {
+    let escaped = nonAscii.get(codePoint);
+    if (escaped === undefined) {
+      escaped = escapeOther(String.fromCodePoint(codePoint));
+      nonAscii.set(codePoint, escaped);
+    }
+    return escaped;
+  }
+
+  // Returns the index of the first character at or after i that needs to be
+  // escaped, or -1 if there isn't one
+  function findEscape(s: string, i: number): number {
+    const len = s.length;
+    for (; i < len; i++) {
+      const c = s.charCodeAt(i);
+      if (c < 0x80) {
+        if (asciiKind[c] !== KEEP) {
+          return i;
+        }
+      } else if (isHighSurrogate(c) && isLowSurrogate(s.charCodeAt(i + 1))) {
+        if (isSpecialAstral(s.codePointAt(i) as number)) {
+          return i;
+        }
+        i++;
+      } else if (isSpecial(c)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  // Escapes s, starting from the first character that needs escaping
+  function escape(s: string, start: number): string {
+    const len = s.length;
+    reserve(0, len);
+    let n = 0;
+    for (; n < start; n++) {
+      buffer[n] = s.charCodeAt(n);
+    }
+    for (let i = start; i < len; i++) {
+      const c = s.charCodeAt(i);
+      let escaped: string;
+      if (c < 0x80) {
+        const kind = asciiKind[c];
+        if (kind === KEEP) {
+          buffer[n++] = c;
+          continue;
+        }
+        escaped =
+          kind === ESCAPE_UNLESS_DIGIT_FOLLOWS &&
+          !isDigit(s.charCodeAt(i + 1))
+            ? asciiBeforeNonDigit[c]
+            : ascii[c];
+      } else if (isHighSurrogate(c) && isLowSurrogate(s.charCodeAt(i + 1))) {
+        const codePoint = s.codePointAt(i) as number;
+        if (!isSpecialAstral(codePoint)) {
+          buffer[n++] = c;
+          buffer[n++] = s.charCodeAt(++i);
+          continue;
+        }
+        escaped = escapeNonAscii(codePoint);
+        i++;
+      } else if (!isSpecial(c)) {
+        buffer[n++] = c;
+        continue;
+      } else {
+        escaped = escapeNonAscii(c);
+      }
+      reserve(n, escaped.length + len - i);
+      for (let j = 0; j < escaped.length; j++) {
+        buffer[n++] = escaped.charCodeAt(j);
+      }
+    }
+    return bufferToString(n);
+  }
+
+  const cache = new Map<string, string>();
+  return (s: string): string => {
+    const candidate = s.search(mightNeedEscape);
+    const start = candidate === -1 ? -1 : findEscape(s, candidate);
+    if (start === -1) {
+      return s;
+    }
+    if (s.length > MAX_CACHED_LENGTH) {
+      return escape(s, start);
+    }
+    let escaped = cache.get(s);
+    if (escaped === undefined) {
+      escaped = escape(s, start);
+      if (cache.size >= MAX_CACHE_SIZE) {
+        cache.clear();
+      }
+      cache.set(s, escaped);
+    }
+    return escaped;
+  };
+}
@@ -2,6 +2,7 @@ import { CCError } from "../utils.ts";
 import { Word } from "../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../parse.ts";
 import type { Request, Warnings } from "../parse.ts";
+import { generate } from "../generate.ts";
 
 import { reprStr as pyreprStr } from "./python/python.ts";
 
@@ -261,7 +262,7 @@ export function toGoWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const go = _toGo(requests, warnings);
+  const go = generate(_toGo, requests, warnings);
   return [go, warnings];
 }
 export function toGo(curlCommand: string | string[]): string {
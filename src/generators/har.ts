@@ -2,6 +2,7 @@ import { btoa } from "../utils.ts";
 import { warnIfPartsIgnored } from "../Warnings.ts";
 import { parse, COMMON_SUPPORTED_ARGS } from "../parse.ts";
 import type { Request, RequestUrl, Warnings } from "../parse.ts";
+import { generate } from "../generate.ts";
 import { parseQueryString } from "../Query.ts";
 import type { Request as HARRequest, PostData as PostData } from "har-format";
 
@@ -139,7 +140,7 @@ export function toHarStringWarn(
   const requests = parse(curlCommand, supportedArgs, warnings);
   requests.map((r) => warnIfPartsIgnored(r, warnings, { multipleUrls: true }));
 
-  const har = _toHarString(requests, warnings);
+  const har = generate(_toHarString, requests, warnings);
   return [har, warnings];
 }
 export function toHarString(curlCommand: string | string[]): string {
@@ -2,6 +2,7 @@ import { btoa } from "../utils.ts";
 import { Word } from "../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../parse.ts";
 import type { Request, Warnings } from "../parse.ts";
+import { generate } from "../generate.ts";
 
 export const supportedArgs = new Set([
   ...COMMON_SUPPORTED_ARGS,
@@ -186,7 +187,7 @@ export function toHTTPWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const http = _toHTTP(requests, warnings);
+  const http = generate(_toHTTP, requests, warnings);
   return [http, warnings];
 }
 export function toHTTP(curlCommand: string | string[]): string {
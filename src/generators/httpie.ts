@@ -3,6 +3,8 @@ import { warnIfPartsIgnored } from "../Warnings.ts";
 import { Word, eq, mergeWords } from "../shell/Word.ts";
 import { parse, COMMON_SUPPORTED_ARGS } from "../parse.ts";
 import type { Request, RequestUrl, Warnings } from "../parse.ts";
+import { generate } from "../generate.ts";
+import { checkGenerating } from "../limits.ts";
 import { Headers } from "../Headers.ts";
 import { parseQueryString } from "../Query.ts";
 
@@ -460,6 +462,7 @@ export function _toHttpie(
   warnings: Warnings = [],
 ): string {
   const commands = [];
+  let length = 0;
 
   for (const request of requests) {
     warnIfPartsIgnored(request, warnings, {
@@ -486,7 +489,10 @@ export function _toHttpie(
     }
 
     for (const url of request.urls) {
-      commands.push(requestToHttpie(request, url, warnings));
+      const command = requestToHttpie(request, url, warnings);
+      commands.push(command);
+      length += command.length;
+      checkGenerating(length);
     }
   }
   return commands.join("\n\n");
@@ -497,7 +503,7 @@ export function toHttpieWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const httpie = _toHttpie(requests, warnings);
+  const httpie = generate(_toHttpie, requests, warnings);
   return [httpie, warnings];
 }
 
@@ -1,6 +1,7 @@
 import { joinWords } from "../../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../../parse.ts";
 import type { Request, Warnings } from "../../parse.ts";
+import { generate } from "../../generate.ts";
 
 import { repr } from "./java.ts";
 
@@ -140,7 +141,7 @@ export function toJavaHttpUrlConnectionWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const java = _toJavaHttpUrlConnection(requests, warnings);
+  const java = generate(_toJavaHttpUrlConnection, requests, warnings);
   return [java, warnings];
 }
 
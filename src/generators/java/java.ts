@@ -1,6 +1,9 @@
 import { Word, eq } from "../../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../../parse.ts";
 import type { Request, Warnings } from "../../parse.ts";
+import { generate } from "../../generate.ts";
+import { checkGenerating } from "../../limits.ts";
+import { compileEscaper } from "../escape.ts";
 
 export const supportedArgs = new Set([
   ...COMMON_SUPPORTED_ARGS,
@@ -18,47 +21,34 @@ export const supportedArgs = new Set([
 // https://docs.oracle.com/javase/specs/jls/se7/html/jls-3.html#jls-3.10.6
 // https://docs.oracle.com/javase/specs/jls/se7/html/jls-3.html#jls-3.3
 // Also used for Clojure
-const regexEscape = /"|\\|\p{C}|[^ \P{Z}]/gu;
-const regexDigit = /[0-9]/; // it's 0-7 actually but that would generate confusing code
+const escape = compileEscaper({
+  escapes: {
+    "\\": "\\\\",
+    "\b": "\\b",
+    "\f": "\\f",
+    "\n": "\\n",
+    "\r": "\\r",
+    "\t": "\\t",
+    '"': '\\"',
+  },
+  // it's 0-7 actually but that would generate confusing code
+  escapesUnlessDigitFollows: { "\0": "\\0" },
+  escapeOther(c: string): string {
+    if (c.length === 2) {
+      const first = c.charCodeAt(0);
+      const second = c.charCodeAt(1);
+      return (
+        "\\u" +
+        first.toString(16).padStart(4, "0") +
+        "\\u" +
+        second.toString(16).padStart(4, "0")
+      );
+    }
+    return "\\u" + c.charCodeAt(0).toString(16).padStart(4, "0");
+  },
+});
 export function reprStr(s: string): string {
-  return (
-    '"' +
-    s.replace(regexEscape, (c: string, index: number, string: string) => {
-      switch (c) {
-        case "\\":
-          return "\\\\";
-        case "\b":
-          return "\\b";
-        case "\f":
-          return "\\f";
-        case "\n":
-          return "\\n";
-        case "\r":
-          return "\\r";
-        case "\t":
-          return "\\t";
-        case '"':
-          return '\\"';
-      }
-
-      if (c.length === 2) {
-        const first = c.charCodeAt(0);
-        const second = c.charCodeAt(1);
-        return (
-          "\\u" +
-          first.toString(16).padStart(4, "0") +
-          "\\u" +
-          second.toString(16).padStart(4, "0")
-        );
-      }
-
-      if (c === "\0" && !regexDigit.test(string.charAt(index + 1))) {
-        return "\\0";
-      }
-      return "\\u" + c.charCodeAt(0).toString(16).padStart(4, "0");
-    }) +
-    '"'
-  );
+  return '"' + escape(s) + '"';
 }
 
 export function repr(w: Word, imports: Set<string>): string {
@@ -202,6 +192,7 @@ export function _toJava(requests: Request[], warnings: Warnings = []): string {
 
   if (request.headers.length) {
     for (const [headerName, headerValue] of request.headers) {
+      checkGenerating(javaCode.length);
       if (headerValue === null) {
         continue;
       }
@@ -271,7 +262,7 @@ export function toJavaWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const java = _toJava(requests, warnings);
+  const java = generate(_toJava, requests, warnings);
   return [java, warnings];
 }
 
@@ -1,6 +1,7 @@
 import { Word, eq } from "../../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../../parse.ts";
 import type { Request, Warnings } from "../../parse.ts";
+import { generate } from "../../generate.ts";
 import { parseQueryString } from "../../Query.ts";
 
 import { repr } from "./java.ts";
@@ -248,7 +249,7 @@ export function toJavaOkHttpWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const java = _toJavaOkHttp(requests, warnings);
+  const java = generate(_toJavaOkHttp, requests, warnings);
   return [java, warnings];
 }
 
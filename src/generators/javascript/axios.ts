@@ -2,6 +2,7 @@ import { isInt } from "../../utils.ts";
 import { Word, eq } from "../../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../../parse.ts";
 import type { Request, Warnings } from "../../parse.ts";
+import { generate } from "../../generate.ts";
 import { parseQueryString } from "../../Query.ts";
 
 import {
@@ -387,7 +388,7 @@ export function toNodeAxiosWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const nodeAxios = _toNodeAxios(requests, warnings);
+  const nodeAxios = generate(_toNodeAxios, requests, warnings);
   return [nodeAxios, warnings];
 }
 export function toNodeAxios(curlCommand: string | string[]): string {
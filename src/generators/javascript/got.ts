@@ -1,6 +1,7 @@
 import { Word, eq } from "../../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../../parse.ts";
 import type { Request, Warnings } from "../../parse.ts";
+import { generate } from "../../generate.ts";
 import { parseQueryString } from "../../Query.ts";
 
 import {
@@ -354,7 +355,7 @@ export function toNodeGotWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const nodeGot = _toNodeGot(requests, warnings);
+  const nodeGot = generate(_toNodeGot, requests, warnings);
   return [nodeGot, warnings];
 }
 export function toNodeGot(curlCommand: string | string[]): string {
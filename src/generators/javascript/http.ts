@@ -1,6 +1,7 @@
 import { Word, eq, mergeWords, joinWords } from "../../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../../parse.ts";
 import type { Request, Warnings } from "../../parse.ts";
+import { generate } from "../../generate.ts";
 import { parseQueryString } from "../../Query.ts";
 
 import {
@@ -224,7 +225,7 @@ export function toNodeHttpWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const code = _toNodeHttp(requests, warnings);
+  const code = generate(_toNodeHttp, requests, warnings);
   return [code, warnings];
 }
 export function toNodeHttp(curlCommand: string | string[]): string {
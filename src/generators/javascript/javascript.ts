@@ -2,9 +2,11 @@ import { warnIfPartsIgnored } from "../../Warnings.ts";
 import { Word, eq, joinWords } from "../../shell/Word.ts";
 import { parse, COMMON_SUPPORTED_ARGS } from "../../parse.ts";
 import type { Request, Warnings } from "../../parse.ts";
+import { generate } from "../../generate.ts";
 import { parseQueryString } from "../../Query.ts";
 import type { QueryList, QueryDict } from "../../Query.ts";
 import type { FormParam } from "../../curl/form.ts";
+import { compileEscaper } from "../escape.ts";
 
 import jsescObj from "jsesc";
 
@@ -136,57 +138,51 @@ export function reprStringToStringList(
 }
 
 // Backtick quotes are not supported
-const regexEscape = /'|"|\\|\p{C}|[^ \P{Z}]/gu;
-const regexDigit = /[0-9]/;
-export function esc(s: string, quote: "'" | '"' = "'"): string {
-  return s.replace(regexEscape, (c: string, index: number, string: string) => {
-    switch (c[0]) {
-      // https://mathiasbynens.be/notes/javascript-escapes#single
-      case "\\":
-        return "\\\\";
-      case "\b":
-        return "\\b";
-      case "\f":
-        return "\\f";
-      case "\n":
-        return "\\n";
-      case "\r":
-        return "\\r";
-      case "\t":
-        return "\\t";
-      case "\v":
-        return "\\v";
-      case "'":
-      case '"':
-        return c === quote ? "\\" + c : c;
-      case "\0":
-        // \0 is null but \01 is an octal escape
-        // if we have ['\0', '1', '2']
-        // and we converted it to '\\012', it would be interpreted as octal
-        // so it needs to be converted to '\\x0012'
-        if (!regexDigit.test(string.charAt(index + 1))) {
-          return "\\0";
-        }
-        break;
-    }
-
-    if (c.length === 2) {
-      const first = c.charCodeAt(0);
-      const second = c.charCodeAt(1);
-      return (
-        "\\u" +
-        first.toString(16).padStart(4, "0") +
-        "\\u" +
-        second.toString(16).padStart(4, "0")
-      );
-    }
+// https://mathiasbynens.be/notes/javascript-escapes#single
+const ESCAPES = {
+  "\\": "\\\\",
+  "\b": "\\b",
+  "\f": "\\f",
+  "\n": "\\n",
+  "\r": "\\r",
+  "\t": "\\t",
+  "\v": "\\v",
+};
+// \0 is null but \01 is an octal escape
+// if we have ['\0', '1', '2']
+// and we converted it to '\\012', it would be interpreted as octal
+// so it needs to be converted to '\\x0012'
+const ESCAPES_UNLESS_DIGIT_FOLLOWS = { "\0": "\\0" };
+function escapeOther(c: string): string {
+  if (c.length === 2) {
+    const first = c.charCodeAt(0);
+    const second = c.charCodeAt(1);
+    return (
+      "\\u" +
+      first.toString(16).padStart(4, "0") +
+      "\\u" +
+      second.toString(16).padStart(4, "0")
+    );
+  }
 
-    const hex = c.charCodeAt(0).toString(16);
-    if (hex.length > 2) {
-      return "\\u" + hex.padStart(4, "0");
-    }
-    return "\\x" + hex.padStart(2, "0");
-  });
+  const hex = c.charCodeAt(0).toString(16);
+  if (hex.length > 2) {
+    return "\\u" + hex.padStart(4, "0");
+  }
+  return "\\x" + hex.padStart(2, "0");
+}
+const escapeSingle = compileEscaper({
+  escapes: { ...ESCAPES, "'": "\\'" },
+  escapesUnlessDigitFollows: ESCAPES_UNLESS_DIGIT_FOLLOWS,
+  escapeOther,
+});
+const escapeDouble = compileEscaper({
+  escapes: { ...ESCAPES, '"': '\\"' },
+  escapesUnlessDigitFollows: ESCAPES_UNLESS_DIGIT_FOLLOWS,
+  escapeOther,
+});
+export function esc(s: string, quote: "'" | '"' = "'"): string {
+  return quote === "'" ? escapeSingle(s) : escapeDouble(s);
 }
 
 export function reprStr(s: string, quote?: "'" | '"'): string {
@@ -802,7 +798,7 @@ export function toJavaScriptWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, javaScriptSupportedArgs, warnings);
-  return [_toJavaScript(requests, warnings), warnings];
+  return [generate(_toJavaScript, requests, warnings), warnings];
 }
 export function toJavaScript(curlCommand: string | string[]): string {
   const [result] = toJavaScriptWarn(curlCommand);
@@ -814,7 +810,7 @@ export function toNodeWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, nodeSupportedArgs, warnings);
-  return [_toNode(requests, warnings), warnings];
+  return [generate(_toNode, requests, warnings), warnings];
 }
 export function toNode(curlCommand: string | string[]): string {
   return toNodeWarn(curlCommand)[0];
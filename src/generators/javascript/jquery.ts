@@ -1,6 +1,7 @@
 import { Word, eq } from "../../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../../parse.ts";
 import type { Request, Warnings } from "../../parse.ts";
+import { generate } from "../../generate.ts";
 import { parseQueryString } from "../../Query.ts";
 import type { Query } from "../../Query.ts";
 import type { FormParam } from "../../curl/form.ts";
@@ -352,7 +353,7 @@ export function toJavaScriptJqueryWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const jquery = _toJavaScriptJquery(requests, warnings);
+  const jquery = generate(_toJavaScriptJquery, requests, warnings);
   return [jquery, warnings];
 }
 export function toJavaScriptJquery(curlCommand: string | string[]): string {
@@ -2,6 +2,7 @@ import { warnIfPartsIgnored } from "../../Warnings.ts";
 import { Word, eq, joinWords } from "../../shell/Word.ts";
 import { parse, COMMON_SUPPORTED_ARGS } from "../../parse.ts";
 import type { Request, Warnings } from "../../parse.ts";
+import { generate } from "../../generate.ts";
 import { parseQueryString } from "../../Query.ts";
 
 import {
@@ -308,7 +309,7 @@ export function toNodeKyWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const code = _toNodeKy(requests, warnings);
+  const code = generate(_toNodeKy, requests, warnings);
   return [code, warnings];
 }
 export function toNodeKy(curlCommand: string | string[]): string {
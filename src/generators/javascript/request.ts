@@ -2,6 +2,7 @@ import { warnIfPartsIgnored } from "../../Warnings.ts";
 import { Word, eq, mergeWords } from "../../shell/Word.ts";
 import { parse, COMMON_SUPPORTED_ARGS } from "../../parse.ts";
 import type { Request, Warnings } from "../../parse.ts";
+import { generate } from "../../generate.ts";
 
 import { repr, type JSImports, reprImportsRequire } from "./javascript.ts";
 
@@ -144,7 +145,7 @@ export function toNodeRequestWarn(
   const requests = parse(curlCommand, supportedArgs, warnings);
   warnings.unshift(["node-request", "the request package is deprecated"]);
 
-  const nodeRequests = _toNodeRequest(requests, warnings);
+  const nodeRequests = generate(_toNodeRequest, requests, warnings);
   return [nodeRequests, warnings];
 }
 export function toNodeRequest(curlCommand: string | string[]): string {
@@ -1,6 +1,7 @@
 import { Word, eq } from "../../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../../parse.ts";
 import type { Request, Warnings } from "../../parse.ts";
+import { generate } from "../../generate.ts";
 import { parseQueryString } from "../../Query.ts";
 import type { Query } from "../../Query.ts";
 import type { FormParam } from "../../curl/form.ts";
@@ -365,7 +366,7 @@ export function toNodeSuperAgentWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const code = _toNodeSuperAgent(requests, warnings);
+  const code = generate(_toNodeSuperAgent, requests, warnings);
   return [code, warnings];
 }
 export function toNodeSuperAgent(curlCommand: string | string[]): string {
@@ -1,6 +1,7 @@
 import { Word, eq } from "../../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../../parse.ts";
 import type { Request, Warnings } from "../../parse.ts";
+import { generate } from "../../generate.ts";
 import { parseQueryString } from "../../Query.ts";
 
 import {
@@ -184,7 +185,7 @@ export function toJavaScriptXHRWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const code = _toJavaScriptXHR(requests, warnings);
+  const code = generate(_toJavaScriptXHR, requests, warnings);
   return [code, warnings];
 }
 export function toJavaScriptXHR(curlCommand: string | string[]): string {
@@ -1,5 +1,6 @@
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../parse.ts";
 import type { Request, Warnings } from "../parse.ts";
+import { generate } from "../generate.ts";
 import type { AuthType } from "../Request.ts";
 import { parseQueryString } from "../Query.ts";
 
@@ -260,7 +261,7 @@ export function toJsonObjectWarn(
   warnings: Warnings = [],
 ): [JSONOutput, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const json = _toJsonObject(requests, warnings);
+  const json = generate(_toJsonObject, requests, warnings);
   return [json, warnings];
 }
 export function toJsonObject(curlCommand: string | string[]): JSONOutput {
@@ -285,7 +286,7 @@ export function toJsonStringWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const json = _toJsonString(requests, warnings);
+  const json = generate(_toJsonString, requests, warnings);
   return [json, warnings];
 }
 export function toJsonString(curlCommand: string | string[]): string {
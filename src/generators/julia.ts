@@ -2,6 +2,7 @@ import { CCError } from "../utils.ts";
 import { Word, eq, mergeWords } from "../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../parse.ts";
 import type { Request, Warnings } from "../parse.ts";
+import { generate } from "../generate.ts";
 import { parseQueryString } from "../Query.ts";
 
 import {
@@ -390,7 +391,7 @@ export function toJuliaWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const code = _toJulia(requests, warnings);
+  const code = generate(_toJulia, requests, warnings);
   return [code, warnings];
 }
 export function toJulia(curlCommand: string | string[]): string {
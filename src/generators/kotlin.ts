@@ -1,6 +1,7 @@
 import { Word, eq } from "../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../parse.ts";
 import type { Request, Warnings } from "../parse.ts";
+import { generate } from "../generate.ts";
 import { parseQueryString } from "../Query.ts";
 
 export const supportedArgs = new Set([
@@ -346,7 +347,7 @@ export function toKotlinWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const kotlin = _toKotlin(requests, warnings);
+  const kotlin = generate(_toKotlin, requests, warnings);
   return [kotlin, warnings];
 }
 
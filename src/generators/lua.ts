@@ -1,6 +1,7 @@
 import { Word, eq, joinWords } from "../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../parse.ts";
 import type { Request, Warnings } from "../parse.ts";
+import { generate } from "../generate.ts";
 
 import { reprStr as pyreprStr } from "./python/python.ts";
 
@@ -201,7 +202,7 @@ export function toLuaWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const lua = _toLua(requests, warnings);
+  const lua = generate(_toLua, requests, warnings);
   return [lua, warnings];
 }
 export function toLua(curlCommand: string | string[]): string {
@@ -1,5 +1,6 @@
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../../parse.ts";
 import type { Request, Warnings } from "../../parse.ts";
+import { generate } from "../../generate.ts";
 
 import { toWebServices } from "./webservices.ts";
 import { toHTTPInterface } from "./httpinterface.ts";
@@ -31,7 +32,7 @@ export function toMATLABWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const matlab = _toMATLAB(requests, warnings);
+  const matlab = generate(_toMATLAB, requests, warnings);
   return [matlab, warnings];
 }
 export function toMATLAB(curlCommand: string | string[]): string {
@@ -1,6 +1,7 @@
 import { Word, eq, mergeWords } from "../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../parse.ts";
 import type { Request, Warnings } from "../parse.ts";
+import { generate } from "../generate.ts";
 import type { DataParam } from "../Request.ts";
 
 export const supportedArgs = new Set([
@@ -289,7 +290,7 @@ export function toObjectiveCWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const code = _toObjectiveC(requests, warnings);
+  const code = generate(_toObjectiveC, requests, warnings);
   return [code, warnings];
 }
 export function toObjectiveC(curlCommand: string | string[]): string {
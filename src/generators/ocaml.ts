@@ -1,6 +1,7 @@
 import { Word } from "../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../parse.ts";
 import type { Request, Warnings } from "../parse.ts";
+import { generate } from "../generate.ts";
 
 export const supportedArgs = new Set([...COMMON_SUPPORTED_ARGS]);
 
@@ -160,7 +161,7 @@ export function toOCamlWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const code = _toOCaml(requests, warnings);
+  const code = generate(_toOCaml, requests, warnings);
   return [code, warnings];
 }
 export function toOCaml(curlCommand: string | string[]): string {
@@ -1,6 +1,7 @@
 import { Word, eq, mergeWords } from "../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../parse.ts";
 import type { Request, Warnings } from "../parse.ts";
+import { generate } from "../generate.ts";
 
 export const supportedArgs = new Set([
   ...COMMON_SUPPORTED_ARGS,
@@ -229,7 +230,7 @@ export function toPerlWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const code = _toPerl(requests, warnings);
+  const code = generate(_toPerl, requests, warnings);
   return [code, warnings];
 }
 export function toPerl(curlCommand: string | string[]): string {
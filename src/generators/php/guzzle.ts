@@ -1,6 +1,7 @@
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../../parse.ts";
 import { eq } from "../../shell/Word.ts";
 import type { Request, Warnings } from "../../parse.ts";
+import { generate } from "../../generate.ts";
 import { parseQueryString } from "../../Query.ts";
 
 import { reprStr, repr } from "./php.ts";
@@ -359,7 +360,7 @@ export function toPhpGuzzleWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const guzzle = _toPhpGuzzle(requests, warnings);
+  const guzzle = generate(_toPhpGuzzle, requests, warnings);
   return [guzzle, warnings];
 }
 
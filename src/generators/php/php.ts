@@ -1,6 +1,7 @@
 import { Word, eq, joinWords } from "../../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../../parse.ts";
 import type { Request, Warnings } from "../../parse.ts";
+import { generate } from "../../generate.ts";
 
 export const supportedArgs = new Set([
   ...COMMON_SUPPORTED_ARGS,
@@ -231,7 +232,7 @@ export function toPhpWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const php = _toPhp(requests, warnings);
+  const php = generate(_toPhp, requests, warnings);
   return [php, warnings];
 }
 export function toPhp(curlCommand: string | string[]): string {
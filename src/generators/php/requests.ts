@@ -1,5 +1,6 @@
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../../parse.ts";
 import type { Request, Warnings } from "../../parse.ts";
+import { generate } from "../../generate.ts";
 import { parseQueryString } from "../../Query.ts";
 
 import { repr } from "./php.ts";
@@ -95,7 +96,7 @@ export function toPhpRequestsWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const php = _toPhpRequests(requests, warnings);
+  const php = generate(_toPhpRequests, requests, warnings);
   return [php, warnings];
 }
 export function toPhpRequests(curlCommand: string | string[]): string {
@@ -2,6 +2,8 @@ import { parse, COMMON_SUPPORTED_ARGS } from "../parse.ts";
 import { warnIfPartsIgnored } from "../Warnings.ts";
 import { Word, eq } from "../shell/Word.ts";
 import type { Request, RequestUrl, Warnings } from "../parse.ts";
+import { generate } from "../generate.ts";
+import { checkGenerating } from "../limits.ts";
 import { parseQueryString } from "../Query.ts";
 
 // https://learn.microsoft.com/en-us/powershell/module/microsoft.powershell.core/about/about_quoting_rules
@@ -360,6 +362,7 @@ function toPowershell(
   warnings: Warnings = [],
 ): string {
   const commands = [];
+  let length = 0;
 
   for (const request of requests) {
     warnIfPartsIgnored(request, warnings, {
@@ -385,7 +388,10 @@ function toPowershell(
     }
 
     for (const url of request.urls) {
-      commands.push(requestToPowershell(request, url, restMethod, warnings));
+      const command = requestToPowershell(request, url, restMethod, warnings);
+      commands.push(command);
+      length += command.length;
+      checkGenerating(length);
     }
   }
   return commands.join("\n\n");
@@ -403,7 +409,7 @@ export function toPowershellWebRequestWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const code = _toPowershellWebRequest(requests, warnings);
+  const code = generate(_toPowershellWebRequest, requests, warnings);
   return [code, warnings];
 }
 export function toPowershellWebRequest(curlCommand: string | string[]): string {
@@ -422,7 +428,7 @@ export function toPowershellRestMethodWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const code = _toPowershellRestMethod(requests, warnings);
+  const code = generate(_toPowershellRestMethod, requests, warnings);
   return [code, warnings];
 }
 export function toPowershellRestMethod(curlCommand: string | string[]): string {
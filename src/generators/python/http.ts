@@ -1,6 +1,7 @@
 import { Word, eq, mergeWords } from "../../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../../parse.ts";
 import type { Request, Warnings } from "../../parse.ts";
+import { generate } from "../../generate.ts";
 
 import {
   repr,
@@ -159,7 +160,7 @@ export function toPythonHttpWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const code = _toPythonHttp(requests, warnings);
+  const code = generate(_toPythonHttp, requests, warnings);
   return [code, warnings];
 }
 export function toPythonHttp(curlCommand: string | string[]): string {
@@ -2,9 +2,12 @@ import { CCError, has, UTF8encoder } from "../../utils.ts";
 import { Word, eq } from "../../shell/Word.ts";
 import { parse, COMMON_SUPPORTED_ARGS } from "../../parse.ts";
 import type { Request, Warnings } from "../../parse.ts";
+import { generate } from "../../generate.ts";
+import { checkGenerating } from "../../limits.ts";
 import { Headers } from "../../Headers.ts";
-import { wordDecodeURIComponent, percentEncode } from "../../Query.ts";
+import { decodeQueryComponent, percentEncode } from "../../Query.ts";
 import type { DataParam } from "../../Request.ts";
+import { compileEscaper } from "../escape.ts";
 
 import {
   parse as jsonParseLossless,
@@ -77,8 +80,34 @@ export const supportedArgs = new Set([
 // https://www.unicode.org/reports/tr44/#GC_Values_Table
 // https://unicode.org/Public/UNIDATA/UnicodeData.txt
 // https://en.wikipedia.org/wiki/Plane_(Unicode)#Overview
-const regexSingleEscape = /'|\\|\p{C}|[^ \P{Z}]/gu;
-const regexDoubleEscape = /"|\\|\p{C}|[^ \P{Z}]/gu;
+const ESCAPES = {
+  "\x07": "\\a",
+  "\b": "\\b",
+  "\f": "\\f",
+  "\n": "\\n",
+  "\r": "\\r",
+  "\t": "\\t",
+  "\v": "\\v",
+  "\\": "\\\\",
+};
+function escapeOther(c: string): string {
+  const hex = (c.codePointAt(0) as number).toString(16);
+  if (hex.length <= 2) {
+    return "\\x" + hex.padStart(2, "0");
+  }
+  if (hex.length <= 4) {
+    return "\\u" + hex.padStart(4, "0");
+  }
+  return "\\U" + hex.padStart(8, "0");
+}
+const escapeSingle = compileEscaper({
+  escapes: { ...ESCAPES, "'": "\\'" },
+  escapeOther,
+});
+const escapeDouble = compileEscaper({
+  escapes: { ...ESCAPES, '"': '\\"' },
+  escapeOther,
+});
 
 // Also used for Go and R
 export function reprStr(s: string, quote?: '"' | "'"): string {
@@ -88,44 +117,8 @@ export function reprStr(s: string, quote?: '"' | "'"): string {
       quote = '"';
     }
   }
-  const regex = quote === "'" ? regexSingleEscape : regexDoubleEscape;
-
-  return (
-    quote +
-    s.replace(regex, (c: string): string => {
-      switch (c) {
-        case "\x07":
-          return "\\a";
-        case "\b":
-          return "\\b";
-        case "\f":
-          return "\\f";
-        case "\n":
-          return "\\n";
-        case "\r":
-          return "\\r";
-        case "\t":
-          return "\\t";
-        case "\v":
-          return "\\v";
-        case "\\":
-          return "\\\\";
-        case "'":
-          return "\\'";
-        case '"':
-          return '\\"';
-      }
-      const hex = (c.codePointAt(0) as number).toString(16);
-      if (hex.length <= 2) {
-        return "\\x" + hex.padStart(2, "0");
-      }
-      if (hex.length <= 4) {
-        return "\\u" + hex.padStart(4, "0");
-      }
-      return "\\U" + hex.padStart(8, "0");
-    }) +
-    quote
-  );
+  const escape = quote === "'" ? escapeSingle : escapeDouble;
+  return quote + escape(s) + quote;
 }
 
 // TODO: use this if string contains unmatched surrogates?
@@ -505,6 +498,7 @@ export function formatHeaders(
   // TODO: what if there are repeat headers
   let headerDict = "headers = {\n";
   for (const [headerName, headerValue] of headers) {
+    checkGenerating(headerDict.length);
     if (headerValue === null) {
       continue;
     }
@@ -530,28 +524,6 @@ export function formatHeaders(
   return headerDict;
 }
 
-function decodePercentEncoding(s: Word): Word | null {
-  let decoded;
-  try {
-    // https://url.spec.whatwg.org/#urlencoded-parsing recommends replacing + with space
-    // before decoding.
-    decoded = wordDecodeURIComponent(s.replace(/\+/g, " "));
-  } catch (e) {
-    if (e instanceof URIError) {
-      // String contains invalid percent encoded characters
-      return null;
-    }
-    throw e;
-  }
-  // If the query string doesn't round-trip, we cannot properly convert it.
-  const roundTripKey = percentEncode(decoded);
-  // If the original data used %20 instead of + (what requests will send), that's close enough
-  if (!eq(roundTripKey, s) && !eq(roundTripKey.replace(/%20/g, "+"), s)) {
-    return null;
-  }
-  return decoded;
-}
-
 function dataEntriesToDict(
   dataEntries: Array<[string, string]>,
 ): { [key: string]: Array<string> } | null {
@@ -668,11 +640,11 @@ function formatDataAsEntries(
         const [first, ...rest] = newEntries;
         if (first.includes("=") && prevEntry[1] === null) {
           const [key, val] = first.split("=", 2);
-          const decodedKey = decodePercentEncoding(key);
+          const decodedKey = decodeQueryComponent(key);
           if (decodedKey === null) {
             return null;
           }
-          const decodedVal = decodePercentEncoding(val);
+          const decodedVal = decodeQueryComponent(val);
           if (decodedVal === null) {
             return null;
           }
@@ -691,7 +663,7 @@ function formatDataAsEntries(
           }
         } else if (!first.includes("=") && prevEntry[1] !== null) {
           if (first.toBool()) {
-            const decodedVal = decodePercentEncoding(first);
+            const decodedVal = decodeQueryComponent(first);
             if (decodedVal === null) {
               return null;
             }
@@ -720,11 +692,11 @@ function formatDataAsEntries(
           return null;
         }
         const [key, val] = entry.split("=", 2);
-        const decodedKey = decodePercentEncoding(key);
+        const decodedKey = decodeQueryComponent(key);
         if (decodedKey === null) {
           return null;
         }
-        const decodedVal = decodePercentEncoding(val);
+        const decodedVal = decodeQueryComponent(val);
         if (decodedVal === null) {
           return null;
         }
@@ -1874,6 +1846,7 @@ export function _toPython(
   warnings: Warnings = [],
 ): string {
   const code = [];
+  let length = 0;
   let joinTwoLines = false;
   const imports = new Set<string>();
   const thirdPartyImports = new Set<string>();
@@ -1885,6 +1858,8 @@ export function _toPython(
       thirdPartyImports,
     );
     code.push(requestCode);
+    length += requestCode.length;
+    checkGenerating(length);
 
     // If one of the requests defines variables (or its URL is very long),
     // separate all the configs with two empty lines.
@@ -1925,7 +1900,7 @@ export function toPythonWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const python = _toPython(requests, warnings);
+  const python = generate(_toPython, requests, warnings);
   return [python, warnings];
 }
 
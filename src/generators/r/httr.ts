@@ -1,6 +1,7 @@
 import { Word, eq } from "../../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../../parse.ts";
 import type { Request, Warnings } from "../../parse.ts";
+import { generate } from "../../generate.ts";
 import { wordDecodeURIComponent, parseQueryString } from "../../Query.ts";
 import type { QueryList } from "../../Query.ts";
 
@@ -320,7 +321,7 @@ export function toRWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const rHttr = _toR(requests, warnings);
+  const rHttr = generate(_toR, requests, warnings);
   return [rHttr, warnings];
 }
 export function toR(curlCommand: string | string[]): string {
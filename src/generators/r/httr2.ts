@@ -1,6 +1,7 @@
 import { Word, eq } from "../../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../../parse.ts";
 import type { Request, Warnings } from "../../parse.ts";
+import { generate } from "../../generate.ts";
 import { wordDecodeURIComponent, parseQueryString } from "../../Query.ts";
 
 import { reprBacktick, reprStr, repr, toNumeric } from "./httr.ts";
@@ -260,7 +261,7 @@ export function toRHttr2Warn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const rHttr = _toRHttr2(requests, warnings);
+  const rHttr = generate(_toRHttr2, requests, warnings);
   return [rHttr, warnings];
 }
 export function toRHttr2(curlCommand: string | string[]): string {
@@ -2,6 +2,7 @@ import { warnIfPartsIgnored } from "../../Warnings.ts";
 import { Word, eq } from "../../shell/Word.ts";
 import { parse, COMMON_SUPPORTED_ARGS } from "../../parse.ts";
 import type { Request, Warnings } from "../../parse.ts";
+import { generate } from "../../generate.ts";
 import { parseQueryString } from "../../Query.ts";
 import { repr, reprSymbol, objToRuby, queryToRubyDict } from "./ruby.ts";
 
@@ -342,7 +343,7 @@ export function toRubyHttpartyWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const ruby = _toRubyHttparty(requests, warnings);
+  const ruby = generate(_toRubyHttparty, requests, warnings);
   return [ruby, warnings];
 }
 
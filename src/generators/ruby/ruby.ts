@@ -3,6 +3,7 @@ import { warnIfPartsIgnored } from "../../Warnings.ts";
 import { Word, eq } from "../../shell/Word.ts";
 import { parse, COMMON_SUPPORTED_ARGS } from "../../parse.ts";
 import type { Request, Warnings } from "../../parse.ts";
+import { generate } from "../../generate.ts";
 import { parseQueryString, type QueryDict } from "../../Query.ts";
 
 // https://ruby-doc.org/stdlib-2.7.0/libdoc/net/http/rdoc/Net/HTTP.html
@@ -555,7 +556,7 @@ export function toRubyWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const ruby = _toRuby(requests, warnings);
+  const ruby = generate(_toRuby, requests, warnings);
   return [ruby, warnings];
 }
 
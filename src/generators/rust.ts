@@ -1,6 +1,7 @@
 import { Word, eq } from "../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../parse.ts";
 import type { Request, Warnings } from "../parse.ts";
+import { generate } from "../generate.ts";
 
 export const supportedArgs = new Set([
   ...COMMON_SUPPORTED_ARGS,
@@ -235,7 +236,7 @@ export function toRustWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const rust = _toRust(requests, warnings);
+  const rust = generate(_toRust, requests, warnings);
   return [rust, warnings];
 }
 export function toRust(curlCommand: string | string[]): string {
@@ -1,6 +1,7 @@
 import { Word, eq, mergeWords } from "../shell/Word.ts";
 import { parse, getFirst, COMMON_SUPPORTED_ARGS } from "../parse.ts";
 import type { Request, Warnings } from "../parse.ts";
+import { generate } from "../generate.ts";
 
 export const supportedArgs = new Set([...COMMON_SUPPORTED_ARGS, "max-time"]);
 
@@ -227,7 +228,7 @@ export function toSwiftWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const code = _toSwift(requests, warnings);
+  const code = generate(_toSwift, requests, warnings);
   return [code, warnings];
 }
 export function toSwift(curlCommand: string | string[]): string {
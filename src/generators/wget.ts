@@ -2,6 +2,7 @@ import { warnIfPartsIgnored } from "../Warnings.ts";
 import { Word, eq, mergeWords } from "../shell/Word.ts";
 import { parse, COMMON_SUPPORTED_ARGS } from "../parse.ts";
 import type { Request, Warnings } from "../parse.ts";
+import { generate } from "../generate.ts";
 
 export const supportedArgs = new Set([
   ...COMMON_SUPPORTED_ARGS,
@@ -524,7 +525,7 @@ export function toWgetWarn(
   warnings: Warnings = [],
 ): [string, Warnings] {
   const requests = parse(curlCommand, supportedArgs, warnings);
-  const wget = _toWget(requests, warnings);
+  const wget = generate(_toWget, requests, warnings);
   return [wget, warnings];
 }
 
@@ -85,5 +85,28 @@ export { toNode as toNodeFetch } from "./generators/javascript/javascript.ts";
 export { toJavaScriptWarn as toBrowserWarn } from "./generators/javascript/javascript.ts";
 export { toNodeWarn as toNodeFetchWarn } from "./generators/javascript/javascript.ts";
 
+export { convertMany } from "./convert.ts";
+export { TokenizeSession } from "./shell/tokenizer.ts";
+export type { ConvertResult } from "./convert.ts";
+export {
+  createConverterPool,
+  ConverterPool,
+  ConverterPoolError,
+} from "./pool.ts";
+export type {
+  ConverterPoolOptions,
+  ConverterPoolErrorReason,
+} from "./pool.ts";
+export { enableCache, disableCache, cacheStats } from "./cache.ts";
+export type { CacheStats } from "./cache.ts";
+export {
+  setTimingsHook,
+  collectTimings,
+  summarizeTimings,
+} from "./timings.ts";
+export type { Phase, PhaseTiming, TimingsHook } from "./timings.ts";
+export { withLimits, LimitError } from "./limits.ts";
+export type { Limit, Limits } from "./limits.ts";
+
 export { CCError } from "./utils.ts";
 export type { Warnings } from "./Warnings.ts";
@@ -0,0 +1,319 @@
+// Maps --language names to generators.
+//
+// Generators are loaded with import() on first use so that a process that only
+// converts to one language doesn't have to load (and compile) the other ~40
+// generators and everything they depend on.
+
+import { CCError, has } from "./utils.ts";
+import type { Request } from "./Request.ts";
+import type { Warnings } from "./Warnings.ts";
+
+export type Generator = (request: Request[], warnings?: Warnings) => string;
+export type WarnGenerator = (
+  curlCommand: string | string[],
+  warnings?: Warnings,
+) => [string, Warnings];
+export type LanguageModule = [Generator, WarnGenerator, Set<string>];
+
+// sets a default in case --language isn't passed
+export const defaultLanguage = "python";
+
+const ansible = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/ansible.ts");
+  return [m._toAnsible, m.toAnsibleWarn, m.supportedArgs];
+};
+const c = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/c.ts");
+  return [m._toC, m.toCWarn, m.supportedArgs];
+};
+const cfml = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/cfml.ts");
+  return [m._toCFML, m.toCFMLWarn, m.supportedArgs];
+};
+const clojure = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/clojure.ts");
+  return [m._toClojure, m.toClojureWarn, m.supportedArgs];
+};
+const csharp = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/csharp.ts");
+  return [m._toCSharp, m.toCSharpWarn, m.supportedArgs];
+};
+const dart = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/dart.ts");
+  return [m._toDart, m.toDartWarn, m.supportedArgs];
+};
+const elixir = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/elixir.ts");
+  return [m._toElixir, m.toElixirWarn, m.supportedArgs];
+};
+const go = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/go.ts");
+  return [m._toGo, m.toGoWarn, m.supportedArgs];
+};
+const harString = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/har.ts");
+  return [m._toHarString, m.toHarStringWarn, m.supportedArgs];
+};
+const http = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/http.ts");
+  return [m._toHTTP, m.toHTTPWarn, m.supportedArgs];
+};
+const httpie = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/httpie.ts");
+  return [m._toHttpie, m.toHttpieWarn, m.supportedArgs];
+};
+const java = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/java/java.ts");
+  return [m._toJava, m.toJavaWarn, m.supportedArgs];
+};
+const javaHttpUrlConnection = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/java/httpurlconnection.ts");
+  return [
+    m._toJavaHttpUrlConnection,
+    m.toJavaHttpUrlConnectionWarn,
+    m.supportedArgs,
+  ];
+};
+const javaJsoup = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/java/jsoup.ts");
+  return [m._toJavaJsoup, m.toJavaJsoupWarn, m.supportedArgs];
+};
+const javaOkHttp = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/java/okhttp.ts");
+  return [m._toJavaOkHttp, m.toJavaOkHttpWarn, m.supportedArgs];
+};
+const javaScript = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/javascript/javascript.ts");
+  return [m._toJavaScript, m.toJavaScriptWarn, m.javaScriptSupportedArgs];
+};
+const javaScriptJquery = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/javascript/jquery.ts");
+  return [m._toJavaScriptJquery, m.toJavaScriptJqueryWarn, m.supportedArgs];
+};
+const javaScriptXHR = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/javascript/xhr.ts");
+  return [m._toJavaScriptXHR, m.toJavaScriptXHRWarn, m.supportedArgs];
+};
+const jsonString = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/json.ts");
+  return [m._toJsonString, m.toJsonStringWarn, m.supportedArgs];
+};
+const julia = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/julia.ts");
+  return [m._toJulia, m.toJuliaWarn, m.supportedArgs];
+};
+const kotlin = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/kotlin.ts");
+  return [m._toKotlin, m.toKotlinWarn, m.supportedArgs];
+};
+const lua = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/lua.ts");
+  return [m._toLua, m.toLuaWarn, m.supportedArgs];
+};
+const matlab = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/matlab/matlab.ts");
+  return [m._toMATLAB, m.toMATLABWarn, m.supportedArgs];
+};
+const node = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/javascript/javascript.ts");
+  return [m._toNode, m.toNodeWarn, m.nodeSupportedArgs];
+};
+const nodeAxios = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/javascript/axios.ts");
+  return [m._toNodeAxios, m.toNodeAxiosWarn, m.supportedArgs];
+};
+const nodeGot = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/javascript/got.ts");
+  return [m._toNodeGot, m.toNodeGotWarn, m.supportedArgs];
+};
+const nodeHttp = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/javascript/http.ts");
+  return [m._toNodeHttp, m.toNodeHttpWarn, m.supportedArgs];
+};
+const nodeKy = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/javascript/ky.ts");
+  return [m._toNodeKy, m.toNodeKyWarn, m.supportedArgs];
+};
+const nodeRequest = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/javascript/request.ts");
+  return [m._toNodeRequest, m.toNodeRequestWarn, m.supportedArgs];
+};
+const nodeSuperAgent = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/javascript/superagent.ts");
+  return [m._toNodeSuperAgent, m.toNodeSuperAgentWarn, m.supportedArgs];
+};
+const objectiveC = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/objectivec.ts");
+  return [m._toObjectiveC, m.toObjectiveCWarn, m.supportedArgs];
+};
+const ocaml = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/ocaml.ts");
+  return [m._toOCaml, m.toOCamlWarn, m.supportedArgs];
+};
+const perl = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/perl.ts");
+  return [m._toPerl, m.toPerlWarn, m.supportedArgs];
+};
+const php = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/php/php.ts");
+  return [m._toPhp, m.toPhpWarn, m.supportedArgs];
+};
+const phpGuzzle = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/php/guzzle.ts");
+  return [m._toPhpGuzzle, m.toPhpGuzzleWarn, m.supportedArgs];
+};
+const phpRequests = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/php/requests.ts");
+  return [m._toPhpRequests, m.toPhpRequestsWarn, m.supportedArgs];
+};
+const powershellRestMethod = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/powershell.ts");
+  return [
+    m._toPowershellRestMethod,
+    m.toPowershellRestMethodWarn,
+    m.supportedArgs,
+  ];
+};
+const powershellWebRequest = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/powershell.ts");
+  return [
+    m._toPowershellWebRequest,
+    m.toPowershellWebRequestWarn,
+    m.supportedArgs,
+  ];
+};
+const python = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/python/python.ts");
+  return [m._toPython, m.toPythonWarn, m.supportedArgs];
+};
+const pythonHttp = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/python/http.ts");
+  return [m._toPythonHttp, m.toPythonHttpWarn, m.supportedArgs];
+};
+const r = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/r/httr.ts");
+  return [m._toR, m.toRWarn, m.supportedArgs];
+};
+const rHttr2 = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/r/httr2.ts");
+  return [m._toRHttr2, m.toRHttr2Warn, m.supportedArgs];
+};
+const ruby = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/ruby/ruby.ts");
+  return [m._toRuby, m.toRubyWarn, m.supportedArgs];
+};
+const rubyHttparty = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/ruby/httparty.ts");
+  return [m._toRubyHttparty, m.toRubyHttpartyWarn, m.supportedArgs];
+};
+const rust = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/rust.ts");
+  return [m._toRust, m.toRustWarn, m.supportedArgs];
+};
+const swift = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/swift.ts");
+  return [m._toSwift, m.toSwiftWarn, m.supportedArgs];
+};
+const wget = async (): Promise<LanguageModule> => {
+  const m = await import("./generators/wget.ts");
+  return [m._toWget, m.toWgetWarn, m.supportedArgs];
+};
+
+// Maps options for --language to functions that load the generator
+// NOTE: make sure to update this when adding language support
+export const languages: { [key: string]: () => Promise<LanguageModule> } = {
+  ansible,
+  c,
+  cfml,
+  clojure,
+  csharp,
+  "c#": csharp, // undocumented alias
+  browser: javaScript, // for backwards compatibility, undocumented
+  dart,
+  elixir,
+  go,
+  golang: go, // undocumented alias
+  har: harString,
+  http,
+  httpie,
+  java,
+  "java-httpurlconnection": javaHttpUrlConnection,
+  "java-jsoup": javaJsoup,
+  "java-okhttp": javaOkHttp,
+  javascript: javaScript,
+  "javascript-axios": nodeAxios, // undocumented alias
+  "javascript-fetch": javaScript, // undocumented alias
+  "javascript-got": nodeGot, // undocumented alias
+  "javascript-ky": nodeKy, // undocumented alias
+  "javascript-jquery": javaScriptJquery,
+  "javascript-request": nodeRequest, // undocumented alias
+  "javascript-superagent": nodeSuperAgent, // undocumented alias
+  "javascript-xhr": javaScriptXHR,
+  json: jsonString,
+  julia,
+  kotlin,
+  lua,
+  matlab,
+  node,
+  "node-axios": nodeAxios,
+  "node-fetch": node, // undocumented alias
+  "node-got": nodeGot,
+  "node-http": nodeHttp, // undocumented alias
+  "node-ky": nodeKy,
+  "node-jquery": javaScriptJquery, // undocumented alias
+  "node-request": nodeRequest,
+  "node-superagent": nodeSuperAgent,
+  "node-xhr": javaScriptXHR, // undocumented alias
+  nodejs: node, // undocumented alias
+  "nodejs-axios": nodeAxios, // undocumented alias
+  "nodejs-fetch": node, // undocumented alias
+  "nodejs-got": nodeGot, // undocumented alias
+  "nodejs-http": nodeHttp, // undocumented alias
+  "nodejs-ky": nodeKy, // undocumented alias
+  "nodejs-jquery": javaScriptJquery, // undocumented alias
+  "nodejs-request": nodeRequest, // undocumented alias
+  "nodejs-superagent": nodeSuperAgent, // undocumented alias
+  "nodejs-xhr": javaScriptXHR, // undocumented alias
+  objc: objectiveC,
+  objectivec: objectiveC, // undocumented alias
+  "objective-c": objectiveC, // undocumented alias
+  ocaml,
+  perl,
+  php,
+  "php-curl": php, // undocumented alias
+  "php-guzzle": phpGuzzle,
+  "php-requests": phpRequests,
+  powershell: powershellRestMethod,
+  "powershell-restmethod": powershellRestMethod, // undocumented alias
+  "powershell-webrequest": powershellWebRequest,
+  python,
+  "python-http": pythonHttp,
+  "python-httpclient": pythonHttp, // undocumented alias
+  r,
+  "r-httr": r, // undocumented alias
+  "r-httr2": rHttr2,
+  ruby,
+  "ruby-httparty": rubyHttparty,
+  rust,
+  swift,
+  wget,
+};
+
+export function isLanguage(language: string): boolean {
+  return has(languages, language);
+}
+
+export async function loadLanguage(
+  language: string,
+): Promise<LanguageModule> {
+  if (!isLanguage(language)) {
+    throw new CCError(
+      "unexpected language: " +
+        JSON.stringify(language) +
+        "\n" +
+        "must be one of: " +
+        Object.keys(languages).sort().join(", "),
+    );
+  }
+  return languages[language]();
+}
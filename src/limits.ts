@@ -0,0 +1,227 @@
+// Optional limits on how much work a conversion can do, so that a huge or
+// hostile command fails instead of using up the CPU and memory of a server
+// that converts commands it's sent. What's checked and when:
+//
+// - maxInputBytes before the command is tokenized. Parsing with tree-sitter
+//   is linear in the length of the command, so this bounds it.
+// - maxAstNodes after tree-sitter has parsed the command, before the tree is
+//   walked to build Words, which is what it bounds. The fast tokenizer
+//   doesn't build a tree, so it doesn't apply to commands it can split up.
+// - maxWords for each curl command, before its arguments are parsed.
+// - maxOutputBytes on the code a generator returns. The Python, Java, C,
+//   PowerShell and HTTPie generators also check the code they've generated
+//   so far in their loops over requests and headers (see checkGenerating()).
+// - signal before each phase of a conversion (tokenizing, parsing the
+//   arguments, building Requests and generating code) and in those loops.
+//   Conversions are synchronous, so a signal that's aborted by a timer or an
+//   event can't be aborted while they run. It's only seen if the caller
+//   awaits, which convert() and convertMany() do while they load a
+//   generator. To stop a conversion that's running, run it in the pool
+//   (see pool.ts).
+//
+// Like the timings in timings.ts, nothing is checked unless withLimits() is
+// running, so when it's not each check only costs a length check.
+
+import { CCError } from "./utils.ts";
+
+export interface Limits {
+  signal?: AbortSignal;
+  // The length of the Bash code (or of all the arguments of an argv array),
+  // in UTF-8 bytes
+  maxInputBytes?: number;
+  // The number of nodes in the tree-sitter AST of the Bash code. Commands
+  // that the fast tokenizer can split up aren't parsed by tree-sitter.
+  maxAstNodes?: number;
+  // The number of arguments of a single curl command
+  maxWords?: number;
+  // The length of the generated code in UTF-8 bytes
+  maxOutputBytes?: number;
+}
+
+export type Limit =
+  | "aborted"
+  | "maxInputBytes"
+  | "maxAstNodes"
+  | "maxWords"
+  | "maxOutputBytes";
+
+/**
+ * Thrown when a conversion goes over one of the limits passed to
+ * withLimits() or its signal is aborted.
+ */
+export class LimitError extends CCError {
+  readonly limit: Limit;
+
+  constructor(message: string, limit: Limit) {
+    super(message);
+    this.name = "LimitError";
+    this.limit = limit;
+  }
+}
+
+// Nested calls to withLimits() all apply
+const active: Limits[] = [];
+
+/**
+ * Calls f and returns what it returned, throwing a LimitError as soon as
+ * it's noticed that a conversion f started went over one of the limits.
+ */
+export function withLimits<T>(limits: Limits, f: () => T): T {
+  active.push(limits);
+  try {
+    checkSignal();
+    return f();
+  } finally {
+    active.splice(active.lastIndexOf(limits), 1);
+  }
+}
+
+// Returns the smallest of the limits that are set or Infinity
+function smallest(
+  limit: "maxInputBytes" | "maxAstNodes" | "maxWords" | "maxOutputBytes",
+): number {
+  let result = Infinity;
+  for (const limits of active) {
+    const value = limits[limit];
+    if (value !== undefined && value < result) {
+      result = value;
+    }
+  }
+  return result;
+}
+
+// Counts the UTF-8 bytes of s without encoding it. Lone surrogates are
+// counted as the 3 bytes of the replacement character they'd become.
+function utf8Length(s: string): number {
+  let length = s.length;
+  for (let i = 0; i < s.length; i++) {
+    const c = s.charCodeAt(i);
+    if (c >= 0x800) {
+      // Surrogate pairs are 2 code units and 4 bytes
+      const highSurrogate =
+        c >= 0xd800 && c <= 0xdbff && (s.charCodeAt(i + 1) & 0xfc00) === 0xdc00;
+      length += highSurrogate ? 0 : 2;
+    } else if (c >= 0x80) {
+      length += 1;
+    }
+  }
+  return length;
+}
+
+// A UTF-8 string is between 1 and 3 bytes per UTF-16 code unit, so the byte
+// length only has to be counted when the string is around the limit
+function overBytes(strings: string[], max: number): boolean {
+  let units = 0;
+  for (const s of strings) {
+    units += s.length;
+  }
+  if (units > max) {
+    return true;
+  }
+  if (units * 3 <= max) {
+    return false;
+  }
+  let bytes = 0;
+  for (const s of strings) {
+    bytes += utf8Length(s);
+    if (bytes > max) {
+      return true;
+    }
+  }
+  return false;
+}
+
+// Whether a limit on the work done while parsing applies. A cached parse
+// or cached code doesn't say how many syntax nodes or arguments the command
+// had, so it can't be checked against these and the cache is skipped.
+export function limitsParsing(limits: Limits[] = active): boolean {
+  return limits.some(
+    (l) => l.maxAstNodes !== undefined || l.maxWords !== undefined,
+  );
+}
+
+export function checkSignal() {
+  for (const limits of active) {
+    if (limits.signal?.aborted) {
+      // Show why if it wasn't aborted with the default reason, like
+      // AbortSignal.timeout()'s TimeoutError
+      const reason = limits.signal.reason;
+      throw new LimitError(
+        "conversion aborted" +
+          (reason instanceof Error && reason.name !== "AbortError"
+            ? ": " + reason.message
+            : ""),
+        "aborted",
+      );
+    }
+  }
+}
+
+export function checkInput(input: string | string[]) {
+  if (!active.length) {
+    return;
+  }
+  checkSignal();
+  const max = smallest("maxInputBytes");
+  if (overBytes(typeof input === "string" ? [input] : input, max)) {
+    throw new LimitError(
+      "command is longer than " + max + " bytes",
+      "maxInputBytes",
+    );
+  }
+}
+
+// Call with ast.rootNode.descendantCount
+export function checkAstNodes(nodes: number) {
+  if (!active.length) {
+    return;
+  }
+  const max = smallest("maxAstNodes");
+  if (nodes > max) {
+    throw new LimitError(
+      "command has " + nodes + " syntax nodes, more than " + max,
+      "maxAstNodes",
+    );
+  }
+}
+
+export function checkWords(words: number) {
+  if (!active.length) {
+    return;
+  }
+  checkSignal();
+  const max = smallest("maxWords");
+  if (words > max) {
+    throw new LimitError(
+      "curl command has " + words + " arguments, more than " + max,
+      "maxWords",
+    );
+  }
+}
+
+// Generators call this from their loops over requests and headers with how
+// much code they've generated so far, so that code that's going over the
+// output limit is stopped before all of it is built
+export function checkGenerating(length: number) {
+  if (!active.length) {
+    return;
+  }
+  checkSignal();
+  checkOutput(length);
+}
+
+// Call with code as it's generated, only the last call has to be with all
+// of it. Partial code is only checked by its length in UTF-16 code units,
+// which is never more than its length in UTF-8 bytes.
+export function checkOutput(code: string | number) {
+  if (!active.length) {
+    return;
+  }
+  const max = smallest("maxOutputBytes");
+  if (typeof code === "number" ? code > max : overBytes([code], max)) {
+    throw new LimitError(
+      "generated code is longer than " + max + " bytes",
+      "maxOutputBytes",
+    );
+  }
+}
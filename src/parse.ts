@@ -1,15 +1,18 @@
 import { CCError } from "./utils.ts";
 import { Word } from "./shell/Word.ts";
-import { tokenize } from "./shell/tokenizer.ts";
+import { tokenize, TokenizeSession } from "./shell/tokenizer.ts";
 import * as curl from "./curl/opts.ts";
 import {
   curlLongOpts,
   curlLongOptsShortened,
   curlShortOpts,
 } from "./curl/opts.ts";
-import { buildRequests } from "./Request.ts";
+import type { LongOpts } from "./curl/opts.ts";
+import { buildRequests, copyRequest } from "./Request.ts";
 import type { Request, RequestUrl } from "./Request.ts";
 import type { Warnings } from "./Warnings.ts";
+import { commandKey, getCache, hash, supportedArgsKey } from "./cache.ts";
+import { checkInput, limitsParsing } from "./limits.ts";
 
 export { COMMON_SUPPORTED_ARGS } from "./curl/opts.ts";
 export { getFirst } from "./Request.ts";
@@ -24,12 +27,16 @@ export function clip(s: string, maxLength = 30): string {
 }
 
 function findCommands(
-  curlCommand: string | string[],
+  curlCommand: string | string[] | TokenizeSession,
   warnings: Warnings,
+  stdin?: Word,
 ): [Word[], Word?, Word?][] {
   if (typeof curlCommand === "string") {
     return tokenize(curlCommand, warnings);
   }
+  if (curlCommand instanceof TokenizeSession) {
+    return curlCommand.tokenize(warnings);
+  }
 
   if (curlCommand.length === 0) {
     throw new CCError("no arguments provided");
@@ -40,7 +47,81 @@ function findCommands(
         JSON.stringify(clip(curlCommand[0])),
     );
   }
-  return [[curlCommand.map((arg) => new Word(arg)), undefined, undefined]];
+  checkInput(curlCommand);
+  return [[curlCommand.map((arg) => new Word(arg)), stdin, undefined]];
+}
+
+function parseCommands(
+  command: string | string[] | TokenizeSession,
+  supportedArgs: Set<string> | undefined,
+  warnings: Warnings,
+  stdin?: Word,
+): [Request[], [string, string][]] {
+  let requests: Request[] = [];
+  let seenArgs: [string, string][] = [];
+  const curlCommands = findCommands(command, warnings, stdin);
+  for (const [argv, stdin, stdinFile] of curlCommands) {
+    const [globalConfig, seen] = curl.parseArgs(
+      argv,
+      curlLongOpts,
+      curlLongOptsShortened,
+      curlShortOpts,
+      supportedArgs,
+      warnings,
+    );
+
+    requests = requests.concat(buildRequests(globalConfig, stdin, stdinFile));
+    seenArgs = seenArgs.concat(seen);
+  }
+  return [requests, seenArgs];
+}
+
+interface CachedParse {
+  requests: Request[];
+  seenArgs: [string, string][];
+  warnings: Warnings;
+}
+
+function parseCommandsCached(
+  command: string | string[] | TokenizeSession,
+  supportedArgs: Set<string> | undefined,
+  warnings: Warnings,
+  stdin?: Word,
+): [Request[], [string, string][]] {
+  const cache = getCache();
+  if (
+    cache === null ||
+    stdin !== undefined ||
+    command instanceof TokenizeSession ||
+    limitsParsing()
+  ) {
+    return parseCommands(command, supportedArgs, warnings, stdin);
+  }
+
+  const commandStr = commandKey(command);
+  const key =
+    "parse:" + supportedArgsKey(supportedArgs) + ":" + hash(commandStr);
+  const hit = cache.get(key, commandStr) as CachedParse | undefined;
+  if (hit !== undefined) {
+    // It might have been parsed without limits
+    checkInput(command);
+    warnings.push(...hit.warnings);
+    // Generators modify the headers of the requests they're given
+    return [hit.requests.map(copyRequest), hit.seenArgs];
+  }
+
+  const warningsBefore = warnings.length;
+  const [requests, seenArgs] = parseCommands(
+    command,
+    supportedArgs,
+    warnings,
+  );
+  cache.set(key, commandStr, {
+    requests: requests.map(copyRequest),
+    seenArgs,
+    warnings: warnings.slice(warningsBefore),
+  });
+  return [requests, seenArgs];
 }
 
 /**
@@ -54,19 +135,43 @@ export function parse(
   supportedArgs?: Set<string>,
   warnings: Warnings = [],
 ): Request[] {
-  let requests: Request[] = [];
-  const curlCommands = findCommands(command, warnings);
-  for (const [argv, stdin, stdinFile] of curlCommands) {
-    const [globalConfig] = curl.parseArgs(
-      argv,
-      curlLongOpts,
-      curlLongOptsShortened,
-      curlShortOpts,
-      supportedArgs,
-      warnings,
-    );
+  return parseCommandsCached(command, supportedArgs, warnings)[0];
+}
 
-    requests = requests.concat(buildRequests(globalConfig, stdin, stdinFile));
+/**
+ * Like parse() but doesn't check for unsupported arguments, so that the
+ * result can be passed to any generator. Returns the parsed curl objects and
+ * the arguments that were seen, for passing to warnUnsupported().
+ * @param command can also be a TokenizeSession, for commands being edited
+ * @param stdin what the command reads from stdin, if command is an argv array
+ */
+export function parseForAll(
+  command: string | string[] | TokenizeSession,
+  warnings: Warnings = [],
+  stdin?: Word,
+): [Request[], [string, string][]] {
+  return parseCommandsCached(command, undefined, warnings, stdin);
+}
+
+// Adds the same warnings that parse() would've added if it was passed supportedArgs
+export function warnUnsupported(
+  seenArgs: [string, string][],
+  supportedArgs: Set<string>,
+  warnings: Warnings,
+) {
+  for (const [arg, lookup] of seenArgs) {
+    if (!supportedArgs.has(arg)) {
+      const longArg = lookup.startsWith("--")
+        ? (curlLongOpts as LongOpts)[lookup.slice(2)]
+        : undefined;
+      warnings.push([
+        arg,
+        lookup +
+          " is not a supported option" +
+          (longArg && longArg.removed
+            ? ", it was removed in curl " + longArg.removed
+            : ""),
+      ]);
+    }
   }
-  return requests;
 }
@@ -0,0 +1,87 @@
+// Percent-encoding that matches Python's urllib.parse.quote() behavior
+// https://github.com/python/cpython/blob/3.11/Lib/urllib/parse.py#L826
+// curl and Python let you send non-ASCII characters by encoding each UTF-8 byte.
+//
+// Strings are encoded straight from their UTF-16 code units using lookup
+// tables, without converting them to a UTF-8 byte array first, and strings
+// that don't need encoding are returned as-is.
+
+const HEX = "0123456789ABCDEF";
+
+// ENCODED[b] is what byte b turns into
+const ENCODED: string[] = [];
+for (let b = 0; b < 256; b++) {
+  ENCODED.push("%" + HEX[b >> 4] + HEX[b & 0xf]);
+}
+// SAFE[c] is 1 for the ASCII characters that aren't encoded
+const SAFE = new Uint8Array(128);
+for (const c of "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-._~") {
+  SAFE[c.charCodeAt(0)] = 1;
+  ENCODED[c.charCodeAt(0)] = c;
+}
+
+function isSafe(c: number): boolean {
+  return c < 0x80 && SAFE[c] === 1;
+}
+
+// If plus is true, spaces are encoded as "+" instead of "%20"
+export function percentEncode(s: string, plus = false): string {
+  const len = s.length;
+  let i = 0;
+  while (i < len && isSafe(s.charCodeAt(i))) {
+    i++;
+  }
+  if (i === len) {
+    return s;
+  }
+
+  let out = s.slice(0, i);
+  while (i < len) {
+    let c = s.charCodeAt(i);
+    if (c < 0x80) {
+      if (SAFE[c]) {
+        let end = i + 1;
+        while (end < len && isSafe(s.charCodeAt(end))) {
+          end++;
+        }
+        out += s.slice(i, end);
+        i = end;
+        continue;
+      }
+      out += plus && c === 0x20 ? "+" : ENCODED[c];
+      i++;
+    } else if (c < 0x800) {
+      out += ENCODED[0xc0 | (c >> 6)] + ENCODED[0x80 | (c & 0x3f)];
+      i++;
+    } else {
+      if (c >= 0xd800 && c <= 0xdbff && i + 1 < len) {
+        const low = s.charCodeAt(i + 1);
+        if (low >= 0xdc00 && low <= 0xdfff) {
+          const codePoint = ((c - 0xd800) << 10) + (low - 0xdc00) + 0x10000;
+          out +=
+            ENCODED[0xf0 | (codePoint >> 18)] +
+            ENCODED[0x80 | ((codePoint >> 12) & 0x3f)] +
+            ENCODED[0x80 | ((codePoint >> 6) & 0x3f)] +
+            ENCODED[0x80 | (codePoint & 0x3f)];
+          i += 2;
+          continue;
+        }
+      }
+      // Like TextEncoder, unpaired surrogates are encoded as U+FFFD
+      if (c >= 0xd800 && c <= 0xdfff) {
+        c = 0xfffd;
+      }
+      out +=
+        ENCODED[0xe0 | (c >> 12)] +
+        ENCODED[0x80 | ((c >> 6) & 0x3f)] +
+        ENCODED[0x80 | (c & 0x3f)];
+      i++;
+    }
+  }
+  return out;
+}
+
+// Throws a URIError if s contains invalid percent-encoded characters
+export function percentDecode(s: string): string {
+  return s.includes("%") ? decodeURIComponent(s) : s;
+}
@@ -0,0 +1,350 @@
+// A fixed-size pool of worker threads that run convert().
+//
+// The tree-sitter parser in Parser.ts is a module-level singleton that can't
+// be shared between threads, but each worker imports its own copy of every
+// module, so each worker gets its own parser.
+
+import os from "os";
+import { Worker } from "worker_threads";
+
+import { CCError } from "./utils.ts";
+import type { Warnings } from "./Warnings.ts";
+import type { ConvertRequest, ConvertResult } from "./convert.ts";
+import { LimitError } from "./limits.ts";
+import type { Limits } from "./limits.ts";
+
+export type WorkerMessage =
+  | { type: "convert"; request: ConvertRequest }
+  | {
+      type: "convertMany";
+      command: string | string[];
+      languages: string[];
+      stdin?: string;
+    };
+
+export interface WorkerPoolOptions {
+  // How many requests can wait for a worker before new ones are rejected
+  maxQueue?: number;
+  // How many milliseconds a request can run for before its worker is
+  // stopped and replaced
+  timeout?: number;
+  // Workers are replaced after running this many requests, which frees the
+  // memory that their tree-sitter parser has grown to
+  maxTasksPerWorker?: number;
+}
+
+export type ConverterPoolErrorReason = "queue-full" | "timeout" | "closed";
+
+/**
+ * Thrown when the pool couldn't run a conversion, as opposed to the
+ * conversion failing.
+ */
+export class ConverterPoolError extends Error {
+  readonly reason: ConverterPoolErrorReason;
+
+  constructor(message: string, reason: ConverterPoolErrorReason) {
+    super(message);
+    this.name = "ConverterPoolError";
+    this.reason = reason;
+  }
+}
+
+interface Task {
+  message: WorkerMessage;
+  timeout: number;
+  timer?: ReturnType<typeof setTimeout>;
+  signal?: AbortSignal;
+  onAbort?: () => void;
+  resolve: (result: unknown) => void;
+  reject: (error: Error) => void;
+}
+
+export class WorkerPool {
+  readonly size: number;
+  readonly maxQueue: number;
+  readonly timeout: number;
+  readonly maxTasksPerWorker: number;
+  private readonly idle: Worker[] = [];
+  private readonly busy = new Map<Worker, Task>();
+  private readonly queue: Task[] = [];
+  // How many requests each worker has run
+  private readonly tasksRun = new Map<Worker, number>();
+  private closed = false;
+
+  constructor(
+    size: number = os.availableParallelism(),
+    options: WorkerPoolOptions = {},
+  ) {
+    this.size = Math.max(1, size);
+    this.maxQueue = options.maxQueue ?? Infinity;
+    this.timeout = options.timeout ?? Infinity;
+    this.maxTasksPerWorker = options.maxTasksPerWorker ?? Infinity;
+    for (let i = 0; i < this.size; i++) {
+      this.idle.push(this.spawn());
+    }
+  }
+
+  private spawn(): Worker {
+    const worker = new Worker(new URL("./worker.js", import.meta.url));
+    this.tasksRun.set(worker, 0);
+    worker.on("message", (result: unknown) => {
+      const task = this.busy.get(worker);
+      if (!task) {
+        // It timed out and was replaced
+        return;
+      }
+      this.settle(task);
+      this.busy.delete(worker);
+      const tasksRun = (this.tasksRun.get(worker) ?? 0) + 1;
+      if (tasksRun >= this.maxTasksPerWorker) {
+        this.replace(worker);
+      } else {
+        this.tasksRun.set(worker, tasksRun);
+        this.idle.push(worker);
+      }
+      task.resolve(result);
+      this.next();
+    });
+    worker.on("error", (error) => {
+      // convert() doesn't throw, so this is a crash. Replace the worker.
+      const task = this.busy.get(worker);
+      if (!task) {
+        const i = this.idle.indexOf(worker);
+        if (i !== -1) {
+          this.idle.splice(i, 1);
+          this.replace(worker);
+        }
+        return;
+      }
+      this.settle(task);
+      this.busy.delete(worker);
+      this.replace(worker);
+      task.reject(error);
+      this.next();
+    });
+    worker.on("exit", (code) => {
+      // Workers that were stopped on purpose have already been forgotten.
+      // This is one that exited on its own, without an "error" event.
+      if (!this.tasksRun.has(worker)) {
+        return;
+      }
+      const task = this.busy.get(worker);
+      this.busy.delete(worker);
+      const i = this.idle.indexOf(worker);
+      if (i !== -1) {
+        this.idle.splice(i, 1);
+      }
+      this.replace(worker);
+      if (task) {
+        this.settle(task);
+        task.reject(new Error("worker thread exited with code " + code));
+      }
+      this.next();
+    });
+    return worker;
+  }
+
+  private replace(worker: Worker) {
+    this.tasksRun.delete(worker);
+    worker.terminate();
+    if (!this.closed) {
+      this.idle.push(this.spawn());
+    }
+  }
+
+  // Stops the task's timer and abort listener
+  private settle(task: Task) {
+    clearTimeout(task.timer);
+    if (task.onAbort) {
+      task.signal?.removeEventListener("abort", task.onAbort);
+    }
+  }
+
+  // The worker is stopped like when a task times out, its Bash parser can't
+  // be interrupted
+  private abort(task: Task) {
+    this.settle(task);
+    const i = this.queue.indexOf(task);
+    if (i !== -1) {
+      this.queue.splice(i, 1);
+    } else {
+      for (const [worker, t] of this.busy) {
+        if (t === task) {
+          this.busy.delete(worker);
+          this.replace(worker);
+          break;
+        }
+      }
+    }
+    task.reject(new LimitError("conversion aborted", "aborted"));
+    this.next();
+  }
+
+  private next() {
+    while (this.idle.length && this.queue.length) {
+      const worker = this.idle.pop()!;
+      const task = this.queue.shift()!;
+      this.busy.set(worker, task);
+      if (task.timeout !== Infinity) {
+        // Conversions are synchronous, the only way to stop one is to stop
+        // the thread it's running on
+        task.timer = setTimeout(() => {
+          this.settle(task);
+          this.busy.delete(worker);
+          this.replace(worker);
+          task.reject(
+            new ConverterPoolError(
+              "conversion took longer than " + task.timeout + "ms",
+              "timeout",
+            ),
+          );
+          this.next();
+        }, task.timeout);
+      }
+      worker.postMessage(task.message);
+    }
+  }
+
+  // Number of requests that haven't finished yet
+  get pending(): number {
+    return this.busy.size + this.queue.length;
+  }
+
+  private run<T>(
+    message: WorkerMessage,
+    timeout = this.timeout,
+    signal?: AbortSignal,
+  ): Promise<T> {
+    if (this.closed) {
+      return Promise.reject(
+        new ConverterPoolError("the pool has been closed", "closed"),
+      );
+    }
+    if (!this.idle.length && this.queue.length >= this.maxQueue) {
+      return Promise.reject(
+        new ConverterPoolError(
+          this.queue.length + " conversions are already waiting",
+          "queue-full",
+        ),
+      );
+    }
+    if (signal?.aborted) {
+      return Promise.reject(new LimitError("conversion aborted", "aborted"));
+    }
+    return new Promise((resolve, reject) => {
+      const task: Task = {
+        message,
+        timeout,
+        signal,
+        resolve: resolve as (result: unknown) => void,
+        reject,
+      };
+      if (signal) {
+        task.onAbort = () => this.abort(task);
+        signal.addEventListener("abort", task.onAbort, { once: true });
+      }
+      this.queue.push(task);
+      this.next();
+    });
+  }
+
+  convert(
+    request: ConvertRequest,
+    timeout?: number,
+    signal?: AbortSignal,
+  ): Promise<ConvertResult> {
+    return this.run({ type: "convert", request }, timeout, signal);
+  }
+
+  convertMany(
+    command: string | string[],
+    languages: string[],
+    stdin?: string,
+  ): Promise<{ [language: string]: ConvertResult }> {
+    return this.run({ type: "convertMany", command, languages, stdin });
+  }
+
+  async close(): Promise<void> {
+    this.closed = true;
+    const workers = [...this.idle, ...this.busy.keys()];
+    const tasks = [...this.busy.values(), ...this.queue];
+    this.idle.length = 0;
+    this.busy.clear();
+    this.queue.length = 0;
+    this.tasksRun.clear();
+    for (const task of tasks) {
+      this.settle(task);
+      task.reject(new ConverterPoolError("the pool has been closed", "closed"));
+    }
+    await Promise.all(workers.map((w) => w.terminate()));
+  }
+}
+
+export interface ConverterPoolOptions extends WorkerPoolOptions {
+  // How many worker threads to convert on, one per CPU by default
+  threads?: number;
+}
+
+/**
+ * Converts commands on worker threads, so that converting a huge command
+ * doesn't block the thread that asked for it.
+ */
+export class ConverterPool {
+  private readonly pool: WorkerPool;
+
+  constructor(options: ConverterPoolOptions = {}) {
+    this.pool = new WorkerPool(options.threads, options);
+  }
+
+  /**
+   * Converts a command to a language (one of the --language names).
+   * Rejects with a CCError if the command can't be converted and with a
+   * ConverterPoolError if the queue is full or the conversion times out.
+   * @param options.timeout overrides the pool's timeout for this conversion
+   * @param options.stdin what the command reads from stdin, if command is an
+   * argv array
+   * @param options the limits in withLimits(). The conversion is stopped as
+   * soon as the signal is aborted, which rejects with a LimitError.
+   */
+  async convert(
+    command: string | string[],
+    language?: string,
+    options: Limits & { timeout?: number; stdin?: string } = {},
+  ): Promise<{ code: string; warnings: Warnings }> {
+    const { timeout, stdin, signal, ...limits } = options;
+    const result = await this.pool.convert(
+      { command, language, stdin, limits },
+      timeout,
+      signal,
+    );
+    if (result.error !== undefined) {
+      if (result.limit !== undefined) {
+        throw new LimitError(result.error, result.limit);
+      }
+      throw result.ccError
+        ? new CCError(result.error)
+        : new Error(result.error);
+    }
+    return { code: result.code as string, warnings: result.warnings };
+  }
+
+  // Number of conversions that haven't finished yet
+  get pending(): number {
+    return this.pool.pending;
+  }
+
+  close(): Promise<void> {
+    return this.pool.close();
+  }
+}
+
+/**
+ * Starts a pool of worker threads for converting commands.
+ * Close it with close() when you're done with it, the threads keep the
+ * process running.
+ */
+export function createConverterPool(
+  options: ConverterPoolOptions = {},
+): ConverterPool {
+  return new ConverterPool(options);
+}
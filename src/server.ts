@@ -0,0 +1,162 @@
+// A long-running conversion server for `curlconverter --serve <socket>`.
+//
+// Starting Node, loading tree-sitter and building the option tables takes
+// much longer than converting a typical command, so editor integrations and
+// scripts can instead keep one process running and send it commands over a
+// Unix domain socket.
+//
+// The protocol is newline-delimited JSON. Each line sent to the server is a
+// ConvertRequest and the server replies with one ConvertResult line per
+// request, in the same order.
+
+import fs from "fs";
+import net from "net";
+
+import { CCError } from "./utils.ts";
+import { convert } from "./convert.ts";
+import type { ConvertRequest, ConvertResult } from "./convert.ts";
+
+function handleConnection(socket: net.Socket) {
+  socket.setEncoding("utf8");
+
+  // Requests are converted one at a time so that responses are
+  // written in the same order as the requests they answer.
+  let buffered = "";
+  let queue = Promise.resolve();
+  socket.on("data", (data: string) => {
+    buffered += data;
+    let newline;
+    while ((newline = buffered.indexOf("\n")) !== -1) {
+      const line = buffered.slice(0, newline);
+      buffered = buffered.slice(newline + 1);
+      if (!line.trim()) {
+        continue;
+      }
+      queue = queue.then(async () => {
+        let response: ConvertResult;
+        try {
+          response = await convert(JSON.parse(line));
+        } catch (e) {
+          response = {
+            warnings: [],
+            error: "invalid request: " + (e as Error).message,
+            ccError: true,
+          };
+        }
+        if (!socket.destroyed) {
+          socket.write(JSON.stringify(response) + "\n");
+        }
+      });
+    }
+  });
+  socket.on("error", () => {
+    // The client went away, nothing to do
+  });
+}
+
+function isServing(socketPath: string): Promise<boolean> {
+  return new Promise((resolve) => {
+    const client = net.connect(socketPath);
+    client.on("connect", () => {
+      client.end();
+      resolve(true);
+    });
+    client.on("error", () => {
+      resolve(false);
+    });
+  });
+}
+
+function listen(server: net.Server, socketPath: string): Promise<void> {
+  return new Promise((resolve, reject) => {
+    server.once("error", reject);
+    server.listen(socketPath, () => {
+      server.off("error", reject);
+      resolve();
+    });
+  });
+}
+
+/**
+ * Listens on a Unix domain socket and converts curl commands until
+ * the process gets SIGINT or SIGTERM.
+ * Resolves once the server has been closed.
+ */
+export async function serve(socketPath: string): Promise<void> {
+  const sockets = new Set<net.Socket>();
+  const server = net.createServer((socket) => {
+    sockets.add(socket);
+    socket.on("close", () => {
+      sockets.delete(socket);
+    });
+    handleConnection(socket);
+  });
+  try {
+    await listen(server, socketPath);
+  } catch (e) {
+    if ((e as NodeJS.ErrnoException).code !== "EADDRINUSE") {
+      throw e;
+    }
+    // A previous server might have crashed without removing its socket file
+    if (await isServing(socketPath)) {
+      throw new CCError("already serving on " + socketPath);
+    }
+    fs.unlinkSync(socketPath);
+    await listen(server, socketPath);
+  }
+
+  return new Promise((resolve) => {
+    const close = () => {
+      // Also removes the socket file
+      server.close(() => resolve());
+      // server.close() waits for the clients to disconnect, which an editor
+      // that keeps its connection open never does
+      for (const socket of sockets) {
+        socket.destroy();
+      }
+    };
+    process.once("SIGINT", close);
+    process.once("SIGTERM", close);
+  });
+}
+
+/**
+ * Sends one request to a server started with serve() and returns its response.
+ */
+export function sendRequest(
+  socketPath: string,
+  request: ConvertRequest,
+): Promise<ConvertResult> {
+  return new Promise((resolve, reject) => {
+    const socket = net.connect(socketPath);
+    socket.setEncoding("utf8");
+    let buffered = "";
+    socket.on("connect", () => {
+      socket.write(JSON.stringify(request) + "\n");
+    });
+    socket.on("data", (data: string) => {
+      buffered += data;
+      const newline = buffered.indexOf("\n");
+      if (newline !== -1) {
+        socket.end();
+        try {
+          resolve(JSON.parse(buffered.slice(0, newline)));
+        } catch (e) {
+          reject(e);
+        }
+      }
+    });
+    socket.on("error", (e: NodeJS.ErrnoException) => {
+      if (e.code === "ENOENT" || e.code === "ECONNREFUSED") {
+        reject(new CCError("no curlconverter server running on " + socketPath));
+      } else {
+        reject(e);
+      }
+    });
+    socket.on("close", () => {
+      if (!buffered.includes("\n")) {
+        reject(new CCError("curlconverter server closed the connection"));
+      }
+    });
+  });
+}
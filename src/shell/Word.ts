@@ -53,16 +53,44 @@ export class Word implements Iterable<Token> {
     }
   }
 
-  get length(): number {
-    let len = 0;
-    for (const t of this.tokens) {
-      if (typeof t === "string") {
-        len += t.length;
+  // #offsets[i] is the index of the first character of tokens[i] and
+  // #offsets[tokens.length] is the length of the Word. It's built the first
+  // time it's needed, tokens shouldn't be modified after that.
+  #offsets: number[] | undefined;
+
+  private offsets(): number[] {
+    if (this.#offsets === undefined) {
+      const offsets = new Array<number>(this.tokens.length + 1);
+      let len = 0;
+      for (let i = 0; i < this.tokens.length; i++) {
+        offsets[i] = len;
+        const t = this.tokens[i];
+        len += typeof t === "string" ? t.length : 1;
+      }
+      offsets[this.tokens.length] = len;
+      this.#offsets = offsets;
+    }
+    return this.#offsets;
+  }
+
+  // Returns the index of the token containing the character at index
+  private tokenAt(index: number): number {
+    const offsets = this.offsets();
+    let lo = 0;
+    let hi = this.tokens.length - 1;
+    while (lo < hi) {
+      const mid = (lo + hi + 1) >>> 1;
+      if (offsets[mid] <= index) {
+        lo = mid;
       } else {
-        len += 1;
+        hi = mid - 1;
       }
     }
-    return len;
+    return lo;
+  }
+
+  get length(): number {
+    return this.offsets()[this.tokens.length];
   }
 
   *[Symbol.iterator](): Iterator<Token> {
@@ -79,21 +107,15 @@ export class Word implements Iterable<Token> {
 
   // TODO: do we need this function?
   get(index: number): Token {
-    let i = 0;
-    for (const t of this.tokens) {
-      if (typeof t === "string") {
-        if (i + t.length > index) {
-          return t[index - i];
-        }
-        i += t.length;
-      } else {
-        if (i === index) {
-          return t;
-        }
-        i += 1;
-      }
+    if (index < 0 || index >= this.length) {
+      throw new CCError("Index out of bounds");
     }
-    throw new CCError("Index out of bounds");
+    const tokenIndex = this.tokenAt(index);
+    const t = this.tokens[tokenIndex];
+    if (typeof t === "string") {
+      return t[index - this.offsets()[tokenIndex]];
+    }
+    return t;
   }
 
   charAt(index = 0): Token {
@@ -107,18 +129,18 @@ export class Word implements Iterable<Token> {
     if (start === undefined) {
       start = 0;
     }
-    let i = 0;
-    for (const t of this.tokens) {
+    if (start >= this.length) {
+      return -1;
+    }
+    const offsets = this.offsets();
+    const first = start > 0 ? this.tokenAt(start) : 0;
+    for (let i = first; i < this.tokens.length; i++) {
+      const t = this.tokens[i];
       if (typeof t === "string") {
-        if (i + t.length > start) {
-          const index = t.indexOf(search, start - i);
-          if (index !== -1) {
-            return i + index;
-          }
+        const index = t.indexOf(search, start - offsets[i]);
+        if (index !== -1) {
+          return offsets[i] + index;
         }
-        i += t.length;
-      } else {
-        i += 1;
       }
     }
     return -1;
@@ -177,45 +199,27 @@ export class Word implements Iterable<Token> {
       return new Word();
     }
 
+    const offsets = this.offsets();
     const ret = [];
-    let i = 0;
-    for (const t of this.tokens) {
+    for (
+      let i = this.tokenAt(indexStart);
+      i < this.tokens.length && offsets[i] < indexEnd;
+      i++
+    ) {
+      const t = this.tokens[i];
       if (typeof t === "string") {
-        if (i + t.length > indexStart) {
-          if (i < indexEnd) {
-            ret.push(t.slice(Math.max(indexStart - i, 0), indexEnd - i));
-          }
-        }
-        i += t.length;
+        ret.push(
+          t.slice(Math.max(indexStart - offsets[i], 0), indexEnd - offsets[i]),
+        );
       } else {
-        if (i >= indexStart && i < indexEnd) {
-          ret.push(t);
-        }
-        i += 1;
+        ret.push(t);
       }
     }
     return new Word(ret);
   }
 
-  // TODO: check
   includes(search: string, start?: number): boolean {
-    if (start === undefined) {
-      start = 0;
-    }
-    let i = 0;
-    for (const t of this.tokens) {
-      if (typeof t === "string") {
-        if (i + t.length > start) {
-          if (t.includes(search, start - i)) {
-            return true;
-          }
-        }
-        i += t.length;
-      } else {
-        i += 1;
-      }
-    }
-    return false;
+    return this.indexOf(search, start) !== -1;
   }
 
   test(search: RegExp): boolean {
@@ -302,26 +306,16 @@ export class Word implements Iterable<Token> {
   // The last entry can contain the separator if limit entries has been reached
   split(separator: string, limit?: number): Word[] {
     const ret: Word[] = [];
-    let i = 0;
     let start = 0;
-    while (i < this.length) {
-      let match = true;
-      for (let j = 0; j < separator.length; j++) {
-        if (this.get(i + j) !== separator.charAt(j)) {
-          match = false;
-          break;
-        }
-      }
-      if (match) {
-        ret.push(this.slice(start, i));
-        i += separator.length;
-        start = i;
-        if (limit !== undefined && ret.length === limit - 1) {
-          break;
-        }
-      } else {
-        i += 1;
+    // Strings are merged, so a separator can't span two tokens
+    let i = this.indexOf(separator);
+    while (i !== -1) {
+      ret.push(this.slice(start, i));
+      start = i + separator.length;
+      if (limit !== undefined && ret.length === limit - 1) {
+        break;
       }
+      i = this.indexOf(separator, start);
     }
     if (start <= this.length) {
       ret.push(this.slice(start));
@@ -508,24 +502,61 @@ export function firstShellToken(word: string | Word): ShellToken | null {
   }
   return word.firstShellToken();
 }
-export function mergeWords(...words: (Word | string)[]): Word {
-  const ret: Token[] = [];
-  for (const w of words) {
+// Builds a Word out of many pieces, without creating a new Word (and
+// copying all the tokens so far) for every piece that's added.
+export class WordBuilder {
+  private readonly tokens: Token[] = [];
+  // Consecutive strings are joined once, when they're followed by a shell
+  // token or when the Word is built
+  private strings: string[] = [];
+
+  add(w: Word | Token): this {
     if (w instanceof Word) {
-      ret.push(...w.tokens);
+      for (const t of w.tokens) {
+        this.add(t);
+      }
+    } else if (typeof w === "string") {
+      if (w) {
+        this.strings.push(w);
+      }
     } else {
-      ret.push(w);
+      this.flush();
+      this.tokens.push(w);
     }
+    return this;
+  }
+
+  private flush() {
+    if (this.strings.length) {
+      this.tokens.push(this.strings.join(""));
+      this.strings = [];
+    }
+  }
+
+  isEmpty(): boolean {
+    return this.tokens.length === 0 && this.strings.length === 0;
+  }
+
+  build(): Word {
+    this.flush();
+    return new Word(this.tokens);
   }
-  return new Word(ret);
 }
-export function joinWords(words: Word[], joinChar: string): Word {
-  const ret: Token[] = [];
+
+export function mergeWords(...words: (Word | string)[]): Word {
+  const ret = new WordBuilder();
   for (const w of words) {
-    if (ret.length) {
-      ret.push(joinChar);
+    ret.add(w);
+  }
+  return ret.build();
+}
+export function joinWords(words: Word[], joinChar: string): Word {
+  const ret = new WordBuilder();
+  for (const [i, w] of words.entries()) {
+    if (i > 0) {
+      ret.add(joinChar);
     }
-    ret.push(...w.tokens);
+    ret.add(w);
   }
-  return new Word(ret);
+  return ret.build();
 }
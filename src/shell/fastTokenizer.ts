@@ -0,0 +1,171 @@
+// Tokenizes the simple commands that most curl commands are (like the ones
+// from "Copy as cURL") without parsing them with tree-sitter.
+//
+// It only understands a single command made of unquoted words,
+// 'single quoted', "double quoted" and $'ANSI-C quoted' strings and line
+// continuations. For anything else it returns undefined and tokenize() falls
+// back to tree-sitter, so it has to return exactly what tree-sitter would've
+// returned (and tree-sitter can't produce any warnings) whenever it doesn't
+// give up.
+
+import { Word } from "./Word.ts";
+import {
+  removeBackslashes,
+  removeDoubleQuoteBackslashes,
+  removeAnsiCBackslashes,
+} from "./unescape.ts";
+
+const TAB = 0x09;
+const NEWLINE = 0x0a;
+const SPACE = 0x20;
+const DOUBLE_QUOTE = 0x22;
+const DOLLAR = 0x24;
+const SINGLE_QUOTE = 0x27;
+const BACKSLASH = 0x5c;
+const BACKTICK = 0x60;
+
+// Characters that mean something to Bash outside of quotes, and all the
+// control characters except tab and newline
+const SPECIAL = new Uint8Array(128);
+for (const c of "`|&;<>(){}[]*?~#!") {
+  SPECIAL[c.charCodeAt(0)] = 1;
+}
+for (let c = 0; c < 0x20; c++) {
+  SPECIAL[c] = c === TAB || c === NEWLINE ? 0 : 1;
+}
+SPECIAL[0x7f] = 1;
+
+function isPlain(c: number): boolean {
+  return (
+    c !== SPACE &&
+    c !== TAB &&
+    c !== NEWLINE &&
+    c !== DOUBLE_QUOTE &&
+    c !== SINGLE_QUOTE &&
+    c !== BACKSLASH &&
+    c !== DOLLAR &&
+    (c >= 128 || !SPECIAL[c])
+  );
+}
+
+function isBlank(s: string, start: number): boolean {
+  for (let i = start; i < s.length; i++) {
+    const c = s.charCodeAt(i);
+    if (c !== SPACE && c !== TAB && c !== NEWLINE) {
+      return false;
+    }
+  }
+  return true;
+}
+
+// Returns the index of the closing quote of a string that allows backslash
+// escapes, or -1 if it isn't closed or contains $ or ` (if noExpansions)
+function findClosingQuote(
+  s: string,
+  start: number,
+  quote: number,
+  noExpansions: boolean,
+): number {
+  let i = start;
+  while (i < s.length) {
+    const c = s.charCodeAt(i);
+    if (c === quote) {
+      return i;
+    }
+    if (noExpansions && (c === DOLLAR || c === BACKTICK)) {
+      return -1;
+    }
+    i += c === BACKSLASH ? 2 : 1;
+  }
+  return -1;
+}
+
+export function fastTokenize(
+  curlCommand: string,
+): [Word[], Word?, Word?][] | undefined {
+  const len = curlCommand.length;
+  const words: Word[] = [];
+  // null when we're between words
+  let word: string | null = null;
+
+  let i = 0;
+  while (i < len) {
+    const c = curlCommand.charCodeAt(i);
+    if (c === SPACE || c === TAB || c === NEWLINE) {
+      if (word !== null) {
+        words.push(new Word(word));
+        word = null;
+      }
+      if (c === NEWLINE && words.length) {
+        // Anything after the first command needs tree-sitter
+        if (!isBlank(curlCommand, i)) {
+          return undefined;
+        }
+        break;
+      }
+      i++;
+    } else if (c === BACKSLASH) {
+      const next = curlCommand.charCodeAt(i + 1);
+      if (next === NEWLINE) {
+        // Line continuations in the middle of a word join it with the next line
+        if (word !== null) {
+          return undefined;
+        }
+        i += 2;
+        continue;
+      }
+      // tree-sitter warns about escaped spaces at the end of a line, which
+      // are usually a mistake
+      if (isNaN(next) || next === SPACE || next === TAB || next < 0x20) {
+        return undefined;
+      }
+      word = (word ?? "") + removeBackslashes(curlCommand.slice(i, i + 2));
+      i += 2;
+    } else if (c === SINGLE_QUOTE) {
+      const end = curlCommand.indexOf("'", i + 1);
+      if (end === -1) {
+        return undefined;
+      }
+      word = (word ?? "") + curlCommand.slice(i + 1, end);
+      i = end + 1;
+    } else if (c === DOUBLE_QUOTE) {
+      const end = findClosingQuote(curlCommand, i + 1, DOUBLE_QUOTE, true);
+      if (end === -1) {
+        return undefined;
+      }
+      word =
+        (word ?? "") +
+        removeDoubleQuoteBackslashes(curlCommand.slice(i + 1, end));
+      i = end + 1;
+    } else if (c === DOLLAR) {
+      if (curlCommand.charCodeAt(i + 1) !== SINGLE_QUOTE) {
+        return undefined;
+      }
+      const end = findClosingQuote(curlCommand, i + 2, SINGLE_QUOTE, false);
+      if (end === -1) {
+        return undefined;
+      }
+      word =
+        (word ?? "") + removeAnsiCBackslashes(curlCommand.slice(i + 2, end));
+      i = end + 1;
+    } else if (isPlain(c)) {
+      let end = i + 1;
+      while (end < len && isPlain(curlCommand.charCodeAt(end))) {
+        end++;
+      }
+      word = (word ?? "") + curlCommand.slice(i, end);
+      i = end;
+    } else {
+      return undefined;
+    }
+  }
+  if (word !== null) {
+    words.push(new Word(word));
+  }
+
+  // Let tree-sitter report the error
+  if (!words.length || words[0].toString().trim() !== "curl") {
+    return undefined;
+  }
+  return [[words, undefined, undefined]];
+}
@@ -8,98 +8,14 @@ import type { Parser } from "./Parser.ts";
 
 import { underlineNode, underlineCursor, type Warnings } from "../Warnings.ts";
 
-const BACKSLASHES = /\\./gs;
-function removeBackslash(m: string) {
-  return m.charAt(1) === "\n" ? "" : m.charAt(1);
-}
-function removeBackslashes(str: string): string {
-  return str.replace(BACKSLASHES, removeBackslash);
-}
-// https://www.gnu.org/software/bash/manual/bash.html#Double-Quotes
-const DOUBLE_QUOTE_BACKSLASHES = /\\[\\$`"\n]/gs;
-function removeDoubleQuoteBackslashes(str: string): string {
-  return str.replace(DOUBLE_QUOTE_BACKSLASHES, removeBackslash);
-}
-// ANSI-C quoted strings look $'like this'.
-// Not all shells have them but Bash does
-// https://www.gnu.org/software/bash/manual/html_node/ANSI_002dC-Quoting.html
-//
-// https://git.savannah.gnu.org/cgit/bash.git/tree/lib/sh/strtrans.c
-const ANSI_BACKSLASHES =
-  /\\(\\|a|b|e|E|f|n|r|t|v|'|"|\?|[0-7]{1,3}|x[0-9A-Fa-f]{1,2}|u[0-9A-Fa-f]{1,4}|U[0-9A-Fa-f]{1,8}|c.)/gs;
-function removeAnsiCBackslashes(str: string): string {
-  function unescapeChar(m: string) {
-    switch (m.charAt(1)) {
-      case "\\":
-        return "\\";
-      case "a":
-        return "\x07";
-      case "b":
-        return "\b";
-      case "e":
-      case "E":
-        return "\x1B";
-      case "f":
-        return "\f";
-      case "n":
-        return "\n";
-      case "r":
-        return "\r";
-      case "t":
-        return "\t";
-      case "v":
-        return "\v";
-      case "'":
-        return "'";
-      case '"':
-        return '"';
-      case "?":
-        return "?";
-      case "c":
-        // Bash handles all characters by considering the first byte
-        // of its UTF-8 input and can produce invalid UTF-8, whereas
-        // JavaScript stores strings in UTF-16
-        if (m.codePointAt(2)! > 127) {
-          throw new CCError(
-            'non-ASCII control character in ANSI-C quoted string: "\\u{' +
-              m.codePointAt(2)!.toString(16) +
-              '}"',
-          );
-        }
-        // If this produces a 0x00 (null) character, it will cause bash to
-        // terminate the string at that character, but we return the null
-        // character in the result.
-        return m[2] === "?"
-          ? "\x7F"
-          : String.fromCodePoint(
-              m[2].toUpperCase().codePointAt(0)! & 0b00011111,
-            );
-      case "x":
-      case "u":
-      case "U":
-        // Hexadecimal character literal
-        // Unlike bash, this will error if the the code point is greater than 10FFFF
-        return String.fromCodePoint(parseInt(m.slice(2), 16));
-      case "0":
-      case "1":
-      case "2":
-      case "3":
-      case "4":
-      case "5":
-      case "6":
-      case "7":
-        // Octal character literal
-        return String.fromCodePoint(parseInt(m.slice(1), 8) % 256);
-      default:
-        // There must be a mis-match between ANSI_BACKSLASHES and the switch statement
-        throw new CCError(
-          "unhandled character in ANSI-C escape code: " + JSON.stringify(m),
-        );
-    }
-  }
-
-  return str.replace(ANSI_BACKSLASHES, unescapeChar);
-}
+import {
+  removeBackslashes,
+  removeDoubleQuoteBackslashes,
+  removeAnsiCBackslashes,
+} from "./unescape.ts";
+import { fastTokenize } from "./fastTokenizer.ts";
+import { startPhase, endPhase } from "../timings.ts";
+import { checkInput, checkAstNodes } from "../limits.ts";
 
 function toTokens(
   node: Parser.SyntaxNode,
@@ -325,14 +241,21 @@ function warnAboutBadNodes(
 
 function warnAboutUselessBackslash(
   n: Parser.SyntaxNode,
-  curlCommandLines: string[],
+  curlCommand: string,
   warnings: Warnings,
 ) {
-  const lastCommandLine = curlCommandLines[n.endPosition.row];
+  // Only looks at the last line, instead of splitting the whole command into
+  // lines, because commands can be megabytes long
+  const lineStart = curlCommand.lastIndexOf("\n", n.endIndex - 1) + 1;
+  const lineEnd = curlCommand.indexOf("\n", n.endIndex);
+  const lastCommandLine = curlCommand.slice(
+    lineStart,
+    lineEnd === -1 ? undefined : lineEnd,
+  );
   const impromperBackslash = lastCommandLine.match(/\\\s+$/);
   if (
     impromperBackslash &&
-    curlCommandLines.length > n.endPosition.row + 1 &&
+    lineEnd !== -1 &&
     impromperBackslash.index !== undefined
   ) {
     warnings.push([
@@ -530,13 +453,7 @@ function findCurlInPipeline(
   return [command, stdin, stdinFile];
 }
 
-// TODO: check entire AST for ERROR/MISSING nodes
-// TODO: get all command nodes
-function extractCommandNodes(
-  ast: Parser.Tree,
-  curlCommand: string,
-  warnings: Warnings,
-): [Parser.SyntaxNode, Word?, Word?][] {
+function topLevelNodes(ast: Parser.Tree): Parser.SyntaxNode[] {
   // https://github.com/tree-sitter/tree-sitter-bash/blob/master/grammar.js
   // The AST must be in a nice format, i.e.
   // (program
@@ -573,51 +490,72 @@ function extractCommandNodes(
     throw new CCError('empty "program" node');
   }
 
-  const curlCommandLines = curlCommand.split("\n");
-  let sawComment = false;
+  return ast.rootNode.namedChildren;
+}
+
+// Returns the command in a top-level AST node and what it reads from stdin,
+// or undefined if the node is a comment.
+function extractCommandNode(
+  n: Parser.SyntaxNode,
+  curlCommand: string,
+  warnings: Warnings,
+): [Parser.SyntaxNode, Word?, Word?] | undefined {
+  switch (n.type) {
+    case "comment":
+      return undefined;
+    case "command":
+      return [n, undefined, undefined];
+    case "redirected_statement":
+      return extractRedirect(n, curlCommand, warnings);
+    case "pipeline":
+      return findCurlInPipeline(n, curlCommand, warnings);
+    case "heredoc_body": // https://github.com/tree-sitter/tree-sitter-bash/issues/118
+      return undefined;
+    case "ERROR":
+      throw new CCError(
+        `Bash parsing error on line ${n.startPosition.row + 1}:\n` +
+          underlineNode(n, curlCommand),
+      );
+    default:
+      // TODO: better error message.
+      throw new CCError(
+        "found " +
+          JSON.stringify(n.type) +
+          ' AST node, only "command", "pipeline" or "redirected_statement" are supported\n' +
+          underlineNode(n, curlCommand),
+      );
+  }
+}
+
+function noCommandsError(nodes: Parser.SyntaxNode[]): CCError {
+  // NOTE: if you add more node types to extractCommandNode(), this error needs to be updated.
+  // We would probably need to keep track of the node types we've seen.
+  const sawComment = nodes.some((n) => n.type === "comment");
+  return new CCError(
+    'expected a "command" or "redirected_statement" AST node' +
+      (sawComment ? ', only found "comment" nodes' : ""),
+  );
+}
+
+// TODO: check entire AST for ERROR/MISSING nodes
+// TODO: get all command nodes
+function extractCommandNodes(
+  ast: Parser.Tree,
+  curlCommand: string,
+  warnings: Warnings,
+): [Parser.SyntaxNode, Word?, Word?][] {
+  const nodes = topLevelNodes(ast);
   const commands: [Parser.SyntaxNode, Word?, Word?][] = [];
   // Get top-level command and redirected_statement AST nodes, skipping comments
-  for (const n of ast.rootNode.namedChildren) {
-    switch (n.type) {
-      case "comment":
-        sawComment = true;
-        continue;
-      case "command":
-        commands.push([n, undefined, undefined]);
-        warnAboutUselessBackslash(n, curlCommandLines, warnings);
-        break;
-      case "redirected_statement":
-        commands.push(extractRedirect(n, curlCommand, warnings));
-        warnAboutUselessBackslash(n, curlCommandLines, warnings);
-        break;
-      case "pipeline":
-        commands.push(findCurlInPipeline(n, curlCommand, warnings));
-        warnAboutUselessBackslash(n, curlCommandLines, warnings);
-        break;
-      case "heredoc_body": // https://github.com/tree-sitter/tree-sitter-bash/issues/118
-        continue;
-      case "ERROR":
-        throw new CCError(
-          `Bash parsing error on line ${n.startPosition.row + 1}:\n` +
-            underlineNode(n, curlCommand),
-        );
-      default:
-        // TODO: better error message.
-        throw new CCError(
-          "found " +
-            JSON.stringify(n.type) +
-            ' AST node, only "command", "pipeline" or "redirected_statement" are supported\n' +
-            underlineNode(n, curlCommand),
-        );
+  for (const n of nodes) {
+    const command = extractCommandNode(n, curlCommand, warnings);
+    if (command) {
+      commands.push(command);
+      warnAboutUselessBackslash(n, curlCommand, warnings);
     }
   }
   if (!commands.length) {
-    // NOTE: if you add more node types in the `for` loop above, this error needs to be updated.
-    // We would probably need to keep track of the node types we've seen.
-    throw new CCError(
-      'expected a "command" or "redirected_statement" AST node' +
-        (sawComment ? ', only found "comment" nodes' : ""),
-    );
+    throw noCommandsError(nodes);
   }
 
   return commands;
@@ -709,7 +647,23 @@ export function tokenize(
   curlCommand: string,
   warnings: Warnings = [],
 ): [Word[], Word?, Word?][] {
+  checkInput(curlCommand);
+  const start = startPhase();
+  const commands = fastTokenize(curlCommand);
+  endPhase("tokenize", start);
+  return commands ?? treeSitterTokenize(curlCommand, warnings);
+}
+
+export function treeSitterTokenize(
+  curlCommand: string,
+  warnings: Warnings = [],
+): [Word[], Word?, Word?][] {
+  let start = startPhase();
   const ast = parser.parse(curlCommand);
+  endPhase("tokenize", start);
+  checkAstNodes(ast.rootNode.descendantCount);
+
+  start = startPhase();
   warnAboutBadNodes(ast, curlCommand, warnings);
 
   // TODO: pass syntax nodes for each token downstream and use it to
@@ -720,6 +674,9 @@ export function tokenize(
   // the generated Python code we could highlight the part of the curl command
   // that it came from.
   const commandNodes = extractCommandNodes(ast, curlCommand, warnings);
+  endPhase("validate", start);
+
+  start = startPhase();
   const commands: [Word[], Word?, Word?][] = [];
   for (const [command, stdin, stdinFile] of commandNodes) {
     const [name, argv] = toNameAndArgv(command, curlCommand, warnings);
@@ -732,5 +689,180 @@ export function tokenize(
       stdinFile,
     ]);
   }
+  endPhase("tokenize", start);
   return commands;
 }
+
+type Command = [Word[], Word?, Word?];
+
+// Words that contain shell expressions have references to the AST they came
+// from, so they can't outlive it.
+function isReusable(...words: (Word | undefined)[]): boolean {
+  return words.every((w) => w === undefined || w.isString());
+}
+
+function pointAt(text: string, index: number): Parser.Point {
+  let row = 0;
+  let lineStart = 0;
+  let newline = text.indexOf("\n");
+  while (newline !== -1 && newline < index) {
+    row++;
+    lineStart = newline + 1;
+    newline = text.indexOf("\n", lineStart);
+  }
+  return { row, column: index - lineStart };
+}
+
+function advance(point: Parser.Point, text: string): Parser.Point {
+  if (!text.includes("\n")) {
+    return { row: point.row, column: point.column + text.length };
+  }
+  const end = pointAt(text, text.length);
+  return { row: point.row + end.row, column: end.column };
+}
+
+/**
+ * Tokenizes a command while it's being edited, for example in a text editor.
+ * After an edit, tree-sitter only re-parses the part of the command that
+ * changed and the commands and arguments whose text didn't change reuse the
+ * Words from the previous call to tokenize().
+ *
+ * Words containing shell expressions returned by one call to tokenize()
+ * shouldn't be used after the next one.
+ */
+export class TokenizeSession {
+  private _text: string;
+  private tree: Parser.Tree | null = null;
+  private commands = new Map<string, Command>();
+  private args = new Map<string, Word>();
+
+  constructor(text = "") {
+    this._text = text;
+  }
+
+  get text(): string {
+    return this._text;
+  }
+
+  // Replaces the text between start and end with newText
+  edit(start: number, end: number, newText: string) {
+    if (start < 0 || end < start || end > this._text.length) {
+      throw new CCError(
+        `invalid edit: can't replace characters ${start} to ${end} of a ${this._text.length} character command`,
+      );
+    }
+    if (this.tree !== null) {
+      const startPosition = pointAt(this._text, start);
+      const oldEndPosition = pointAt(this._text, end);
+      this.tree.edit({
+        startIndex: start,
+        oldEndIndex: end,
+        newEndIndex: start + newText.length,
+        startPosition,
+        oldEndPosition,
+        newEndPosition: advance(startPosition, newText),
+      });
+    }
+    this._text = this._text.slice(0, start) + newText + this._text.slice(end);
+  }
+
+  setText(text: string) {
+    this.edit(0, this._text.length, text);
+  }
+
+  tokenize(warnings: Warnings = []): Command[] {
+    const curlCommand = this._text;
+    const oldTree = this.tree;
+    checkInput(curlCommand);
+    let start = startPhase();
+    const ast = parser.parse(curlCommand, oldTree);
+    endPhase("tokenize", start);
+    this.tree = ast;
+    // web-tree-sitter trees have to be freed manually. Nothing we kept
+    // refers to the old tree.
+    (oldTree as { delete?: () => void } | null)?.delete?.();
+    checkAstNodes(ast.rootNode.descendantCount);
+    start = startPhase();
+    warnAboutBadNodes(ast, curlCommand, warnings);
+
+    const commands = new Map<string, Command>();
+    const args = new Map<string, Word>();
+    const result: (Command | undefined)[] = [];
+    const changed: [number, string, [Parser.SyntaxNode, Word?, Word?]][] =
+      [];
+    // Same as extractCommandNodes() but skips the commands that didn't change
+    const nodes = topLevelNodes(ast);
+    for (const n of nodes) {
+      const text = n.text;
+      const cached = this.commands.get(text);
+      if (cached) {
+        commands.set(text, cached);
+        const [argv, stdin, stdinFile] = cached;
+        result.push([[...argv], stdin, stdinFile]);
+        warnAboutUselessBackslash(n, curlCommand, warnings);
+        continue;
+      }
+
+      const warningCount = warnings.length;
+      const command = extractCommandNode(n, curlCommand, warnings);
+      if (command) {
+        // Commands that cause warnings aren't cached so that the warnings
+        // get added again
+        changed.push([
+          result.length,
+          warnings.length === warningCount ? text : "",
+          command,
+        ]);
+        result.push(undefined);
+        warnAboutUselessBackslash(n, curlCommand, warnings);
+      }
+    }
+    if (!result.length) {
+      throw noCommandsError(nodes);
+    }
+    endPhase("validate", start);
+
+    start = startPhase();
+    for (const [i, text, [command, stdin, stdinFile]] of changed) {
+      const warningCount = warnings.length;
+      const [name, argv] = toNameAndArgv(command, curlCommand, warnings);
+      const words = [
+        nameToWord(name, curlCommand, warnings),
+        ...argv.map((arg) => this.argToWord(arg, args, curlCommand, warnings)),
+      ];
+      result[i] = [words, stdin, stdinFile];
+      if (
+        text &&
+        warnings.length === warningCount &&
+        isReusable(...words, stdin, stdinFile)
+      ) {
+        commands.set(text, [[...words], stdin, stdinFile]);
+      }
+    }
+
+    endPhase("tokenize", start);
+
+    this.commands = commands;
+    this.args = args;
+    return result as Command[];
+  }
+
+  private argToWord(
+    arg: Parser.SyntaxNode,
+    args: Map<string, Word>,
+    curlCommand: string,
+    warnings: Warnings,
+  ): Word {
+    const text = arg.text;
+    let word = this.args.get(text) ?? args.get(text);
+    if (word === undefined) {
+      const warningCount = warnings.length;
+      word = toWord(arg, curlCommand, warnings);
+      if (warnings.length !== warningCount || !isReusable(word)) {
+        return word;
+      }
+    }
+    args.set(text, word);
+    return word;
+  }
+}
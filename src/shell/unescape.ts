@@ -0,0 +1,204 @@
+// Removes the backslashes from the different kinds of Bash strings.
+//
+// These scan for backslashes with indexOf() and copy everything between them
+// with slice(), instead of calling a function for every regex match, because
+// pasted commands can contain megabytes of escaped data.
+
+import { CCError } from "../utils.ts";
+
+const NEWLINE = 0x0a;
+const DOUBLE_QUOTE = 0x22;
+const DOLLAR = 0x24;
+const QUESTION_MARK = 0x3f;
+const BACKSLASH = 0x5c;
+const BACKTICK = 0x60;
+
+// Removes every backslash and the newlines that come right after one
+export function removeBackslashes(str: string): string {
+  let i = str.indexOf("\\");
+  if (i === -1) {
+    return str;
+  }
+  let out = "";
+  let start = 0;
+  while (i !== -1 && i + 1 < str.length) {
+    out += str.slice(start, i);
+    if (str.charCodeAt(i + 1) !== NEWLINE) {
+      out += str[i + 1];
+    }
+    start = i + 2;
+    i = str.indexOf("\\", start);
+  }
+  return out + str.slice(start);
+}
+
+// https://www.gnu.org/software/bash/manual/bash.html#Double-Quotes
+export function removeDoubleQuoteBackslashes(str: string): string {
+  let i = str.indexOf("\\");
+  if (i === -1) {
+    return str;
+  }
+  let out = "";
+  let start = 0;
+  while (i !== -1 && i + 1 < str.length) {
+    switch (str.charCodeAt(i + 1)) {
+      case BACKSLASH:
+      case DOLLAR:
+      case BACKTICK:
+      case DOUBLE_QUOTE:
+        out += str.slice(start, i) + str[i + 1];
+        start = i + 2;
+        i = str.indexOf("\\", start);
+        break;
+      case NEWLINE:
+        out += str.slice(start, i);
+        start = i + 2;
+        i = str.indexOf("\\", start);
+        break;
+      default:
+        // Other backslashes are kept
+        i = str.indexOf("\\", i + 1);
+    }
+  }
+  return out + str.slice(start);
+}
+
+function isOctal(c: number): boolean {
+  return c >= 0x30 && c <= 0x37;
+}
+function isHex(c: number): boolean {
+  return (
+    (c >= 0x30 && c <= 0x39) ||
+    (c >= 0x41 && c <= 0x46) ||
+    (c >= 0x61 && c <= 0x66)
+  );
+}
+
+// Returns the index after the last of up to maxDigits digits starting at start
+function scanDigits(
+  str: string,
+  start: number,
+  maxDigits: number,
+  isDigit: (c: number) => boolean,
+): number {
+  const end = Math.min(start + maxDigits, str.length);
+  let i = start;
+  while (i < end && isDigit(str.charCodeAt(i))) {
+    i++;
+  }
+  return i;
+}
+
+// ANSI-C quoted strings look $'like this'.
+// Not all shells have them but Bash does
+// https://www.gnu.org/software/bash/manual/html_node/ANSI_002dC-Quoting.html
+//
+// https://git.savannah.gnu.org/cgit/bash.git/tree/lib/sh/strtrans.c
+export function removeAnsiCBackslashes(str: string): string {
+  let i = str.indexOf("\\");
+  if (i === -1) {
+    return str;
+  }
+  let out = "";
+  let start = 0;
+  while (i !== -1 && i + 1 < str.length) {
+    // What the escape sequence turns into and the index after it, or
+    // null if it's not an escape sequence, in which case the backslash is kept
+    let unescaped: string | null = null;
+    let end = i + 2;
+    const c = str[i + 1];
+    switch (c) {
+      case "\\":
+        unescaped = "\\";
+        break;
+      case "a":
+        unescaped = "\x07";
+        break;
+      case "b":
+        unescaped = "\b";
+        break;
+      case "e":
+      case "E":
+        unescaped = "\x1B";
+        break;
+      case "f":
+        unescaped = "\f";
+        break;
+      case "n":
+        unescaped = "\n";
+        break;
+      case "r":
+        unescaped = "\r";
+        break;
+      case "t":
+        unescaped = "\t";
+        break;
+      case "v":
+        unescaped = "\v";
+        break;
+      case "'":
+      case '"':
+      case "?":
+        unescaped = c;
+        break;
+      case "c": {
+        if (i + 2 >= str.length) {
+          break;
+        }
+        const control = str.charCodeAt(i + 2);
+        // Bash handles all characters by considering the first byte
+        // of its UTF-8 input and can produce invalid UTF-8, whereas
+        // JavaScript stores strings in UTF-16
+        if (control > 127) {
+          throw new CCError(
+            'non-ASCII control character in ANSI-C quoted string: "\\u{' +
+              control.toString(16) +
+              '}"',
+          );
+        }
+        // If this produces a 0x00 (null) character, it will cause bash to
+        // terminate the string at that character, but we return the null
+        // character in the result.
+        unescaped =
+          control === QUESTION_MARK
+            ? "\x7F"
+            : String.fromCodePoint(
+                str[i + 2].toUpperCase().charCodeAt(0) & 0b00011111,
+              );
+        end = i + 3;
+        break;
+      }
+      case "x":
+      case "u":
+      case "U": {
+        // Hexadecimal character literal
+        // Unlike bash, this will error if the the code point is greater than 10FFFF
+        const maxDigits = c === "x" ? 2 : c === "u" ? 4 : 8;
+        end = scanDigits(str, i + 2, maxDigits, isHex);
+        if (end > i + 2) {
+          unescaped = String.fromCodePoint(
+            parseInt(str.slice(i + 2, end), 16),
+          );
+        }
+        break;
+      }
+      default:
+        if (isOctal(str.charCodeAt(i + 1))) {
+          // Octal character literal
+          end = scanDigits(str, i + 1, 3, isOctal);
+          unescaped = String.fromCodePoint(
+            parseInt(str.slice(i + 1, end), 8) % 256,
+          );
+        }
+    }
+
+    if (unescaped === null) {
+      i = str.indexOf("\\", i + 1);
+      continue;
+    }
+    out += str.slice(start, i) + unescaped;
+    start = end;
+    i = str.indexOf("\\", start);
+  }
+  return out + str.slice(start);
+}
@@ -0,0 +1,123 @@
+// Optional instrumentation of how long each phase of a conversion takes and
+// how much the heap grew while it ran.
+//
+// Nothing is measured until a hook is set with setTimingsHook() (or while
+// collectTimings() is running), so when it's off each phase only costs a
+// null check.
+
+import type { Request } from "./Request.ts";
+import type { Warnings } from "./Warnings.ts";
+
+export type Phase =
+  // Splitting the Bash code into commands and arguments
+  | "tokenize"
+  // Checking the tree-sitter AST for syntax we can't convert
+  | "validate"
+  // Parsing curl's arguments
+  | "parseArgs"
+  // Turning the parsed arguments into Request objects
+  | "buildRequests"
+  // Generating the code
+  | "generate";
+
+export const phases: Phase[] = [
+  "tokenize",
+  "validate",
+  "parseArgs",
+  "buildRequests",
+  "generate",
+];
+
+export interface PhaseTiming {
+  phase: Phase;
+  durationMs: number;
+  // Can be negative if the garbage collector ran during the phase.
+  // Always 0 outside of Node.
+  heapDeltaBytes: number;
+}
+
+export type TimingsHook = (timing: PhaseTiming) => void;
+
+let hook: TimingsHook | null = null;
+
+// Calls hook once every time a phase ends, until it's set to null
+export function setTimingsHook(newHook: TimingsHook | null) {
+  hook = newHook;
+}
+
+interface Mark {
+  time: number;
+  heapUsed: number;
+}
+
+function heapUsed(): number {
+  return typeof process !== "undefined" &&
+    typeof process.memoryUsage === "function"
+    ? process.memoryUsage().heapUsed
+    : 0;
+}
+
+// Returns undefined if there's no hook
+export function startPhase(): Mark | undefined {
+  if (hook === null) {
+    return undefined;
+  }
+  return { time: performance.now(), heapUsed: heapUsed() };
+}
+
+export function endPhase(phase: Phase, start: Mark | undefined) {
+  if (start === undefined || hook === null) {
+    return;
+  }
+  hook({
+    phase,
+    durationMs: performance.now() - start.time,
+    heapDeltaBytes: heapUsed() - start.heapUsed,
+  });
+}
+
+// Calls a generator's _toX() function as the "generate" phase
+export function timeGeneration<T>(
+  generator: (requests: Request[], warnings: Warnings) => T,
+  requests: Request[],
+  warnings: Warnings,
+): T {
+  const start = startPhase();
+  const code = generator(requests, warnings);
+  endPhase("generate", start);
+  return code;
+}
+
+/**
+ * Calls f and returns what it returned and every phase that ended while it
+ * ran, in the order they ended. A command with several curl commands in it
+ * has a "parseArgs" and "buildRequests" phase for each one.
+ */
+export function collectTimings<T>(f: () => T): [T, PhaseTiming[]] {
+  const timings: PhaseTiming[] = [];
+  const previous = hook;
+  hook = (timing) => {
+    timings.push(timing);
+    previous?.(timing);
+  };
+  try {
+    return [f(), timings];
+  } finally {
+    hook = previous;
+  }
+}
+
+// Adds up the timings of each phase. Phases that didn't run are left out.
+export function summarizeTimings(timings: PhaseTiming[]): PhaseTiming[] {
+  const totals = new Map<Phase, PhaseTiming>();
+  for (const t of timings) {
+    const total = totals.get(t.phase);
+    if (total === undefined) {
+      totals.set(t.phase, { ...t });
+    } else {
+      total.durationMs += t.durationMs;
+      total.heapDeltaBytes += t.heapDeltaBytes;
+    }
+  }
+  return phases.filter((p) => totals.has(p)).map((p) => totals.get(p)!);
+}
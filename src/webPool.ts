@@ -0,0 +1,31 @@
+// This file replaces pool.ts when curlconverter is running in the browser,
+// which doesn't have worker_threads. It exports the same names so that
+// index.ts can re-export them, but a pool can't be created.
+
+import type {
+  ConverterPoolErrorReason,
+  ConverterPoolOptions,
+} from "./pool.ts";
+
+export class ConverterPoolError extends Error {
+  readonly reason: ConverterPoolErrorReason;
+
+  constructor(message: string, reason: ConverterPoolErrorReason) {
+    super(message);
+    this.name = "ConverterPoolError";
+    this.reason = reason;
+  }
+}
+
+export class ConverterPool {
+  // eslint-disable-next-line @typescript-eslint/no-unused-vars
+  constructor(options: ConverterPoolOptions = {}) {
+    throw new Error("converter pools need worker threads, only Node has them");
+  }
+}
+
+export function createConverterPool(
+  options: ConverterPoolOptions = {},
+): ConverterPool {
+  return new ConverterPool(options);
+}
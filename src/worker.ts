@@ -0,0 +1,16 @@
+// Entry point of the worker threads started by WorkerPool in pool.ts
+
+import { parentPort } from "worker_threads";
+
+import { convert, convertMany } from "./convert.ts";
+import type { WorkerMessage } from "./pool.ts";
+
+parentPort!.on("message", async (message: WorkerMessage) => {
+  if (message.type === "convertMany") {
+    parentPort!.postMessage(
+      await convertMany(message.command, message.languages, message.stdin),
+    );
+  } else {
+    parentPort!.postMessage(await convert(message.request));
+  }
+});
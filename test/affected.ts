@@ -0,0 +1,162 @@
+// Works out which source files each converter depends on by following the
+// imports in src/, so that only the fixtures a change could have affected
+// have to be tested or regenerated.
+//
+// All paths are relative to the root of the repo, with forward slashes, like
+// the ones git prints.
+
+import { execFileSync } from "child_process";
+import fs from "fs";
+import path from "path";
+
+import { converters, fixturesDir } from "./test-utils.ts";
+import type { Converter } from "./test-utils.ts";
+import type { FixtureLanguage } from "./checkFixture.ts";
+
+export const rootDir = path.resolve(fixturesDir, "../..");
+
+// import ... from "./x.ts", export ... from "./x.ts", import "./x.ts" and
+// import("./x.ts")
+const importRegex = /(?:\bfrom|\bimport)\s*\(?\s*"(\.{1,2}\/[^"]+)"/g;
+
+const importsCache = new Map<string, string[]>();
+function imports(file: string): string[] {
+  let result = importsCache.get(file);
+  if (result === undefined) {
+    result = [];
+    const source = fs.readFileSync(path.join(rootDir, file), "utf8");
+    for (const match of source.matchAll(importRegex)) {
+      result.push(path.posix.join(path.posix.dirname(file), match[1]));
+    }
+    importsCache.set(file, result);
+  }
+  return result;
+}
+
+/**
+ * Returns the file and every file it imports, directly or not, sorted.
+ */
+export function sourcesOf(file: string): string[] {
+  const seen = new Set<string>();
+  const stack = [file];
+  while (stack.length) {
+    const f = stack.pop() as string;
+    if (seen.has(f) || !fs.existsSync(path.join(rootDir, f))) {
+      continue;
+    }
+    seen.add(f);
+    stack.push(...imports(f));
+  }
+  return [...seen].sort();
+}
+
+// Maps "toPython" to "src/generators/python/python.ts", from the exports in
+// index.ts
+let exportedFrom: Map<string, string> | undefined;
+function moduleOf(functionName: string): string {
+  if (exportedFrom === undefined) {
+    exportedFrom = new Map();
+    const index = fs.readFileSync(path.join(rootDir, "src/index.ts"), "utf8");
+    for (const match of index.matchAll(
+      /export\s*\{([^}]*)\}\s*from\s*"([^"]+)"/g,
+    )) {
+      const file = path.posix.join("src", match[2]);
+      for (const name of match[1].split(",")) {
+        // "toJavaScript as toBrowser" is toJavaScript
+        const original = name.trim().split(/\s+/)[0];
+        if (original && !exportedFrom.has(original)) {
+          exportedFrom.set(original, file);
+        }
+      }
+    }
+  }
+  const file = exportedFrom.get(functionName);
+  if (file === undefined) {
+    throw new Error(functionName + " isn't exported from src/index.ts");
+  }
+  return file;
+}
+
+/**
+ * Returns the source files that can change what a converter outputs.
+ */
+export function converterSources(language: Converter): string[] {
+  if (language === "parser") {
+    // toParser() in test-utils.ts
+    return sourcesOf("src/parse.ts");
+  }
+  return sourcesOf(moduleOf(converters[language].converter.name));
+}
+
+/**
+ * Returns the files that are different from the base commit, including
+ * uncommitted and untracked ones.
+ */
+export function changedFiles(base = "HEAD"): string[] {
+  const git = (args: string[]) =>
+    execFileSync("git", args, { cwd: rootDir, encoding: "utf8" })
+      .split("\n")
+      .filter((f) => f);
+  return [
+    ...new Set([
+      ...git(["diff", "--name-only", base]),
+      ...git(["ls-files", "--others", "--exclude-standard"]),
+    ]),
+  ].sort();
+}
+
+// Files that can change the result of every test. test-utils.ts decides
+// which function each language calls and has toParser(), checkFixture.ts is
+// the check itself and the package files decide which tree-sitter-bash
+// parses the commands.
+const everyTestSources = [
+  "package.json",
+  "package-lock.json",
+  "test/checkFixture.ts",
+  "test/test-utils.ts",
+];
+
+function testSources(language: FixtureLanguage): string[] {
+  if (language === "fast-tokenizer") {
+    return [
+      ...sourcesOf("src/shell/fastTokenizer.ts"),
+      ...sourcesOf("src/shell/tokenizer.ts"),
+    ];
+  }
+  return converterSources(language);
+}
+
+/**
+ * Returns a function that says whether a changed file could change the
+ * result of converting a fixture (a file name in curl_commands/ without
+ * the .sh) to a language, because it's the input, the expected output or
+ * one of the converter's source files.
+ */
+export function affectedBy(
+  changed: string[],
+): (fixture: string, language: FixtureLanguage) => boolean {
+  const changedSet = new Set(changed);
+  if (everyTestSources.some((f) => changedSet.has(f))) {
+    return () => true;
+  }
+  const languageChanged = new Map<FixtureLanguage, boolean>();
+  return (fixture, language) => {
+    let sourceChanged = languageChanged.get(language);
+    if (sourceChanged === undefined) {
+      sourceChanged = testSources(language).some((f) => changedSet.has(f));
+      languageChanged.set(language, sourceChanged);
+    }
+    return (
+      sourceChanged ||
+      changedSet.has("test/fixtures/curl_commands/" + fixture + ".sh") ||
+      (language !== "fast-tokenizer" &&
+        changedSet.has(
+          "test/fixtures/" +
+            language +
+            "/" +
+            fixture +
+            converters[language].extension,
+        ))
+    );
+  };
+}
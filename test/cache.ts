@@ -0,0 +1,78 @@
+import test from "tape";
+
+import {
+  LRUCache,
+  cacheStats,
+  disableCache,
+  enableCache,
+} from "../src/cache.ts";
+import { toPythonWarn } from "../src/generators/python/python.ts";
+
+function result(command: string | string[]): string {
+  try {
+    return JSON.stringify(toPythonWarn(command));
+  } catch (e) {
+    return "threw " + (e as Error).message;
+  }
+}
+
+test("cache: LRUCache evicts the least recently used entry", (t) => {
+  const cache = new LRUCache<number>(2);
+  cache.set("a", "curl a", 1);
+  cache.set("b", "curl b", 2);
+  t.equal(cache.get("a", "curl a"), 1);
+  cache.set("c", "curl c", 3);
+  t.equal(cache.get("b", "curl b"), undefined, "b was used least recently");
+  t.equal(cache.get("a", "curl a"), 1);
+  t.equal(cache.get("c", "curl c"), 3);
+  t.equal(
+    cache.get("a", "curl other"),
+    undefined,
+    "a hash collision is a miss",
+  );
+  t.deepEqual(cache.stats, {
+    hits: 3,
+    misses: 2,
+    evictions: 1,
+    size: 2,
+    maxSize: 2,
+  });
+  t.end();
+});
+
+test("cache: a hit returns what a miss returned", (t) => {
+  enableCache(10);
+  try {
+    const [code, warnings] = toPythonWarn("curl ftp://example.com");
+    t.equal(warnings[0][0], "bad-scheme");
+    // Changing the warnings that were returned doesn't change the cached ones
+    warnings.length = 0;
+    t.deepEqual(toPythonWarn("curl ftp://example.com"), [
+      code,
+      [["bad-scheme", 'Protocol "ftp" not supported']],
+    ]);
+    const stats = cacheStats();
+    t.equal(stats?.hits, 1);
+    t.equal(stats?.misses, 1);
+    t.equal(stats?.size, 1);
+  } finally {
+    disableCache();
+  }
+  t.equal(cacheStats(), null);
+  t.end();
+});
+
+test("cache: argv arrays and strings don't share entries", (t) => {
+  const argv = ["curl", "example.com"];
+  const bash = JSON.stringify(argv);
+  const uncached = result(bash);
+  enableCache(10);
+  try {
+    const fromArgv = result(argv);
+    t.notEqual(fromArgv, uncached);
+    t.equal(result(bash), uncached);
+  } finally {
+    disableCache();
+  }
+  t.end();
+});
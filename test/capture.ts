@@ -0,0 +1,144 @@
+import crypto from "crypto";
+
+import test from "tape";
+
+import { RequestParser, formatRequest } from "../tools/capture.ts";
+import type { CapturedRequest } from "../tools/capture.ts";
+
+function sha256(data: Buffer): string {
+  return crypto.createHash("sha256").update(data).digest("hex");
+}
+
+function parse(data: Buffer, chunkSize: number): CapturedRequest[] {
+  const parser = new RequestParser();
+  const requests: CapturedRequest[] = [];
+  for (let i = 0; i < data.length; i += chunkSize) {
+    requests.push(...parser.push(data.subarray(i, i + chunkSize)));
+  }
+  const last = parser.end();
+  if (last) {
+    requests.push(last);
+  }
+  return requests;
+}
+
+const binaryBody = Buffer.from([0, 0xff, 0x0d, 0x0a, 0x0d, 0x0a, 0x80, 0x41]);
+const stream = Buffer.concat([
+  // Content-Length, with a header value that isn't valid UTF-8
+  Buffer.from("POST /upload HTTP/1.1\r\nContent-Length: 8\r\nX-Bytes: "),
+  Buffer.from([0xc3, 0x28, 0xff]),
+  Buffer.from("\r\n\r\n"),
+  binaryBody,
+  // No body
+  Buffer.from("GET /a%20b?c=d HTTP/1.1\r\nHost: localhost\r\n\r\n"),
+  // Chunked, with a chunk extension and a trailer
+  Buffer.from(
+    "PUT / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n" +
+      "5;ext=1\r\nhello\r\n6\r\n world\r\n0\r\nX-Trailer: yes\r\n\r\n",
+  ),
+  // Cut off in the middle of the body
+  Buffer.from("POST / HTTP/1.1\r\nContent-Length: 10\r\n\r\nabc"),
+]);
+
+test("capture: requests are the same however the bytes are split", (t) => {
+  const whole = parse(stream, stream.length);
+  t.deepEqual(whole, [
+    {
+      method: "POST",
+      target: "/upload",
+      version: "HTTP/1.1",
+      headers: [
+        ["Content-Length", "8"],
+        ["X-Bytes", "\xc3(\xff"],
+      ],
+      bodyLength: 8,
+      bodySha256: sha256(binaryBody),
+      complete: true,
+    },
+    {
+      method: "GET",
+      target: "/a%20b?c=d",
+      version: "HTTP/1.1",
+      headers: [["Host", "localhost"]],
+      bodyLength: 0,
+      bodySha256: sha256(Buffer.alloc(0)),
+      bodyText: "",
+      complete: true,
+    },
+    {
+      method: "PUT",
+      target: "/",
+      version: "HTTP/1.1",
+      headers: [
+        ["Transfer-Encoding", "chunked"],
+        ["X-Trailer", "yes"],
+      ],
+      bodyLength: 11,
+      bodySha256: sha256(Buffer.from("hello world")),
+      bodyText: "hello world",
+      complete: true,
+    },
+    {
+      method: "POST",
+      target: "/",
+      version: "HTTP/1.1",
+      headers: [["Content-Length", "10"]],
+      bodyLength: 3,
+      bodySha256: sha256(Buffer.from("abc")),
+      bodyText: "abc",
+      complete: false,
+    },
+  ]);
+  for (const chunkSize of [1, 2, 3, 7]) {
+    t.deepEqual(parse(stream, chunkSize), whole, chunkSize + " byte chunks");
+  }
+  t.end();
+});
+
+test("capture: an unreadable chunk size makes the rest the body", (t) => {
+  const rest = Buffer.from([0x7a, 0xff, 0x0d, 0x0a, 0x61, 0x62]);
+  const data = Buffer.concat([
+    Buffer.from("POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"),
+    rest,
+  ]);
+  for (const chunkSize of [1, data.length]) {
+    const [request, ...others] = parse(data, chunkSize);
+    t.deepEqual(others, []);
+    t.equal(request.bodyLength, rest.length);
+    t.equal(request.bodySha256, sha256(rest), "the bytes that were sent");
+    t.ok(request.complete);
+  }
+  t.end();
+});
+
+test("capture: an unreadable Content-Length makes the rest the body", (t) => {
+  const data = Buffer.from(
+    "POST / HTTP/1.1\r\nContent-Length: ten\r\n\r\nGET / HTTP/1.1\r\n\r\n",
+  );
+  const [request, ...others] = parse(data, data.length);
+  t.deepEqual(others, []);
+  t.equal(request.bodyText, "GET / HTTP/1.1\r\n\r\n");
+  t.ok(request.complete);
+  t.end();
+});
+
+test("capture: Expect: 100-continue is answered before the body", (t) => {
+  const events: string[] = [];
+  const parser = new RequestParser(() => events.push("continue"));
+  const head = Buffer.from(
+    "PUT / HTTP/1.1\r\nExpect: 100-continue\r\nContent-Length: 2\r\n\r\n",
+  );
+  t.deepEqual(parser.push(head), []);
+  t.deepEqual(events, ["continue"]);
+  const [request] = parser.push(Buffer.from("ab"));
+  t.equal(request.bodyText, "ab");
+  t.deepEqual(events, ["continue"], "only once");
+  t.equal(
+    formatRequest(request),
+    "PUT / HTTP/1.1\ncontent-length: 2\n\n[body: 2 bytes, sha256 " +
+      request.bodySha256.slice(0, 16) +
+      "]\nab\n",
+    "Expect isn't diffed",
+  );
+  t.end();
+});
@@ -0,0 +1,148 @@
+// The check that each fixture test does, shared by test.ts, which runs them
+// one after another with tape, and the worker threads of parallel.ts.
+
+import fs from "fs";
+import path from "path";
+import { isDeepStrictEqual } from "util";
+
+import { fixturesDir, converters } from "./test-utils.ts";
+import type { Converter } from "./test-utils.ts";
+import { fastTokenize } from "../src/shell/fastTokenizer.ts";
+import { treeSitterTokenize } from "../src/shell/tokenizer.ts";
+import type { Warnings } from "../src/Warnings.ts";
+
+// "fast-tokenizer" checks that the fast tokenizer returns the same thing as
+// tree-sitter for the fixture
+export type FixtureLanguage = Converter | "fast-tokenizer";
+
+export interface FixtureTask {
+  // The file name in curl_commands/ without the .sh
+  fixture: string;
+  language: FixtureLanguage;
+}
+
+export interface FixtureResult extends FixtureTask {
+  status: "ok" | "fail" | "skip";
+  message?: string;
+  // What was compared, if they were different. test.ts shows all of them,
+  // the worker threads don't send them back.
+  actual?: unknown;
+  expected?: unknown;
+}
+
+// normalize code for just \n line endings (aka fix input under Windows)
+export function readFixture(...segments: string[]): string {
+  return fs
+    .readFileSync(path.resolve(fixturesDir, ...segments), "utf8")
+    .replace(/\r\n/g, "\n");
+}
+
+function firstDifference(expected: string, actual: string): string {
+  const expectedLines = expected.split("\n");
+  const actualLines = actual.split("\n");
+  let i = 0;
+  while (
+    i < expectedLines.length &&
+    i < actualLines.length &&
+    expectedLines[i] === actualLines[i]
+  ) {
+    i++;
+  }
+  return (
+    "first difference on line " +
+    (i + 1) +
+    "\n  expected: " +
+    (i < expectedLines.length
+      ? JSON.stringify(expectedLines[i])
+      : "end of file") +
+    "\n  actual:   " +
+    (i < actualLines.length ? JSON.stringify(actualLines[i]) : "end of file")
+  );
+}
+
+function threw(task: FixtureTask, e: unknown): FixtureResult {
+  return {
+    ...task,
+    status: "fail",
+    message: "threw " + ((e as Error).stack ?? String(e)),
+  };
+}
+
+function checkFastTokenizer(task: FixtureTask, input: string): FixtureResult {
+  const warnings: Warnings = [];
+  let fastTokens, treeSitterTokens;
+  try {
+    fastTokens = fastTokenize(input);
+    if (!fastTokens) {
+      return { ...task, status: "skip", message: "the fast tokenizer gave up" };
+    }
+    treeSitterTokens = treeSitterTokenize(input, warnings);
+  } catch (e) {
+    return threw(task, e);
+  }
+  if (!isDeepStrictEqual(fastTokens, treeSitterTokens)) {
+    return {
+      ...task,
+      status: "fail",
+      message: "returned different words than tree-sitter",
+      actual: fastTokens,
+      expected: treeSitterTokens,
+    };
+  }
+  if (warnings.length) {
+    return {
+      ...task,
+      status: "fail",
+      message: "tree-sitter warned",
+      actual: warnings,
+      expected: [],
+    };
+  }
+  return { ...task, status: "ok" };
+}
+
+/**
+ * Converts a fixture's command to a language and compares it to the
+ * expected output, which has to exist.
+ */
+export function checkFixture(task: FixtureTask): FixtureResult {
+  const input = readFixture("curl_commands", task.fixture + ".sh");
+  if (task.language === "fast-tokenizer") {
+    return checkFastTokenizer(task, input);
+  }
+
+  const converter = converters[task.language];
+  const expected = readFixture(
+    task.language,
+    task.fixture + converter.extension,
+  );
+  let actual: string;
+  try {
+    actual = converter.converter(input);
+  } catch (e) {
+    return threw(task, e);
+  }
+  if (task.language === "parser") {
+    // TODO: `actual` is a needless roundtrip
+    const actualJSON = JSON.parse(actual);
+    const expectedJSON = JSON.parse(expected);
+    if (!isDeepStrictEqual(actualJSON, expectedJSON)) {
+      return {
+        ...task,
+        status: "fail",
+        message: firstDifference(expected, actual),
+        actual: actualJSON,
+        expected: expectedJSON,
+      };
+    }
+  } else if (actual !== expected) {
+    return {
+      ...task,
+      status: "fail",
+      message: firstDifference(expected, actual),
+      actual,
+      expected,
+    };
+  }
+  return { ...task, status: "ok" };
+}
@@ -0,0 +1,71 @@
+import fs from "fs";
+import path from "path";
+
+import test from "tape";
+
+import { convertMany } from "../src/convert.ts";
+import { loadLanguage } from "../src/languages.ts";
+import type { Warnings } from "../src/Warnings.ts";
+import { fixturesDir } from "./test-utils.ts";
+
+// Python, Go, PHP, HAR, HTTP and Elixir delete or set headers on the Request
+// they're given, so they come first to check that the languages after them
+// get an unchanged copy
+const languages = [
+  "python",
+  "go",
+  "php",
+  "har",
+  "http",
+  "elixir",
+  "javascript",
+  "c",
+  "json",
+];
+
+const fixtures = [
+  "post_json",
+  "get_with_browser_headers",
+  "multipart_with_headers",
+  "get_with_env_var",
+  "get_proxy_with_auth",
+  "multiple_commands",
+  "bash_redirect_herestring",
+  "post_binary_file",
+];
+
+// convertMany() puts warnings about unsupported arguments after the rest
+function sorted(warnings: Warnings): Warnings {
+  return [...warnings].sort((a, b) =>
+    JSON.stringify(a).localeCompare(JSON.stringify(b)),
+  );
+}
+
+test("convertMany: each language gets what toXWarn() returns", async (t) => {
+  for (const fixture of fixtures) {
+    const command = fs.readFileSync(
+      path.resolve(fixturesDir, "curl_commands", fixture + ".sh"),
+      "utf8",
+    );
+    const results = await convertMany(command, languages);
+    for (const language of languages) {
+      const [, warnGenerator] = await loadLanguage(language);
+      const result = results[language];
+      let code: string;
+      let warnings: Warnings;
+      try {
+        [code, warnings] = warnGenerator(command, []);
+      } catch (e) {
+        t.equal(result.error, (e as Error).message, fixture + " " + language);
+        continue;
+      }
+      t.equal(result.code, code, fixture + " " + language + " code");
+      t.deepEqual(
+        sorted(result.warnings),
+        sorted(warnings),
+        fixture + " " + language + " warnings",
+      );
+    }
+  }
+  t.end();
+});
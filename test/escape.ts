@@ -0,0 +1,90 @@
+// Checks that the string escaping in the generators that use
+// src/generators/escape.ts does exactly what the regexes it replaced did, on
+// random strings full of characters that need escaping.
+
+import test from "tape";
+
+import { reprStr as javaReprStr } from "../src/generators/java/java.ts";
+import { reprStr as pythonReprStr } from "../src/generators/python/python.ts";
+import { esc as jsEsc } from "../src/generators/javascript/javascript.ts";
+import { reprStr as cReprStr } from "../src/generators/c.ts";
+import * as reference from "./regexEscape.ts";
+
+const ALPHABET = [
+  ..."\\'\"abc 019\0\x07\b\f\n\r\t\v\x1b\x7f",
+  "\x85",
+  "\xa0",
+  "\xad",
+  "é",
+  "\u2028",
+  "\u3000",
+  "\ufeff",
+  "\uffff",
+  "\uD83D",
+  "\uDE00",
+  "😀",
+  "\u{E0001}",
+  "\u{F0000}",
+];
+
+// https://en.wikipedia.org/wiki/Linear_congruential_generator
+let seed = 12345;
+function random(n: number): number {
+  seed = (Math.imul(seed, 1103515245) + 12345) >>> 0;
+  return (seed >>> 16) % n;
+}
+
+function randomString(): string {
+  let s = "";
+  const length = random(24);
+  for (let i = 0; i < length; i++) {
+    s += ALPHABET[random(ALPHABET.length)];
+  }
+  return s;
+}
+
+const functions: [string, (s: string) => string, (s: string) => string][] = [
+  ["Java reprStr()", javaReprStr, reference.javaReprStr],
+  [
+    "Python reprStr() with '",
+    (s) => pythonReprStr(s, "'"),
+    (s) => reference.pythonReprStr(s, "'"),
+  ],
+  [
+    'Python reprStr() with "',
+    (s) => pythonReprStr(s, '"'),
+    (s) => reference.pythonReprStr(s, '"'),
+  ],
+  [
+    "JavaScript esc() with '",
+    (s) => jsEsc(s, "'"),
+    (s) => reference.jsEsc(s, "'"),
+  ],
+  [
+    'JavaScript esc() with "',
+    (s) => jsEsc(s, '"'),
+    (s) => reference.jsEsc(s, '"'),
+  ],
+  ["C reprStr()", cReprStr, reference.cReprStr],
+];
+
+for (const [name, actualF, expectedF] of functions) {
+  test("escape: " + name + " matches the regex version", (t) => {
+    let mismatches = 0;
+    // Twice, so that the second round hits the cache
+    for (let round = 0; round < 2; round++) {
+      seed = 12345;
+      for (let i = 0; i < 20000 && mismatches < 5; i++) {
+        const s = randomString();
+        const expected = expectedF(s);
+        const actual = actualF(s);
+        if (actual !== expected) {
+          t.equal(actual, expected, JSON.stringify(s));
+          mismatches++;
+        }
+      }
+    }
+    t.equal(mismatches, 0);
+    t.end();
+  });
+}
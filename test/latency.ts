@@ -0,0 +1,77 @@
+import fs from "fs";
+import path from "path";
+
+import test from "tape";
+
+import { loadLanguage } from "../src/languages.ts";
+import { fixturesDir } from "./test-utils.ts";
+
+// Commands that used to take more than linearly longer to convert the longer
+// they got, mostly found by tools/fuzz-latency.ts
+interface LatencyFixture {
+  language: string;
+  // The command is prefix + unit repeated repeat times + suffix
+  prefix: string;
+  unit: string;
+  suffix: string;
+  repeat: number;
+}
+
+// Like tools/fuzz-latency.ts, the test compares how long the command takes
+// with the unit repeated repeat / FACTOR times and repeat times instead of
+// comparing the time to a budget, so it doesn't depend on how fast the
+// computer running it is
+const FACTOR = 8;
+// How fast the time can grow, as an exponent of the size. Linear is 1, but
+// small commands have more overhead, so it's usually less.
+const THRESHOLD = 1.5;
+// Too fast to tell how it grows
+const MIN_MS = 5;
+
+// The fastest of 3, so that a garbage collection doesn't fail the test
+function time(f: () => void): number {
+  let best = Infinity;
+  for (let i = 0; i < 3; i++) {
+    const start = performance.now();
+    try {
+      f();
+    } catch {}
+    best = Math.min(best, performance.now() - start);
+  }
+  return best;
+}
+
+const latencyDir = path.join(fixturesDir, "latency");
+const fixtureFiles = fs.existsSync(latencyDir)
+  ? fs.readdirSync(latencyDir).filter((f) => f.endsWith(".json"))
+  : [];
+
+for (const fileName of fixtureFiles) {
+  const fixture: LatencyFixture = JSON.parse(
+    fs.readFileSync(path.join(latencyDir, fileName), "utf8"),
+  );
+  test("latency: " + fileName, async (t) => {
+    const warnGenerator = (await loadLanguage(fixture.language))[1];
+    const build = (repeat: number) =>
+      fixture.prefix + fixture.unit.repeat(repeat) + fixture.suffix;
+    const small = build(Math.ceil(fixture.repeat / FACTOR));
+    const big = build(fixture.repeat);
+    const growth = () => {
+      const smallMs = time(() => warnGenerator(small));
+      const bigMs = time(() => warnGenerator(big));
+      if (bigMs < MIN_MS) {
+        return 0;
+      }
+      return Math.log(bigMs / Math.max(smallMs, 0.001)) / Math.log(FACTOR);
+    };
+    // Measured again if it's slow, in case something else was running
+    let exponent = growth();
+    if (exponent >= THRESHOLD) {
+      exponent = Math.min(exponent, growth());
+    }
+    t.ok(
+      exponent < THRESHOLD,
+      "time grows like size^" + exponent.toFixed(2) + ", limit is " + THRESHOLD,
+    );
+  });
+}
@@ -0,0 +1,174 @@
+import test from "tape";
+
+import { LimitError, withLimits } from "../src/limits.ts";
+import type { Limit } from "../src/limits.ts";
+import { CCError } from "../src/utils.ts";
+import { convert, convertMany } from "../src/convert.ts";
+import { disableCache, enableCache } from "../src/cache.ts";
+import { createConverterPool } from "../src/pool.ts";
+import { toPython } from "../src/generators/python/python.ts";
+
+function limitHit(f: () => unknown): Limit | undefined {
+  try {
+    f();
+  } catch (e) {
+    if (e instanceof LimitError) {
+      return e.limit;
+    }
+    throw e;
+  }
+  return undefined;
+}
+
+test("limits: each limit stops a conversion that goes over it", (t) => {
+  // 19 bytes, the "é" is 2
+  const command = "curl example.com/é";
+  t.equal(
+    limitHit(() => withLimits({ maxInputBytes: 18 }, () => toPython(command))),
+    "maxInputBytes",
+  );
+  t.equal(
+    withLimits({ maxInputBytes: 19 }, () => toPython(command)),
+    toPython(command),
+  );
+  t.equal(
+    limitHit(() =>
+      withLimits({ maxInputBytes: 3 }, () => toPython(["curl", "example.com"])),
+    ),
+    "maxInputBytes",
+  );
+  // The ";" makes the fast tokenizer give up
+  t.equal(
+    limitHit(() =>
+      withLimits({ maxAstNodes: 5 }, () => toPython("curl a; curl b")),
+    ),
+    "maxAstNodes",
+  );
+  t.equal(
+    limitHit(() =>
+      withLimits({ maxWords: 3 }, () => toPython("curl -d a=1 example.com")),
+    ),
+    "maxWords",
+  );
+  t.equal(
+    limitHit(() =>
+      withLimits({ maxOutputBytes: 20 }, () => toPython("curl example.com")),
+    ),
+    "maxOutputBytes",
+  );
+  t.end();
+});
+
+test("limits: cached conversions are still limited", async (t) => {
+  enableCache(10);
+  try {
+    const command = "curl -d a=1 example.com";
+    // Cache it without limits first
+    toPython(command);
+    t.equal(
+      limitHit(() => withLimits({ maxWords: 3 }, () => toPython(command))),
+      "maxWords",
+    );
+    t.equal(
+      limitHit(() => withLimits({ maxInputBytes: 3 }, () => toPython(command))),
+      "maxInputBytes",
+    );
+    toPython("curl a; curl b");
+    t.equal(
+      limitHit(() =>
+        withLimits({ maxAstNodes: 5 }, () => toPython("curl a; curl b")),
+      ),
+      "maxAstNodes",
+    );
+
+    await convert({ command, language: "python" });
+    const result = await convert({
+      command,
+      language: "python",
+      limits: { maxWords: 3 },
+    });
+    t.equal(result.limit, "maxWords");
+  } finally {
+    disableCache();
+  }
+  t.end();
+});
+
+test("limits: an aborted signal stops a conversion", (t) => {
+  const controller = new AbortController();
+  controller.abort();
+  try {
+    withLimits({ signal: controller.signal }, () => toPython("curl a"));
+    t.fail("should have thrown");
+  } catch (e) {
+    t.ok(e instanceof CCError, "LimitError is a CCError");
+    t.equal((e as LimitError).limit, "aborted");
+  }
+  t.end();
+});
+
+test("limits: nested limits all apply and are removed after", (t) => {
+  t.equal(
+    limitHit(() =>
+      withLimits({ maxWords: 10 }, () =>
+        withLimits({ maxInputBytes: 1000 }, () =>
+          toPython("curl -d a=1 -d b=2 -d c=3 -d d=4 -d e=5 example.com"),
+        ),
+      ),
+    ),
+    "maxWords",
+  );
+  t.equal(
+    typeof toPython("curl -d a=1 -d b=2 -d c=3 -d d=4 -d e=5 a"),
+    "string",
+  );
+  t.end();
+});
+
+test("limits: convertMany() checks the signal between languages", async (t) => {
+  const controller = new AbortController();
+  const results = convertMany(
+    "curl example.com",
+    ["python", "go"],
+    undefined,
+    { signal: controller.signal },
+  );
+  // Aborted while the generators are being loaded
+  controller.abort();
+  const { python, go } = await results;
+  t.equal(python.limit, "aborted");
+  t.equal(go.limit, "aborted");
+  t.ok(python.ccError);
+  t.end();
+});
+
+test("limits: aborting a pool conversion rejects it", async (t) => {
+  const pool = createConverterPool({ threads: 1 });
+  try {
+    const controller = new AbortController();
+    const running = pool.convert("curl example.com", "python", {
+      signal: controller.signal,
+    });
+    controller.abort();
+    try {
+      await running;
+      t.fail("should have thrown");
+    } catch (e) {
+      t.ok(e instanceof LimitError);
+      t.equal((e as LimitError).limit, "aborted");
+    }
+    try {
+      await pool.convert("curl example.com", "python", { maxWords: 1 });
+      t.fail("should have thrown");
+    } catch (e) {
+      t.ok(e instanceof LimitError);
+      t.equal((e as LimitError).limit, "maxWords");
+    }
+    // The thread that was stopped was replaced
+    const result = await pool.convert("curl example.com", "python");
+    t.equal(typeof result.code, "string");
+  } finally {
+    await pool.close();
+  }
+  t.end();
+});
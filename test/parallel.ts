@@ -0,0 +1,189 @@
+// Runs the same fixture tests as test.ts, but spread across worker threads
+// and, with --shard-count and --shard-index, across machines. Each machine
+// runs every --shard-count'th test starting from the --shard-index'th, so
+// every test runs on exactly one machine as long as they all have the same
+// fixtures and --language.
+//
+// --changed only runs the tests that the files that are different from a
+// commit (HEAD by default) could have broken, see affected.ts.
+
+import fs from "fs";
+import os from "os";
+import path from "path";
+
+import yargs from "yargs";
+import { hideBin } from "yargs/helpers";
+
+import { fixturesDir, converters } from "./test-utils.ts";
+import type { Converter } from "./test-utils.ts";
+import { affectedBy, changedFiles } from "./affected.ts";
+import { runOnWorkers } from "./workers.ts";
+import type { FixtureResult, FixtureTask } from "./checkFixture.ts";
+
+const curlCommandsDir = path.resolve(fixturesDir, "curl_commands");
+
+const testArgs = await yargs(hideBin(process.argv))
+  .scriptName("parallel.js")
+  .usage(
+    "Usage: $0 [--language <language>] [--test <test_name>] [--jobs <threads>] [--shard-count <machines> --shard-index <machine>] [--changed[=<commit>]] [test_name...]",
+  )
+  .option("l", {
+    alias: "language",
+    describe: "the language to convert the curl command to",
+    choices: Object.keys(converters),
+    default: Object.keys(converters),
+    defaultDescription: "all of them",
+    demandOption: false,
+    type: "string",
+  })
+  .option("test", {
+    describe:
+      "the name of a file in fixtures/curl_commands without the .sh extension",
+    defaultDescription: "run all tests",
+    demandOption: false,
+    type: "string",
+  })
+  .option("j", {
+    alias: "jobs",
+    describe: "how many worker threads to run the tests on",
+    default: os.availableParallelism(),
+    defaultDescription: "one per CPU",
+    type: "number",
+  })
+  .option("shard-count", {
+    describe: "how many machines the tests are split across",
+    default: 1,
+    type: "number",
+  })
+  .option("shard-index", {
+    describe: "which of the --shard-count machines this is, starting from 0",
+    default: 0,
+    type: "number",
+  })
+  .option("changed", {
+    describe:
+      "only run the tests for the fixtures and languages that the files " +
+      "changed since this commit could affect",
+    defaultDescription: "run all tests",
+    type: "string",
+  })
+  .check((argv) => {
+    if (
+      !Number.isInteger(argv.shardCount) ||
+      !Number.isInteger(argv.shardIndex) ||
+      argv.shardCount < 1 ||
+      argv.shardIndex < 0 ||
+      argv.shardIndex >= argv.shardCount
+    ) {
+      throw new Error(
+        "--shard-index has to be a whole number from 0 to --shard-count - 1",
+      );
+    }
+    return true;
+  })
+  .alias("h", "help")
+  .help()
+  .parse();
+
+const languages: Converter[] = Array.isArray(testArgs.language)
+  ? testArgs.language
+  : [testArgs.language];
+
+// Test names can be positional args or --test=<test name>. We need to merge them
+let testNames = testArgs._.slice();
+if (Array.isArray(testArgs.test)) {
+  testNames = testNames.concat(testArgs.test);
+} else if (typeof testArgs.test === "string") {
+  testNames.push(testArgs.test);
+}
+const fixtures = (
+  testNames.length
+    ? testNames.map((t) =>
+        path.basename(t.toString().replace(/ /g, "_")).replace(/\..*$/, ""),
+      )
+    : fs
+        .readdirSync(curlCommandsDir)
+        .filter((f) => f.endsWith(".sh"))
+        .map((f) => f.replace(/\.sh$/, ""))
+).sort();
+
+let tasks: FixtureTask[] = [];
+for (const fixture of fixtures) {
+  tasks.push({ fixture, language: "fast-tokenizer" });
+  for (const language of languages) {
+    const expectedPath = path.resolve(
+      fixturesDir,
+      language,
+      fixture + converters[language].extension,
+    );
+    if (fs.existsSync(expectedPath)) {
+      tasks.push({ fixture, language });
+    }
+  }
+}
+
+if (testArgs.changed !== undefined) {
+  const changed = changedFiles(testArgs.changed || "HEAD");
+  const isAffected = affectedBy(changed);
+  const allTasks = tasks.length;
+  tasks = tasks.filter((task) => isAffected(task.fixture, task.language));
+  console.error(
+    changed.length +
+      " changed files affect " +
+      tasks.length +
+      " of " +
+      allTasks +
+      " tests",
+  );
+}
+
+tasks = tasks.filter((_, i) => i % testArgs.shardCount === testArgs.shardIndex);
+
+const start = performance.now();
+const results: FixtureResult[] = await runOnWorkers(
+  new URL("./parallelWorker.js", import.meta.url),
+  tasks,
+  testArgs.jobs,
+);
+const seconds = (performance.now() - start) / 1000;
+
+function testName(task: FixtureTask): string {
+  const name =
+    task.language === "fast-tokenizer"
+      ? "fast tokenizer"
+      : converters[task.language].name;
+  return name + ": " + task.fixture.replace(/_/g, " ");
+}
+
+const count = { ok: 0, fail: 0, skip: 0 };
+for (const result of results) {
+  count[result.status]++;
+  if (result.status === "fail") {
+    console.log("not ok " + testName(result));
+    console.log("  " + (result.message ?? "").replace(/\n/g, "\n  "));
+  }
+}
+
+console.log();
+console.log(
+  "# " +
+    results.length +
+    " tests" +
+    (testArgs.shardCount > 1
+      ? " (shard " + testArgs.shardIndex + " of " + testArgs.shardCount + ")"
+      : "") +
+    " in " +
+    seconds.toFixed(1) +
+    "s",
+);
+console.log("# pass  " + count.ok);
+if (count.skip) {
+  console.log("# skip  " + count.skip + " (the fast tokenizer gave up)");
+}
+if (count.fail) {
+  console.log("# fail  " + count.fail);
+  process.exitCode = 1;
+} else {
+  console.log();
+  console.log("# ok");
+}
@@ -0,0 +1,19 @@
+// Entry point of the worker threads started by parallel.ts. Each message is a
+// list of fixture tests to run and the reply is their results.
+
+import { parentPort } from "worker_threads";
+
+import { checkFixture } from "./checkFixture.ts";
+import type { FixtureResult, FixtureTask } from "./checkFixture.ts";
+
+function run(task: FixtureTask): FixtureResult {
+  const result = checkFixture(task);
+  // parallel.ts only prints the message
+  delete result.actual;
+  delete result.expected;
+  return result;
+}
+
+parentPort!.on("message", (tasks: FixtureTask[]) => {
+  parentPort!.postMessage(tasks.map(run));
+});
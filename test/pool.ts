@@ -0,0 +1,72 @@
+import test from "tape";
+
+import { createConverterPool, ConverterPoolError } from "../src/pool.ts";
+import { CCError } from "../src/utils.ts";
+
+test("converter pool: converts on worker threads", async (t) => {
+  const pool = createConverterPool({ threads: 2, maxTasksPerWorker: 1 });
+  try {
+    // More conversions than threads and each thread only converts one
+    const results = await Promise.all([
+      pool.convert("curl example.com", "python"),
+      pool.convert(["curl", "example.com"], "python"),
+      pool.convert("curl ftp://example.com", "python"),
+    ]);
+    const expected =
+      "import requests\n\nresponse = requests.get('http://example.com')\n";
+    t.equal(results[0].code, expected);
+    t.equal(results[1].code, expected);
+    t.deepEqual(results[0].warnings, []);
+    t.equal(results[2].warnings[0][0], "bad-scheme");
+    t.equal(pool.pending, 0);
+  } finally {
+    await pool.close();
+  }
+  t.end();
+});
+
+test("converter pool: rejects commands it can't convert", async (t) => {
+  const pool = createConverterPool({ threads: 1 });
+  try {
+    await pool.convert("curl --no-such-option example.com", "python");
+    t.fail("should have thrown");
+  } catch (e) {
+    t.ok(e instanceof CCError);
+  } finally {
+    await pool.close();
+  }
+  t.end();
+});
+
+test("converter pool: limits the queue", async (t) => {
+  const pool = createConverterPool({ threads: 1, maxQueue: 1 });
+  const running = pool.convert("curl example.com", "python");
+  const queued = pool.convert("curl example.com", "go");
+  try {
+    await pool.convert("curl example.com", "php");
+    t.fail("should have thrown");
+  } catch (e) {
+    t.ok(e instanceof ConverterPoolError);
+    t.equal((e as ConverterPoolError).reason, "queue-full");
+  }
+  t.equal(typeof (await running).code, "string");
+  t.equal(typeof (await queued).code, "string");
+  await pool.close();
+  t.end();
+});
+
+test("converter pool: times out", async (t) => {
+  const pool = createConverterPool({ threads: 1 });
+  try {
+    // Starting the thread takes longer than this
+    await pool.convert("curl example.com", "python", { timeout: 1 });
+    t.fail("should have timed out");
+  } catch (e) {
+    t.equal((e as ConverterPoolError).reason, "timeout");
+  }
+  // The thread is replaced
+  const { code } = await pool.convert("curl example.com", "python");
+  t.equal(typeof code, "string");
+  await pool.close();
+  t.end();
+});
@@ -0,0 +1,174 @@
+// The regex-based string escaping functions that src/generators/escape.ts
+// replaced, kept as a reference for the differential test and the benchmark.
+
+// Java and Clojure
+const javaRegexEscape = /"|\\|\p{C}|[^ \P{Z}]/gu;
+const regexDigit = /[0-9]/;
+export function javaReprStr(s: string): string {
+  return (
+    '"' +
+    s.replace(javaRegexEscape, (c: string, index: number, string: string) => {
+      switch (c) {
+        case "\\":
+          return "\\\\";
+        case "\b":
+          return "\\b";
+        case "\f":
+          return "\\f";
+        case "\n":
+          return "\\n";
+        case "\r":
+          return "\\r";
+        case "\t":
+          return "\\t";
+        case '"':
+          return '\\"';
+      }
+
+      if (c.length === 2) {
+        const first = c.charCodeAt(0);
+        const second = c.charCodeAt(1);
+        return (
+          "\\u" +
+          first.toString(16).padStart(4, "0") +
+          "\\u" +
+          second.toString(16).padStart(4, "0")
+        );
+      }
+
+      if (c === "\0" && !regexDigit.test(string.charAt(index + 1))) {
+        return "\\0";
+      }
+      return "\\u" + c.charCodeAt(0).toString(16).padStart(4, "0");
+    }) +
+    '"'
+  );
+}
+
+// Python, Go and R
+const regexSingleEscape = /'|\\|\p{C}|[^ \P{Z}]/gu;
+const regexDoubleEscape = /"|\\|\p{C}|[^ \P{Z}]/gu;
+export function pythonReprStr(s: string, quote: '"' | "'"): string {
+  const regex = quote === "'" ? regexSingleEscape : regexDoubleEscape;
+  return (
+    quote +
+    s.replace(regex, (c: string): string => {
+      switch (c) {
+        case "\x07":
+          return "\\a";
+        case "\b":
+          return "\\b";
+        case "\f":
+          return "\\f";
+        case "\n":
+          return "\\n";
+        case "\r":
+          return "\\r";
+        case "\t":
+          return "\\t";
+        case "\v":
+          return "\\v";
+        case "\\":
+          return "\\\\";
+        case "'":
+          return "\\'";
+        case '"':
+          return '\\"';
+      }
+      const hex = (c.codePointAt(0) as number).toString(16);
+      if (hex.length <= 2) {
+        return "\\x" + hex.padStart(2, "0");
+      }
+      if (hex.length <= 4) {
+        return "\\u" + hex.padStart(4, "0");
+      }
+      return "\\U" + hex.padStart(8, "0");
+    }) +
+    quote
+  );
+}
+
+const jsEscape = /'|"|\\|\p{C}|[^ \P{Z}]/gu;
+export function jsEsc(s: string, quote: "'" | '"'): string {
+  return s.replace(jsEscape, (c: string, index: number, string: string) => {
+    switch (c[0]) {
+      case "\\":
+        return "\\\\";
+      case "\b":
+        return "\\b";
+      case "\f":
+        return "\\f";
+      case "\n":
+        return "\\n";
+      case "\r":
+        return "\\r";
+      case "\t":
+        return "\\t";
+      case "\v":
+        return "\\v";
+      case "'":
+      case '"':
+        return c === quote ? "\\" + c : c;
+      case "\0":
+        if (!regexDigit.test(string.charAt(index + 1))) {
+          return "\\0";
+        }
+        break;
+    }
+
+    if (c.length === 2) {
+      const first = c.charCodeAt(0);
+      const second = c.charCodeAt(1);
+      return (
+        "\\u" +
+        first.toString(16).padStart(4, "0") +
+        "\\u" +
+        second.toString(16).padStart(4, "0")
+      );
+    }
+
+    const hex = c.charCodeAt(0).toString(16);
+    if (hex.length > 2) {
+      return "\\u" + hex.padStart(4, "0");
+    }
+    return "\\x" + hex.padStart(2, "0");
+  });
+}
+
+const cRegexEscape = /"|\\|\p{C}|[^ \P{Z}]/gu;
+export function cReprStr(s: string): string {
+  return (
+    '"' +
+    s.replace(cRegexEscape, (c: string): string => {
+      switch (c) {
+        case "\x07":
+          return "\\a";
+        case "\b":
+          return "\\b";
+        case "\f":
+          return "\\f";
+        case "\n":
+          return "\\n";
+        case "\r":
+          return "\\r";
+        case "\t":
+          return "\\t";
+        case "\v":
+          return "\\v";
+        case "\\":
+          return "\\\\";
+        case '"':
+          return '\\"';
+      }
+      const hex = (c.codePointAt(0) as number).toString(16);
+      if (hex.length <= 2) {
+        return "\\x" + hex.padStart(2, "0");
+      }
+      if (hex.length <= 4) {
+        return "\\u" + hex.padStart(4, "0");
+      }
+      return "\\U" + hex.padStart(8, "0");
+    }) +
+    '"'
+  );
+}
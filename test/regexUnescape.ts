@@ -0,0 +1,97 @@
+// The regex-based unescaping functions that src/shell/unescape.ts replaced,
+// kept as a reference for the differential test and the benchmark.
+
+import { CCError } from "../src/utils.ts";
+
+const BACKSLASHES = /\\./gs;
+function removeBackslash(m: string) {
+  return m.charAt(1) === "\n" ? "" : m.charAt(1);
+}
+export function removeBackslashes(str: string): string {
+  return str.replace(BACKSLASHES, removeBackslash);
+}
+// https://www.gnu.org/software/bash/manual/bash.html#Double-Quotes
+const DOUBLE_QUOTE_BACKSLASHES = /\\[\\$`"\n]/gs;
+export function removeDoubleQuoteBackslashes(str: string): string {
+  return str.replace(DOUBLE_QUOTE_BACKSLASHES, removeBackslash);
+}
+// ANSI-C quoted strings look $'like this'.
+// Not all shells have them but Bash does
+// https://www.gnu.org/software/bash/manual/html_node/ANSI_002dC-Quoting.html
+//
+// https://git.savannah.gnu.org/cgit/bash.git/tree/lib/sh/strtrans.c
+const ANSI_BACKSLASHES =
+  /\\(\\|a|b|e|E|f|n|r|t|v|'|"|\?|[0-7]{1,3}|x[0-9A-Fa-f]{1,2}|u[0-9A-Fa-f]{1,4}|U[0-9A-Fa-f]{1,8}|c.)/gs;
+export function removeAnsiCBackslashes(str: string): string {
+  function unescapeChar(m: string) {
+    switch (m.charAt(1)) {
+      case "\\":
+        return "\\";
+      case "a":
+        return "\x07";
+      case "b":
+        return "\b";
+      case "e":
+      case "E":
+        return "\x1B";
+      case "f":
+        return "\f";
+      case "n":
+        return "\n";
+      case "r":
+        return "\r";
+      case "t":
+        return "\t";
+      case "v":
+        return "\v";
+      case "'":
+        return "'";
+      case '"':
+        return '"';
+      case "?":
+        return "?";
+      case "c":
+        // Bash handles all characters by considering the first byte
+        // of its UTF-8 input and can produce invalid UTF-8, whereas
+        // JavaScript stores strings in UTF-16
+        if (m.codePointAt(2)! > 127) {
+          throw new CCError(
+            'non-ASCII control character in ANSI-C quoted string: "\\u{' +
+              m.codePointAt(2)!.toString(16) +
+              '}"',
+          );
+        }
+        // If this produces a 0x00 (null) character, it will cause bash to
+        // terminate the string at that character, but we return the null
+        // character in the result.
+        return m[2] === "?"
+          ? "\x7F"
+          : String.fromCodePoint(
+              m[2].toUpperCase().codePointAt(0)! & 0b00011111,
+            );
+      case "x":
+      case "u":
+      case "U":
+        // Hexadecimal character literal
+        // Unlike bash, this will error if the the code point is greater than 10FFFF
+        return String.fromCodePoint(parseInt(m.slice(2), 16));
+      case "0":
+      case "1":
+      case "2":
+      case "3":
+      case "4":
+      case "5":
+      case "6":
+      case "7":
+        // Octal character literal
+        return String.fromCodePoint(parseInt(m.slice(1), 8) % 256);
+      default:
+        // There must be a mis-match between ANSI_BACKSLASHES and the switch statement
+        throw new CCError(
+          "unhandled character in ANSI-C escape code: " + JSON.stringify(m),
+        );
+    }
+  }
+
+  return str.replace(ANSI_BACKSLASHES, unescapeChar);
+}
@@ -269,7 +269,22 @@ const testedConverters = Object.entries(converters).map(
   (c) => c[1].converter.name,
 );
 const untestedConverters = ["toPhpRequests"];
-const notConverterExports = ["Word"];
+const notConverterExports = [
+  "Word",
+  "convertMany",
+  "enableCache",
+  "disableCache",
+  "cacheStats",
+  "setTimingsHook",
+  "collectTimings",
+  "summarizeTimings",
+  "withLimits",
+  "LimitError",
+  "createConverterPool",
+  "ConverterPool",
+  "ConverterPoolError",
+  "TokenizeSession",
+];
 
 const availableConverters = Object.entries(curlconverter)
   .map((c) => c[1].name)
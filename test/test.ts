@@ -7,6 +7,18 @@ import { hideBin } from "yargs/helpers";
 
 import { fixturesDir, converters } from "./test-utils.ts";
 import type { Converter } from "./test-utils.ts";
+import { checkFixture } from "./checkFixture.ts";
+import type { FixtureResult } from "./checkFixture.ts";
+import "./unescape.ts";
+import "./escape.ts";
+import "./cache.ts";
+import "./capture.ts";
+import "./convertMany.ts";
+import "./tokenizeSession.ts";
+import "./timings.ts";
+import "./latency.ts";
+import "./pool.ts";
+import "./limits.ts";
 
 // The curl_commands/ directory contains input files
 // The file name is a description of the command.
@@ -70,11 +82,25 @@ for (const outputLanguage of Object.keys(converters)) {
   }
 }
 
+function report(t: test.Test, result: FixtureResult) {
+  if (result.status === "skip") {
+    t.skip(result.message);
+  } else if (result.status === "ok") {
+    t.pass("matches the fixture");
+  } else if (result.actual !== undefined) {
+    t.deepEqual(result.actual, result.expected, result.message);
+  } else {
+    t.fail(result.message);
+  }
+  t.end();
+}
+
 for (const fileName of testFileNames) {
-  const inputFilePath = path.resolve(curlCommandsDir, fileName);
-  const inputFileContents = fs
-    .readFileSync(inputFilePath, "utf8")
-    .replace(/\r\n/g, "\n");
+  const fixture = fileName.replace(/\.sh$/, "");
+
+  test("fast tokenizer: " + fixture, (t) => {
+    report(t, checkFixture({ fixture, language: "fast-tokenizer" }));
+  });
 
   for (const outputLanguage of languages) {
     const converter = converters[outputLanguage];
@@ -82,39 +108,15 @@ for (const fileName of testFileNames) {
     const filePath = path.resolve(
       fixturesDir,
       outputLanguage,
-      fileName.replace(/\.sh$/, converter.extension),
+      fixture + converter.extension,
     );
-    const testName = fileName.replace(/_/g, " ").replace(/\.sh$/, "");
+    const testName = fixture.replace(/_/g, " ");
     const fullTestName = converter.name + ": " + testName;
 
     if (fs.existsSync(filePath)) {
-      // normalize code for just \n line endings (aka fix input under Windows)
-      const expected = fs
-        .readFileSync(filePath, "utf-8")
-        .replace(/\r\n/g, "\n");
-      let actual: string;
-      try {
-        actual = converter.converter(inputFileContents);
-      } catch (e) {
-        console.error(
-          "Failed converting " + fileName + " to " + converter.name + ":",
-        );
-        console.error(inputFileContents);
-        console.error(e);
-        process.exit(1);
-      }
-      if (outputLanguage === "parser") {
-        test(fullTestName, (t) => {
-          // TODO: `actual` is a needless roundtrip
-          t.deepEquals(JSON.parse(actual), JSON.parse(expected));
-          t.end();
-        });
-      } else {
-        test(fullTestName, (t) => {
-          t.equal(actual, expected);
-          t.end();
-        });
-      }
+      test(fullTestName, (t) => {
+        report(t, checkFixture({ fixture, language: outputLanguage }));
+      });
     }
   }
 }
@@ -0,0 +1,79 @@
+import test from "tape";
+
+import {
+  collectTimings,
+  setTimingsHook,
+  summarizeTimings,
+} from "../src/timings.ts";
+import type { PhaseTiming } from "../src/timings.ts";
+import { treeSitterTokenize } from "../src/shell/tokenizer.ts";
+import { toPython } from "../src/generators/python/python.ts";
+
+test("timings: each phase of toPython() is timed", (t) => {
+  const [code, timings] = collectTimings(() =>
+    toPython("curl example.com; curl -d a=1 example.org"),
+  );
+  t.equal(typeof code, "string");
+  t.deepEqual(
+    timings.map((p) => p.phase),
+    [
+      // fastTokenize() gives up on the ";"
+      "tokenize",
+      "tokenize",
+      "validate",
+      "tokenize",
+      "parseArgs",
+      "buildRequests",
+      "parseArgs",
+      "buildRequests",
+      "generate",
+    ],
+  );
+  for (const p of timings) {
+    t.ok(p.durationMs >= 0, p.phase + " duration");
+    t.equal(typeof p.heapDeltaBytes, "number", p.phase + " heap delta");
+  }
+  t.deepEqual(
+    summarizeTimings(timings).map((p) => p.phase),
+    ["tokenize", "validate", "parseArgs", "buildRequests", "generate"],
+  );
+  t.end();
+});
+
+test("timings: nothing is reported without a hook", (t) => {
+  const timings: PhaseTiming[] = [];
+  setTimingsHook((p) => timings.push(p));
+  treeSitterTokenize("curl example.com");
+  setTimingsHook(null);
+  treeSitterTokenize("curl example.com");
+  t.deepEqual(
+    timings.map((p) => p.phase),
+    ["tokenize", "validate", "tokenize"],
+  );
+  t.end();
+});
+
+test("timings: collectTimings() passes timings on to the hook", (t) => {
+  const outer: PhaseTiming[] = [];
+  setTimingsHook((p) => outer.push(p));
+  const [, inner] = collectTimings(() => treeSitterTokenize("curl a"));
+  setTimingsHook(null);
+  t.equal(inner.length, 3);
+  t.deepEqual(outer, inner);
+  t.end();
+});
+
+test("timings: summarizeTimings() adds up each phase", (t) => {
+  t.deepEqual(
+    summarizeTimings([
+      { phase: "generate", durationMs: 1, heapDeltaBytes: 10 },
+      { phase: "tokenize", durationMs: 2, heapDeltaBytes: -5 },
+      { phase: "generate", durationMs: 3, heapDeltaBytes: 20 },
+    ]),
+    [
+      { phase: "tokenize", durationMs: 2, heapDeltaBytes: -5 },
+      { phase: "generate", durationMs: 4, heapDeltaBytes: 30 },
+    ],
+  );
+  t.end();
+});
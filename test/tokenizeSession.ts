@@ -0,0 +1,83 @@
+import test from "tape";
+
+import { TokenizeSession, tokenize } from "../src/shell/tokenizer.ts";
+import type { Word } from "../src/shell/Word.ts";
+import type { Warnings } from "../src/Warnings.ts";
+
+type Command = [Word[], Word?, Word?];
+
+// Shell expressions point to the node they came from, which is a different
+// object in each AST, so only their text is compared
+function tokens(word: Word | undefined) {
+  return word?.tokens.map((t) =>
+    typeof t === "string" ? t : { type: t.type, value: t.value, text: t.text },
+  );
+}
+
+function outcome(f: (warnings: Warnings) => Command[]) {
+  const warnings: Warnings = [];
+  try {
+    const commands = f(warnings).map(([argv, stdin, stdinFile]) => [
+      argv.map(tokens),
+      tokens(stdin),
+      tokens(stdinFile),
+    ]);
+    return { commands, warnings };
+  } catch (e) {
+    return { error: (e as Error).message, warnings };
+  }
+}
+
+test("TokenizeSession: edits give the same words as tokenizing again", (t) => {
+  const session = new TokenizeSession("curl example.com");
+  // Each edit is a function of the current text that returns
+  // [start, end, new text]
+  const edits: [string, (text: string) => [number, number, string]][] = [
+    ["append a header", (s) => [s.length, s.length, " -H 'X-Émoji: 😀'"]],
+    [
+      "continue on the next line",
+      (s) => [s.length, s.length, " \\\n  -d 'ü=1'"],
+    ],
+    ["add a second command", (s) => [s.length, s.length, "\ncurl $HOST/ü"]],
+    ["delete the emoji", (s) => [s.indexOf("😀"), s.indexOf("😀") + 2, ""]],
+    [
+      "replace the first URL",
+      (s) => [s.indexOf("example.com"), s.indexOf(".com") + 4, "例え.jp"],
+    ],
+    // A space after the backslash means it doesn't escape the newline
+    [
+      "break the line continuation",
+      (s) => [s.indexOf("\n"), s.indexOf("\n"), " "],
+    ],
+    ["fix it again", (s) => [s.indexOf(" \n"), s.indexOf(" \n") + 1, ""]],
+    ["unclosed quote", (s) => [s.indexOf("'ü"), s.indexOf("'ü") + 1, '"']],
+    ["close it", (s) => [s.indexOf('"ü'), s.indexOf('"ü') + 1, "'"]],
+    ["delete the second command", (s) => [s.lastIndexOf("\n"), s.length, ""]],
+    ["insert a line at the start", (s) => [0, 0, "curl -X PÖST a\n"]],
+    ["delete everything", (s) => [0, s.length, ""]],
+    ["start over", () => [0, 0, "curl --data @- b <<< 'é'"]],
+  ];
+
+  t.deepEqual(
+    outcome((w) => session.tokenize(w)),
+    outcome((w) => tokenize(session.text, w)),
+    "before editing",
+  );
+  for (const [name, edit] of edits) {
+    session.edit(...edit(session.text));
+    t.deepEqual(
+      outcome((w) => session.tokenize(w)),
+      outcome((w) => tokenize(session.text, w)),
+      name + ": " + JSON.stringify(session.text),
+    );
+  }
+  t.end();
+});
+
+test("TokenizeSession: invalid edits throw", (t) => {
+  const session = new TokenizeSession("curl a");
+  t.throws(() => session.edit(3, 2, ""));
+  t.throws(() => session.edit(0, 7, ""));
+  t.equal(session.text, "curl a");
+  t.end();
+});
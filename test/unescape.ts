@@ -0,0 +1,64 @@
+// Checks that the unescaping functions in src/shell/unescape.ts do exactly
+// what the regexes they replaced did, on random strings full of backslashes.
+
+import test from "tape";
+
+import * as scanner from "../src/shell/unescape.ts";
+import * as reference from "./regexUnescape.ts";
+
+// Characters that mean something after a backslash, plus a few that don't
+const ALPHABET = [
+  ..."\\\\\\\\abeEfnrtvcxuU?'\"$`01234567\n89AFafgzZ ",
+  "é",
+  "\uD83D",
+  "\uDE00",
+  "😀",
+];
+
+// https://en.wikipedia.org/wiki/Linear_congruential_generator
+let seed = 12345;
+function random(n: number): number {
+  seed = (Math.imul(seed, 1103515245) + 12345) >>> 0;
+  return (seed >>> 16) % n;
+}
+
+function randomString(): string {
+  let s = "";
+  const length = random(24);
+  for (let i = 0; i < length; i++) {
+    s += ALPHABET[random(ALPHABET.length)];
+  }
+  return s;
+}
+
+function run(f: (s: string) => string, s: string): string {
+  try {
+    return f(s);
+  } catch (e) {
+    const error = e as Error;
+    return "threw " + error.constructor.name + ": " + error.message;
+  }
+}
+
+const functions = [
+  "removeBackslashes",
+  "removeDoubleQuoteBackslashes",
+  "removeAnsiCBackslashes",
+] as const;
+
+for (const name of functions) {
+  test("unescape: " + name + " matches the regex version", (t) => {
+    let mismatches = 0;
+    for (let i = 0; i < 20000 && mismatches < 5; i++) {
+      const s = randomString();
+      const expected = run(reference[name], s);
+      const actual = run(scanner[name], s);
+      if (actual !== expected) {
+        t.equal(actual, expected, JSON.stringify(s));
+        mismatches++;
+      }
+    }
+    t.equal(mismatches, 0);
+    t.end();
+  });
+}
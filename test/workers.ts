@@ -0,0 +1,49 @@
+// Runs a list of tasks on worker threads, for the scripts that convert every
+// fixture. Each worker is sent a few tasks at a time and gets more when it's
+// done, so one slow task doesn't hold up the rest. The worker script gets an
+// array of tasks in each message and has to reply with an array of their
+// results.
+
+import { once } from "events";
+import { Worker } from "worker_threads";
+
+/**
+ * Runs tasks on at most jobs workers started from workerUrl and returns their
+ * results in the same order as tasks. Rejects if a worker crashes.
+ */
+export async function runOnWorkers<T, R>(
+  workerUrl: URL,
+  tasks: T[],
+  jobs: number,
+): Promise<R[]> {
+  jobs = Math.max(1, jobs);
+  const chunkSize = Math.max(
+    1,
+    Math.min(32, Math.ceil(tasks.length / (jobs * 4))),
+  );
+  const chunks: [number, T[]][] = [];
+  for (let i = 0; i < tasks.length; i += chunkSize) {
+    chunks.push([i, tasks.slice(i, i + chunkSize)]);
+  }
+
+  const results: R[] = new Array(tasks.length);
+  async function runWorker(): Promise<void> {
+    const worker = new Worker(workerUrl);
+    try {
+      for (let chunk = chunks.shift(); chunk; chunk = chunks.shift()) {
+        const [first, chunkTasks] = chunk;
+        worker.postMessage(chunkTasks);
+        const [chunkResults] = await once(worker, "message");
+        for (const [i, result] of (chunkResults as R[]).entries()) {
+          results[first + i] = result;
+        }
+      }
+    } finally {
+      await worker.terminate();
+    }
+  }
+  await Promise.all(
+    Array.from({ length: Math.min(jobs, chunks.length) }, runWorker),
+  );
+  return results;
+}
@@ -0,0 +1,115 @@
+#!/usr/bin/env node
+
+// Compares the lookup table percent-encoder in src/percentEncoding.ts against
+// the implementation it replaced, on long ASCII, form-like and non-ASCII
+// strings, and times parsing a long query string.
+
+import yargs from "yargs";
+import { hideBin } from "yargs/helpers";
+
+import { percentEncode } from "../src/percentEncoding.ts";
+import { parseQueryString } from "../src/Query.ts";
+import { Word } from "../src/shell/Word.ts";
+import { UTF8encoder } from "../src/utils.ts";
+
+const argv = await yargs(hideBin(process.argv))
+  .scriptName("bench-encoding")
+  .usage("Usage: $0 [--size <characters>] [-n <runs>]")
+  .option("size", {
+    describe: "how long each string is",
+    default: 256 * 1024,
+    type: "number",
+  })
+  .option("n", {
+    alias: "runs",
+    describe: "how many times to encode each string",
+    default: 20,
+    type: "number",
+  })
+  .alias("h", "help")
+  .help()
+  .parse();
+
+// What Query.ts used to do
+function oldPercentEncode(s: string): string {
+  return [...UTF8encoder.encode(s)]
+    .map((b) => {
+      if (
+        (b >= 0x41 && b <= 0x5a) ||
+        (b >= 0x61 && b <= 0x7a) ||
+        (b >= 0x30 && b <= 0x39) ||
+        b === 0x2d ||
+        b === 0x2e ||
+        b === 0x5f ||
+        b === 0x7e
+      ) {
+        return String.fromCharCode(b);
+      }
+      return "%" + b.toString(16).toUpperCase().padStart(2, "0");
+    })
+    .join("");
+}
+function oldPercentEncodePlus(s: string): string {
+  return oldPercentEncode(s).replace(/%20/g, "+");
+}
+
+function repeatTo(s: string, size: number): string {
+  return s.repeat(Math.ceil(size / s.length)).slice(0, size);
+}
+const inputs: [string, string][] = [
+  ["safe ASCII", repeatTo("abcdefghij0123456789-_.~", argv.size)],
+  ["form data", repeatTo("name=John Smith&city=New York&", argv.size)],
+  ["non-ASCII", repeatTo("naïve café 日本語 🎉 ", argv.size)],
+];
+
+function time(f: () => unknown): number {
+  const start = performance.now();
+  for (let i = 0; i < argv.runs; i++) {
+    f();
+  }
+  return (performance.now() - start) / argv.runs;
+}
+
+function row(name: string, oldMs: number, newMs: number) {
+  console.log(
+    name.padEnd(24) +
+      oldMs.toFixed(2).padStart(10) +
+      "ms" +
+      newMs.toFixed(2).padStart(10) +
+      "ms" +
+      (oldMs / newMs).toFixed(1).padStart(8) +
+      "x",
+  );
+}
+
+console.log(`${argv.size} characters, mean of ${argv.runs} runs`);
+console.log("".padEnd(24) + "old".padStart(12) + "new".padStart(12));
+for (const [name, s] of inputs) {
+  if (oldPercentEncode(s) !== percentEncode(s)) {
+    throw new Error("different output for " + name);
+  }
+  if (oldPercentEncodePlus(s) !== percentEncode(s, true)) {
+    throw new Error("different output with + for " + name);
+  }
+  row(
+    "encode " + name,
+    time(() => oldPercentEncode(s)),
+    time(() => percentEncode(s)),
+  );
+  row(
+    "encode+ " + name,
+    time(() => oldPercentEncodePlus(s)),
+    time(() => percentEncode(s, true)),
+  );
+}
+
+const query = new Word(
+  repeatTo("name=John+Smith&city=New%20York&q=caf%C3%A9&", argv.size).replace(
+    /&[^&]*$/,
+    "",
+  ),
+);
+const queryMs = time(() => parseQueryString(query));
+console.log(
+  "parseQueryString()".padEnd(24) + queryMs.toFixed(2).padStart(22) + "ms",
+);
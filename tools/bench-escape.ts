@@ -0,0 +1,110 @@
+#!/usr/bin/env node
+
+// Compares the string escaping in src/generators/escape.ts against the
+// regexes it replaced, on large request bodies (JSON, binary data and
+// non-ASCII text) and on many short header-like strings.
+
+import yargs from "yargs";
+import { hideBin } from "yargs/helpers";
+
+import { reprStr as javaReprStr } from "../src/generators/java/java.ts";
+import { reprStr as pythonReprStr } from "../src/generators/python/python.ts";
+import { esc as jsEsc } from "../src/generators/javascript/javascript.ts";
+import { reprStr as cReprStr } from "../src/generators/c.ts";
+import * as reference from "../test/regexEscape.ts";
+
+const argv = await yargs(hideBin(process.argv))
+  .scriptName("bench-escape")
+  .usage("Usage: $0 [--size <characters>] [-n <runs>]")
+  .option("size", {
+    describe: "how long each body is",
+    default: 1024 * 1024,
+    type: "number",
+  })
+  .option("n", {
+    alias: "runs",
+    describe: "how many times to escape each body",
+    default: 10,
+    type: "number",
+  })
+  .alias("h", "help")
+  .help()
+  .parse();
+
+function repeatTo(s: string, size: number): string {
+  return s.repeat(Math.ceil(size / s.length)).slice(0, size);
+}
+
+const languages: [string, (s: string) => string, (s: string) => string][] = [
+  ["Java", javaReprStr, reference.javaReprStr],
+  [
+    "Python",
+    (s) => pythonReprStr(s, "'"),
+    (s) => reference.pythonReprStr(s, "'"),
+  ],
+  ["JavaScript", (s) => jsEsc(s, "'"), (s) => reference.jsEsc(s, "'")],
+  ["C", cReprStr, reference.cReprStr],
+];
+
+const bodies: [string, string][] = [
+  [
+    "JSON",
+    repeatTo('{"name": "John Smith", "tags": ["a", "b"]}\n', argv.size),
+  ],
+  ["no escapes", repeatTo("abcdefghijklmnopqrstuvwxyz0123456789", argv.size)],
+  ["binary", repeatTo("\x00\x01\x7f\xff\x1b\t\r\n", argv.size)],
+  ["non-ASCII", repeatTo("naïve café 日本語 🎉 ", argv.size)],
+];
+
+// Short strings that are escaped again and again, like header values
+const headers: string[] = [];
+for (let i = 0; i < 100; i++) {
+  headers.push('"' + i + '"\tgzip, deflate, br');
+}
+
+function time(f: () => unknown): number {
+  const start = performance.now();
+  for (let i = 0; i < argv.runs; i++) {
+    f();
+  }
+  return (performance.now() - start) / argv.runs;
+}
+
+function row(name: string, regexMs: number, engineMs: number) {
+  console.log(
+    name.padEnd(30) +
+      regexMs.toFixed(2).padStart(10) +
+      "ms" +
+      engineMs.toFixed(2).padStart(10) +
+      "ms" +
+      (regexMs / engineMs).toFixed(1).padStart(8) +
+      "x",
+  );
+}
+
+console.log(`${argv.size} characters, mean of ${argv.runs} runs`);
+console.log("".padEnd(30) + "regex".padStart(12) + "engine".padStart(12));
+for (const [language, f, ref] of languages) {
+  for (const [description, s] of bodies) {
+    if (f(s) !== ref(s)) {
+      throw new Error("different output for " + language + " " + description);
+    }
+    row(
+      language + " " + description,
+      time(() => ref(s)),
+      time(() => f(s)),
+    );
+  }
+  const escapeHeaders = (escape: (s: string) => string) => () => {
+    for (let i = 0; i < 1000; i++) {
+      for (const h of headers) {
+        escape(h);
+      }
+    }
+  };
+  row(
+    language + " 100k headers",
+    time(escapeHeaders(ref)),
+    time(escapeHeaders(f)),
+  );
+}
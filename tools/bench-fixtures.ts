@@ -0,0 +1,234 @@
+#!/usr/bin/env node
+
+// Measures how fast every fixture in test/fixtures/curl_commands/ is
+// tokenized, parsed and converted to each language (which includes parsing
+// it), and how much memory that allocates.
+//
+// --save writes the results to a JSON file and --compare checks them
+// against one written earlier, for example before a change:
+//
+//   npm run bench-fixtures -- --save before.json
+//   (make a change)
+//   npm run bench-fixtures -- --compare before.json
+//
+// which exits with 1 if anything is slower or allocates more than
+// --threshold percent more than before. Results are only comparable to ones
+// from the same machine.
+
+import fs from "fs";
+import path from "path";
+
+import yargs from "yargs";
+import { hideBin } from "yargs/helpers";
+
+import { tokenize } from "../src/shell/tokenizer.ts";
+import { parse } from "../src/parse.ts";
+import { converters, fixturesDir } from "../test/test-utils.ts";
+import type { Converter } from "../test/test-utils.ts";
+import { measureAllocations } from "./heap.ts";
+
+// "parser" just parses the command, which is what "parse" measures
+const languages = Object.keys(converters).filter((c) => c !== "parser");
+
+const argv = await yargs(hideBin(process.argv))
+  .scriptName("bench-fixtures")
+  .usage(
+    "Usage: $0 [-l <language>...] [-n <runs>] [--save <file>] [--compare <file>] [--threshold <percent>]",
+  )
+  .option("l", {
+    alias: "language",
+    describe: "the languages to convert to",
+    default: languages,
+    defaultDescription: "all of them",
+    choices: languages,
+    type: "string",
+  })
+  .option("n", {
+    alias: "runs",
+    describe: "how many times to run each fixture",
+    default: 10,
+    type: "number",
+  })
+  .option("warmup", {
+    describe: "how many times to run each fixture before timing it",
+    default: 3,
+    type: "number",
+  })
+  .option("save", {
+    describe: "write the results to this JSON file",
+    type: "string",
+  })
+  .option("compare", {
+    describe: "compare the results to a JSON file written with --save",
+    type: "string",
+  })
+  .option("threshold", {
+    describe: "how many percent slower (or more memory) is a regression",
+    default: 10,
+    type: "number",
+  })
+  .alias("h", "help")
+  .help()
+  .parse();
+
+interface BenchResult {
+  // How many fixtures were run. Fixtures that throw are left out.
+  fixtures: number;
+  opsPerSec: number;
+  p50Ms: number;
+  p99Ms: number;
+  bytesPerOp: number;
+}
+
+interface Baseline {
+  node: string;
+  runs: number;
+  results: { [name: string]: BenchResult };
+}
+
+const curlCommandsDir = path.join(fixturesDir, "curl_commands");
+const commands = fs
+  .readdirSync(curlCommandsDir)
+  .filter((f) => f.endsWith(".sh"))
+  .sort()
+  .map((f) => fs.readFileSync(path.join(curlCommandsDir, f), "utf8"));
+
+function percentile(sorted: Float64Array, p: number): number {
+  return sorted[Math.min(sorted.length - 1, Math.floor(sorted.length * p))];
+}
+
+function bench(f: (command: string) => unknown): BenchResult {
+  // Fixtures that are meant to fail would only measure how fast we throw
+  const working = commands.filter((command) => {
+    try {
+      f(command);
+      return true;
+    } catch {
+      return false;
+    }
+  });
+  for (let i = 0; i < argv.warmup; i++) {
+    for (const command of working) {
+      f(command);
+    }
+  }
+
+  // Allocated up front so that it's not counted
+  const latencies = new Float64Array(argv.runs * working.length);
+  const [totalMs, allocated] = measureAllocations(() => {
+    const start = performance.now();
+    let op = 0;
+    for (let i = 0; i < argv.runs; i++) {
+      for (const command of working) {
+        const opStart = performance.now();
+        f(command);
+        latencies[op++] = performance.now() - opStart;
+      }
+    }
+    return performance.now() - start;
+  });
+
+  latencies.sort();
+  return {
+    fixtures: working.length,
+    opsPerSec: (latencies.length / totalMs) * 1000,
+    p50Ms: percentile(latencies, 0.5),
+    p99Ms: percentile(latencies, 0.99),
+    bytesPerOp: allocated / latencies.length,
+  };
+}
+
+const baseline: Baseline | undefined =
+  argv.compare !== undefined
+    ? JSON.parse(fs.readFileSync(argv.compare, "utf8"))
+    : undefined;
+
+// Returns how many percent worse the result is than the baseline's, or
+// undefined if it's not in the baseline
+function change(
+  name: string,
+  key: "opsPerSec" | "bytesPerOp",
+  result: BenchResult,
+): number | undefined {
+  const old = baseline?.results[name];
+  if (old === undefined || !old[key]) {
+    return undefined;
+  }
+  return key === "opsPerSec"
+    ? (old[key] / result[key] - 1) * 100
+    : (result[key] / old[key] - 1) * 100;
+}
+
+function formatChange(percent: number | undefined): string {
+  if (percent === undefined) {
+    return "";
+  }
+  return (percent > 0 ? "+" : "") + percent.toFixed(1) + "%";
+}
+
+const results: { [name: string]: BenchResult } = {};
+const regressions: string[] = [];
+function run(name: string, f: (command: string) => unknown) {
+  const result = bench(f);
+  results[name] = result;
+  const slower = change(name, "opsPerSec", result);
+  const moreMemory = change(name, "bytesPerOp", result);
+  if (slower !== undefined && slower > argv.threshold) {
+    regressions.push(name + " is " + slower.toFixed(1) + "% slower");
+  }
+  if (moreMemory !== undefined && moreMemory > argv.threshold) {
+    regressions.push(
+      name + " allocates " + moreMemory.toFixed(1) + "% more memory",
+    );
+  }
+  console.log(
+    name.padEnd(32) +
+      result.opsPerSec.toFixed(0).padStart(10) +
+      result.p50Ms.toFixed(3).padStart(10) +
+      result.p99Ms.toFixed(3).padStart(10) +
+      (result.bytesPerOp / 1024).toFixed(1).padStart(12) +
+      formatChange(slower).padStart(10) +
+      formatChange(moreMemory).padStart(10),
+  );
+}
+
+const selected = (
+  Array.isArray(argv.language) ? argv.language : [argv.language]
+) as Converter[];
+console.log(
+  `${commands.length} fixtures, ${argv.runs} runs` +
+    (baseline ? ", compared to " + argv.compare : ""),
+);
+console.log(
+  "".padEnd(32) +
+    "ops/s".padStart(10) +
+    "p50 ms".padStart(10) +
+    "p99 ms".padStart(10) +
+    "KB/op".padStart(12) +
+    (baseline ? "time".padStart(10) + "memory".padStart(10) : ""),
+);
+run("tokenize", (command) => tokenize(command));
+run("parse", (command) => parse(command));
+for (const language of selected) {
+  run("convert:" + language, converters[language].converter);
+}
+
+if (argv.save !== undefined) {
+  const output: Baseline = { node: process.version, runs: argv.runs, results };
+  fs.writeFileSync(argv.save, JSON.stringify(output, null, 2) + "\n");
+  console.log("wrote " + argv.save);
+}
+if (baseline !== undefined && baseline.node !== process.version) {
+  console.error(
+    "warning: the baseline was measured with Node " +
+      baseline.node +
+      ", not " +
+      process.version,
+  );
+}
+if (regressions.length) {
+  for (const r of regressions) {
+    console.error("regression: " + r);
+  }
+  process.exit(1);
+}
@@ -0,0 +1,100 @@
+#!/usr/bin/env node
+
+// Compares converting every fixture to every language with one toXWarn() call
+// per language (which parses the command each time) against one
+// convertMany() call per fixture (which parses it once).
+
+import fs from "fs";
+import path from "path";
+
+import yargs from "yargs";
+import { hideBin } from "yargs/helpers";
+
+import { convertMany } from "../src/convert.ts";
+import { languages as allLanguages, loadLanguage } from "../src/languages.ts";
+import { fixturesDir } from "../test/test-utils.ts";
+
+const argv = await yargs(hideBin(process.argv))
+  .scriptName("bench-many")
+  .usage("Usage: $0 [-l <language>...] [-n <runs>]")
+  .option("l", {
+    alias: "language",
+    describe: "the languages to convert to",
+    default: [
+      "python",
+      "javascript",
+      "node",
+      "go",
+      "java",
+      "php",
+      "ruby",
+      "rust",
+      "c",
+      "csharp",
+    ],
+    defaultDescription: "10 popular languages",
+    choices: Object.keys(allLanguages),
+    demandOption: false,
+    type: "string",
+  })
+  .option("n", {
+    alias: "runs",
+    describe: "how many times to convert the whole fixture corpus",
+    default: 5,
+    demandOption: false,
+    type: "number",
+  })
+  .alias("h", "help")
+  .help()
+  .parse();
+
+const languages: string[] = Array.isArray(argv.language)
+  ? argv.language
+  : [argv.language];
+const warnGenerators = await Promise.all(
+  languages.map(async (l) => (await loadLanguage(l))[1]),
+);
+
+const curlCommandsDir = path.join(fixturesDir, "curl_commands");
+const commands = fs
+  .readdirSync(curlCommandsDir)
+  .filter((f) => f.endsWith(".sh"))
+  .map((f) => fs.readFileSync(path.join(curlCommandsDir, f), "utf8"));
+
+async function independent() {
+  for (const command of commands) {
+    for (const warnGenerator of warnGenerators) {
+      try {
+        warnGenerator(command);
+      } catch {}
+    }
+  }
+}
+
+async function many() {
+  for (const command of commands) {
+    await convertMany(command, languages);
+  }
+}
+
+async function time(f: () => Promise<void>): Promise<number> {
+  const start = performance.now();
+  for (let i = 0; i < argv.runs; i++) {
+    await f();
+  }
+  return (performance.now() - start) / argv.runs;
+}
+
+// Warm up the JIT
+await independent();
+await many();
+
+const independentMs = await time(independent);
+const manyMs = await time(many);
+console.log(
+  `${commands.length} commands x ${languages.length} languages, ` +
+    `mean of ${argv.runs} runs`,
+);
+console.log("toXWarn() per language: " + independentMs.toFixed(1) + "ms");
+console.log("convertMany():          " + manyMs.toFixed(1) + "ms");
+console.log("speedup:                " + (independentMs / manyMs).toFixed(2) + "x");
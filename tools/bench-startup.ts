@@ -0,0 +1,117 @@
+#!/usr/bin/env node
+
+// Measures how long the CLI takes to print its first byte of output.
+//
+// "eager" preloads every generator (by importing index.js first), which is
+// what the CLI used to do when it statically imported all of them. "lazy" is
+// the CLI as it is now, which only imports the generator for --language.
+
+import { spawn } from "child_process";
+import path from "path";
+import { fileURLToPath } from "url";
+
+import yargs from "yargs";
+import { hideBin } from "yargs/helpers";
+
+const __dirname = path.dirname(fileURLToPath(import.meta.url));
+const distDir = path.resolve(__dirname, "..");
+const cliPath = path.join(distDir, "src", "cli.js");
+const indexPath = path.join(distDir, "src", "index.js");
+
+const argv = await yargs(hideBin(process.argv))
+  .scriptName("bench-startup")
+  .usage("Usage: $0 [-l <language>] [-n <runs>]")
+  .option("l", {
+    alias: "language",
+    describe: "the language to convert to",
+    default: "python",
+    demandOption: false,
+    type: "string",
+  })
+  .option("n", {
+    alias: "runs",
+    describe: "how many times to start the CLI for each mode",
+    default: 20,
+    demandOption: false,
+    type: "number",
+  })
+  .alias("h", "help")
+  .help()
+  .parse();
+
+function timeToFirstOutput(nodeArgs: string[]): Promise<[number, number]> {
+  return new Promise((resolve, reject) => {
+    const start = process.hrtime.bigint();
+    let firstOutput: bigint | undefined;
+    const child = spawn(
+      process.execPath,
+      [
+        ...nodeArgs,
+        cliPath,
+        "--language",
+        argv.language,
+        "-H",
+        "Accept: application/json",
+        "example.com",
+      ],
+      { stdio: ["ignore", "pipe", "inherit"] },
+    );
+    child.stdout.on("data", () => {
+      if (firstOutput === undefined) {
+        firstOutput = process.hrtime.bigint();
+      }
+    });
+    child.on("error", reject);
+    child.on("close", (code) => {
+      const end = process.hrtime.bigint();
+      if (code !== 0 || firstOutput === undefined) {
+        reject(new Error("curlconverter exited with code " + code));
+        return;
+      }
+      resolve([
+        Number(firstOutput - start) / 1e6,
+        Number(end - start) / 1e6,
+      ]);
+    });
+  });
+}
+
+function median(values: number[]): number {
+  const sorted = [...values].sort((a, b) => a - b);
+  const mid = Math.floor(sorted.length / 2);
+  return sorted.length % 2
+    ? sorted[mid]
+    : (sorted[mid - 1] + sorted[mid]) / 2;
+}
+
+const modes: [string, string[]][] = [
+  ["eager", ["--import", indexPath]],
+  ["lazy", []],
+];
+// One run of each to warm up the filesystem cache
+for (const [, nodeArgs] of modes) {
+  await timeToFirstOutput(nodeArgs);
+}
+const results: { [mode: string]: [number[], number[]] } = {};
+for (let i = 0; i < argv.runs; i++) {
+  // Interleave the modes so that noise affects both equally
+  for (const [mode, nodeArgs] of modes) {
+    const [first, total] = await timeToFirstOutput(nodeArgs);
+    results[mode] ??= [[], []];
+    results[mode][0].push(first);
+    results[mode][1].push(total);
+  }
+}
+
+console.log(
+  `--language ${argv.language}, ${argv.runs} runs, median milliseconds`,
+);
+for (const [mode, [first, total]] of Object.entries(results)) {
+  console.log(
+    mode.padEnd(6) +
+      "first output: " +
+      median(first).toFixed(1).padStart(7) +
+      "   exit: " +
+      median(total).toFixed(1).padStart(7),
+  );
+}
@@ -0,0 +1,165 @@
+#!/usr/bin/env node
+
+// Times tokenizing, parsing and generating code for the commands from
+// tools/stress.ts at doubling sizes, and how much memory each one allocates.
+//
+// "growth" is how fast the time grows compared to the size, since the
+// previous size. It's around 1 if doubling the size doubles the time and
+// around 2 if it quadruples it, which means something is quadratic.
+// --csv writes every measurement to a file, for plotting.
+
+import fs from "fs";
+
+import yargs from "yargs";
+import { hideBin } from "yargs/helpers";
+
+import { tokenize } from "../src/shell/tokenizer.ts";
+import { parse } from "../src/parse.ts";
+import type { Request } from "../src/Request.ts";
+import { languages as allLanguages, loadLanguage } from "../src/languages.ts";
+import { getStressCase, stressCases, stressKinds } from "./stress.ts";
+import { measureAllocations } from "./heap.ts";
+
+const argv = await yargs(hideBin(process.argv))
+  .scriptName("bench-stress")
+  .usage(
+    "Usage: $0 [-k <kind>...] [-l <language>...] [--steps <steps>] [--scale <scale>] [-n <runs>] [--csv <file>]",
+  )
+  .option("k", {
+    alias: "kind",
+    describe:
+      "the kinds of commands to benchmark\n" +
+      stressCases.map((c) => c.kind + ": " + c.describe).join("\n"),
+    choices: stressKinds,
+    default: stressKinds,
+    defaultDescription: "all of them",
+    type: "string",
+  })
+  .option("l", {
+    alias: "language",
+    describe: "the languages to generate",
+    default: "python",
+    choices: Object.keys(allLanguages),
+    type: "string",
+  })
+  .option("steps", {
+    describe: "how many sizes to try, each one half the next one",
+    default: 5,
+    type: "number",
+  })
+  .option("scale", {
+    describe:
+      "the biggest size to try, as a fraction of the biggest we've seen in " +
+      "real commands (10000 headers, 50MB of data, ...)",
+    default: 1,
+    type: "number",
+  })
+  .option("n", {
+    alias: "runs",
+    describe: "how many times to run each size, the fastest run is kept",
+    default: 3,
+    type: "number",
+  })
+  .option("csv", {
+    describe: "write the results to this CSV file",
+    type: "string",
+  })
+  .alias("h", "help")
+  .help()
+  .parse();
+
+const kinds: string[] = Array.isArray(argv.kind) ? argv.kind : [argv.kind];
+const languages: string[] = Array.isArray(argv.language)
+  ? argv.language
+  : [argv.language];
+const generators = await Promise.all(
+  languages.map(async (l) => (await loadLanguage(l))[0]),
+);
+
+// Returns the fastest time in milliseconds and how much memory that run
+// allocated. setup() isn't timed.
+function measure<T>(
+  setup: () => T,
+  f: (input: T) => unknown,
+): [number, number] {
+  let bestMs = Infinity;
+  let bestAllocated = 0;
+  for (let i = 0; i < argv.runs; i++) {
+    const input = setup();
+    const [ms, allocated] = measureAllocations(() => {
+      const start = performance.now();
+      f(input);
+      return performance.now() - start;
+    });
+    if (ms < bestMs) {
+      bestMs = ms;
+      bestAllocated = allocated;
+    }
+  }
+  return [bestMs, bestAllocated];
+}
+
+const csv = ["kind,size,characters,stage,ms,bytes"];
+for (const kind of kinds) {
+  const stressCase = getStressCase(kind);
+  const maxSize = Math.max(1, Math.round(stressCase.maxSize * argv.scale));
+  const sizes: number[] = [];
+  for (let i = argv.steps - 1; i >= 0; i--) {
+    sizes.push(Math.max(1, Math.round(maxSize / 2 ** i)));
+  }
+
+  console.log();
+  console.log(kind + ": " + stressCase.describe);
+  console.log(
+    "stage".padEnd(20) +
+      stressCase.unit.padStart(12) +
+      "ms".padStart(12) +
+      "MB".padStart(10) +
+      "growth".padStart(8),
+  );
+  // The last time for each stage, for working out the growth
+  const previous = new Map<string, [number, number]>();
+  for (const size of sizes) {
+    const command = stressCase.generate(size);
+    const stages: [string, [number, number]][] = [];
+    try {
+      stages.push(["tokenize", measure(() => command, tokenize)]);
+      stages.push(["parse", measure(() => command, parse)]);
+      for (const [i, generator] of generators.entries()) {
+        stages.push([
+          "generate:" + languages[i],
+          measure(
+            () => parse(command),
+            (requests: Request[]) => generator(requests),
+          ),
+        ]);
+      }
+    } catch (e) {
+      console.log(
+        String(size).padStart(32) + "  error: " + (e as Error).message,
+      );
+    }
+    for (const [stage, [ms, allocated]] of stages) {
+      const last = previous.get(stage);
+      const growth = last
+        ? Math.log(ms / last[1]) / Math.log(size / last[0])
+        : undefined;
+      previous.set(stage, [size, ms]);
+      console.log(
+        stage.padEnd(20) +
+          String(size).padStart(12) +
+          ms.toFixed(2).padStart(12) +
+          (allocated / 1024 / 1024).toFixed(1).padStart(10) +
+          (growth === undefined ? "" : growth.toFixed(2).padStart(8)),
+      );
+      const row = [kind, size, command.length, stage, ms.toFixed(3), allocated];
+      csv.push(row.join(","));
+    }
+  }
+}
+
+if (argv.csv !== undefined) {
+  fs.writeFileSync(argv.csv, csv.join("\n") + "\n");
+  console.log();
+  console.log("wrote " + argv.csv);
+}
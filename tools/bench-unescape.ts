@@ -0,0 +1,82 @@
+#!/usr/bin/env node
+
+// Compares the scanners in src/shell/unescape.ts against the regexes they
+// replaced, on a large $'...' string full of \x escapes (like a binary
+// request body copied from the browser's DevTools) and on large strings
+// with a few escapes.
+
+import yargs from "yargs";
+import { hideBin } from "yargs/helpers";
+
+import * as scanner from "../src/shell/unescape.ts";
+import * as reference from "../test/regexUnescape.ts";
+
+const argv = await yargs(hideBin(process.argv))
+  .scriptName("bench-unescape")
+  .usage("Usage: $0 [--size <characters>] [-n <runs>]")
+  .option("size", {
+    describe: "how long each string is",
+    default: 1024 * 1024,
+    type: "number",
+  })
+  .option("n", {
+    alias: "runs",
+    describe: "how many times to unescape each string",
+    default: 10,
+    type: "number",
+  })
+  .alias("h", "help")
+  .help()
+  .parse();
+
+function repeatTo(s: string, size: number): string {
+  return s.repeat(Math.ceil(size / s.length)).slice(0, size);
+}
+
+const inputs: [keyof typeof scanner, string, string][] = [
+  [
+    "removeAnsiCBackslashes",
+    "binary",
+    repeatTo("\\x00\\xff\\x1f\\n", argv.size),
+  ],
+  [
+    "removeAnsiCBackslashes",
+    "text",
+    repeatTo('{"key": "value"}\\n', argv.size),
+  ],
+  [
+    "removeDoubleQuoteBackslashes",
+    "JSON",
+    repeatTo('{\\"key\\": 1}', argv.size),
+  ],
+  ["removeBackslashes", "words", repeatTo("a\\ b\\&c", argv.size)],
+];
+
+function time(f: () => unknown): number {
+  const start = performance.now();
+  for (let i = 0; i < argv.runs; i++) {
+    f();
+  }
+  return (performance.now() - start) / argv.runs;
+}
+
+console.log(`${argv.size} characters, mean of ${argv.runs} runs`);
+console.log("".padEnd(40) + "regex".padStart(12) + "scanner".padStart(12));
+for (const [name, description, s] of inputs) {
+  const f = scanner[name];
+  const ref = reference[name];
+  if (f(s) !== ref(s)) {
+    throw new Error("different output for " + name + " on " + description);
+  }
+  const regexMs = time(() => ref(s));
+  const scannerMs = time(() => f(s));
+  console.log(
+    (name + " (" + description + ")").padEnd(40) +
+      regexMs.toFixed(2).padStart(10) +
+      "ms" +
+      scannerMs.toFixed(2).padStart(10) +
+      "ms" +
+      (regexMs / scannerMs).toFixed(1).padStart(8) +
+      "x",
+  );
+}
@@ -0,0 +1,110 @@
+#!/usr/bin/env node
+
+// Measures positional access into a large Word, like a 1MB --data value
+// with some shell variables in it, against the linear scan that Word used
+// before it kept an index of where each token starts.
+
+import yargs from "yargs";
+import { hideBin } from "yargs/helpers";
+
+import { Word } from "../src/shell/Word.ts";
+import type { ShellToken, Token } from "../src/shell/Word.ts";
+
+const argv = await yargs(hideBin(process.argv))
+  .scriptName("bench-word")
+  .usage("Usage: $0 [--size <characters>] [--tokens <tokens>] [-n <lookups>]")
+  .option("size", {
+    describe: "how many characters the Word has",
+    default: 1024 * 1024,
+    type: "number",
+  })
+  .option("tokens", {
+    describe: "how many shell variables to split the Word with",
+    default: 1000,
+    type: "number",
+  })
+  .option("n", {
+    alias: "lookups",
+    describe: "how many times to call each method",
+    default: 10000,
+    type: "number",
+  })
+  .alias("h", "help")
+  .help()
+  .parse();
+
+const variable = {
+  type: "variable",
+  value: "VAR",
+  text: "$VAR",
+} as ShellToken;
+const chunk = "a=1&".repeat(Math.ceil(argv.size / (argv.tokens + 1) / 4));
+const tokens: Token[] = [chunk];
+for (let i = 0; i < argv.tokens; i++) {
+  tokens.push(variable, chunk);
+}
+const word = new Word(tokens);
+const length = word.length;
+
+// What Word.length and Word.get() used to do
+function linearLength(w: Word): number {
+  let len = 0;
+  for (const t of w.tokens) {
+    len += typeof t === "string" ? t.length : 1;
+  }
+  return len;
+}
+function linearGet(w: Word, index: number): Token {
+  let i = 0;
+  for (const t of w.tokens) {
+    if (typeof t === "string") {
+      if (i + t.length > index) {
+        return t[index - i];
+      }
+      i += t.length;
+    } else {
+      if (i === index) {
+        return t;
+      }
+      i += 1;
+    }
+  }
+  throw new Error("Index out of bounds");
+}
+
+// The same pseudo-random positions for every method
+const positions: number[] = [];
+let seed = 1;
+for (let i = 0; i < argv.lookups; i++) {
+  seed = (Math.imul(seed, 1103515245) + 12345) >>> 0;
+  positions.push(seed % length);
+}
+
+function time(name: string, f: (i: number) => unknown) {
+  const start = performance.now();
+  for (const p of positions) {
+    f(p);
+  }
+  const ms = performance.now() - start;
+  console.log(name.padEnd(20) + ms.toFixed(1).padStart(10) + "ms");
+}
+
+console.log(
+  `${length} characters in ${word.tokens.length} tokens, ` +
+    `${argv.lookups} calls each`,
+);
+time("linear length", () => linearLength(word));
+time("Word.length", () => word.length);
+time("linear get()", (p) => linearGet(word, p));
+time("Word.get()", (p) => word.get(p));
+time("Word.slice()", (p) => word.slice(p, p + 100));
+time("Word.indexOf()", (p) => word.indexOf("&", p));
+const start = performance.now();
+const parts = word.split("&").length;
+console.log(
+  "Word.split()".padEnd(20) +
+    (performance.now() - start).toFixed(1).padStart(10) +
+    "ms (" +
+    parts +
+    " parts, called once)",
+);
@@ -0,0 +1,347 @@
+// A server that records the HTTP requests it gets, for compare-requests.ts.
+//
+// Requests are parsed as they arrive, as bytes, so binary bodies and bodies
+// that are split across many packets or sent in chunks come out the same as
+// they were sent. Each request becomes a CapturedRequest with the hash of its
+// body instead of the body, so comparing big uploads doesn't mean printing
+// them.
+//
+// The request line and headers are decoded as Latin-1, which maps each byte
+// to one character, so bytes that aren't valid UTF-8 still differ in a diff
+// instead of all becoming U+FFFD.
+//
+// curl sends "Expect: 100-continue" before big uploads and waits a second
+// for the server to say it can send the body, so the server answers it
+// right away. Other clients don't send it, so it's left out of the diff.
+
+import crypto from "crypto";
+import net from "net";
+
+const CONTINUE_RESPONSE = "HTTP/1.1 100 Continue\r\n\r\n";
+
+// Closes the connection, so that clients that keep idle connections open
+// for reuse, like Node's global agent, exit as soon as they're done
+const MINIMAL_HTTP_RESPONSE = `\
+HTTP/1.1 200 OK
+Connection: close
+Content-Length: 12
+Content-Type: text/plain; charset=utf-8
+
+Hello World!`.replace(/\n/g, "\r\n");
+
+// Bodies longer than this are only compared by their hash
+const MAX_BODY_TEXT = 10000;
+
+export interface CapturedRequest {
+  method: string;
+  target: string;
+  version: string;
+  // In the order they were sent. Chunked trailers come after the headers.
+  headers: [string, string][];
+  bodyLength: number;
+  bodySha256: string;
+  // The body, if it's short and valid UTF-8
+  bodyText?: string;
+  // false if the connection closed before all of it arrived
+  complete: boolean;
+}
+
+type ParserState =
+  | "head"
+  | "body"
+  | "chunkSize"
+  | "chunkData"
+  | "chunkEnd"
+  | "trailers"
+  // A Content-Length or chunk size we couldn't read, the rest of the
+  // connection is the body
+  | "unframed";
+
+/**
+ * Parses a stream of HTTP/1.1 requests. push() the bytes from a connection
+ * as they arrive and it returns the requests that are complete so far.
+ * onContinue is called when a request is waiting for a 100 Continue before
+ * it sends its body.
+ */
+export class RequestParser {
+  private readonly onContinue: () => void;
+  private buffer = Buffer.alloc(0);
+  private state: ParserState = "head";
+  // How much of the body or current chunk hasn't arrived yet
+  private remaining = 0;
+
+  private method = "";
+  private target = "";
+  private version = "";
+  private headers: [string, string][] = [];
+  private bodyLength = 0;
+  private bodyHash = crypto.createHash("sha256");
+  private bodyText: Buffer[] | null = [];
+
+  constructor(onContinue: () => void = () => {}) {
+    this.onContinue = onContinue;
+  }
+
+  push(data: Buffer): CapturedRequest[] {
+    this.buffer = this.buffer.length
+      ? Buffer.concat([this.buffer, data])
+      : data;
+    const requests: CapturedRequest[] = [];
+    for (;;) {
+      if (this.state === "head") {
+        const end = this.buffer.indexOf("\r\n\r\n");
+        if (end === -1) {
+          break;
+        }
+        this.readHead(this.buffer.subarray(0, end).toString("latin1"));
+        this.buffer = this.buffer.subarray(end + 4);
+        const chunked = this.header("transfer-encoding")
+          ?.toLowerCase()
+          .includes("chunked");
+        const contentLength = this.header("content-length") ?? "0";
+        const hasBody = chunked || contentLength !== "0";
+        if (
+          hasBody &&
+          this.header("expect")?.toLowerCase() === "100-continue"
+        ) {
+          this.onContinue();
+        }
+        if (chunked) {
+          this.state = "chunkSize";
+        } else if (!/^[0-9]+$/.test(contentLength)) {
+          this.state = "unframed";
+        } else if (Number(contentLength) > 0) {
+          this.state = "body";
+          this.remaining = Number(contentLength);
+        } else {
+          requests.push(this.finish(true));
+        }
+      } else if (this.state === "body" || this.state === "chunkData") {
+        if (!this.readBody()) {
+          break;
+        }
+        if (this.state === "body") {
+          requests.push(this.finish(true));
+        } else {
+          this.state = "chunkEnd";
+        }
+      } else if (this.state === "chunkEnd") {
+        if (this.buffer.length < 2) {
+          break;
+        }
+        this.buffer = this.buffer.subarray(2);
+        this.state = "chunkSize";
+      } else if (this.state === "chunkSize" || this.state === "trailers") {
+        const end = this.buffer.indexOf("\r\n");
+        if (end === -1) {
+          break;
+        }
+        const lineBytes = this.buffer.subarray(0, end + 2);
+        const line = lineBytes.subarray(0, end).toString("latin1");
+        this.buffer = this.buffer.subarray(end + 2);
+        if (this.state === "trailers") {
+          if (line) {
+            this.readHeader(line);
+          } else {
+            requests.push(this.finish(true));
+          }
+          continue;
+        }
+        // Ignore chunk extensions
+        const size = parseInt(line.split(";")[0], 16);
+        if (Number.isNaN(size)) {
+          this.addToBody(lineBytes);
+          this.state = "unframed";
+        } else if (size === 0) {
+          this.state = "trailers";
+        } else {
+          this.state = "chunkData";
+          this.remaining = size;
+        }
+      } else {
+        this.addToBody(this.buffer);
+        this.buffer = Buffer.alloc(0);
+        break;
+      }
+    }
+    return requests;
+  }
+
+  /**
+   * Call when the connection closes. Returns what's left of a request that
+   * hadn't all arrived, if there is one.
+   */
+  end(): CapturedRequest | null {
+    if (this.state === "head") {
+      if (!this.buffer.length) {
+        return null;
+      }
+      // Not even the headers arrived, return the bytes as the body
+      this.addToBody(this.buffer);
+    } else if (this.state === "unframed") {
+      return this.finish(true);
+    }
+    return this.finish(false);
+  }
+
+  private readHead(head: string) {
+    const [requestLine, ...headerLines] = head.split("\r\n");
+    const parts = requestLine.split(" ");
+    this.method = parts[0];
+    this.target = parts.slice(1, -1).join(" ");
+    this.version = parts.length > 1 ? parts[parts.length - 1] : "";
+    for (const line of headerLines) {
+      this.readHeader(line);
+    }
+  }
+
+  private readHeader(line: string) {
+    const colon = line.indexOf(":");
+    if (colon === -1) {
+      this.headers.push([line, ""]);
+    } else {
+      this.headers.push([line.slice(0, colon), line.slice(colon + 1).trim()]);
+    }
+  }
+
+  private header(name: string): string | undefined {
+    return this.headers.find(([n]) => n.toLowerCase() === name)?.[1];
+  }
+
+  // Reads as much of the body or chunk as has arrived and returns whether
+  // that's all of it
+  private readBody(): boolean {
+    const length = Math.min(this.remaining, this.buffer.length);
+    this.addToBody(this.buffer.subarray(0, length));
+    this.buffer = this.buffer.subarray(length);
+    this.remaining -= length;
+    return this.remaining === 0;
+  }
+
+  private addToBody(data: Buffer) {
+    this.bodyLength += data.length;
+    this.bodyHash.update(data);
+    if (this.bodyLength > MAX_BODY_TEXT) {
+      this.bodyText = null;
+    } else if (this.bodyText !== null) {
+      this.bodyText.push(data);
+    }
+  }
+
+  private finish(complete: boolean): CapturedRequest {
+    const request: CapturedRequest = {
+      method: this.method,
+      target: this.target,
+      version: this.version,
+      headers: this.headers,
+      bodyLength: this.bodyLength,
+      bodySha256: this.bodyHash.digest("hex"),
+      complete,
+    };
+    if (this.bodyText !== null) {
+      const body = Buffer.concat(this.bodyText);
+      const text = body.toString();
+      if (Buffer.from(text).equals(body)) {
+        request.bodyText = text;
+      }
+    }
+
+    this.state = "head";
+    this.remaining = 0;
+    this.method = "";
+    this.target = "";
+    this.version = "";
+    this.headers = [];
+    this.bodyLength = 0;
+    this.bodyHash = crypto.createHash("sha256");
+    this.bodyText = [];
+    return request;
+  }
+}
+
+/**
+ * Formats a request for diffing against another one. Header names are
+ * lowercased because they're case-insensitive, Expect is left out and the
+ * body is replaced with its length and hash, followed by its text if it's
+ * short enough.
+ */
+export function formatRequest(request: CapturedRequest): string {
+  const lines = [
+    request.method + " " + request.target + " " + request.version,
+    ...request.headers
+      .filter(([name]) => name.toLowerCase() !== "expect")
+      .map(([name, value]) => name.toLowerCase() + ": " + value),
+    "",
+  ];
+  if (request.bodyLength) {
+    lines.push(
+      "[body: " +
+        request.bodyLength +
+        " bytes, sha256 " +
+        request.bodySha256.slice(0, 16) +
+        (request.bodyText === undefined ? ", binary or too long" : "") +
+        "]",
+    );
+    if (request.bodyText !== undefined) {
+      lines.push(request.bodyText.replace(/\r\n/g, "\n"));
+    }
+  }
+  if (!request.complete) {
+    lines.push("[connection closed before the whole request arrived]");
+  }
+  return lines.join("\n") + "\n";
+}
+
+export interface Capture {
+  port: number;
+  requests: CapturedRequest[];
+  close: () => Promise<void>;
+}
+
+/**
+ * Starts a server on a port the OS picks that records the requests it gets
+ * and answers each one as soon as all of it has arrived, then closes the
+ * connection.
+ */
+export async function startCapture(): Promise<Capture> {
+  const requests: CapturedRequest[] = [];
+  const sockets = new Set<net.Socket>();
+  const server = net.createServer((socket) => {
+    sockets.add(socket);
+    const parser = new RequestParser(() => socket.write(CONTINUE_RESPONSE));
+    socket.on("data", (data: Buffer) => {
+      const complete = parser.push(data);
+      for (const request of complete) {
+        requests.push(request);
+        socket.write(MINIMAL_HTTP_RESPONSE);
+      }
+      if (complete.length) {
+        socket.end();
+      }
+    });
+    socket.on("end", () => {
+      const request = parser.end();
+      if (request) {
+        requests.push(request);
+      }
+      socket.end();
+    });
+    socket.on("error", () => {
+      console.error("transmission error");
+    });
+    socket.on("close", () => {
+      sockets.delete(socket);
+    });
+  });
+  await new Promise<void>((resolve) => server.listen(0, resolve));
+  return {
+    port: (server.address() as net.AddressInfo).port,
+    requests,
+    close: () => {
+      for (const socket of sockets) {
+        socket.destroy();
+      }
+      return new Promise((resolve) => server.close(() => resolve()));
+    },
+  };
+}
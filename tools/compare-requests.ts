@@ -1,8 +1,18 @@
 #!/usr/bin/env node
 
+// Runs the curl command of each test and the programs generated from it and
+// compares the HTTP requests they send.
+//
+// Every run gets its own server on a port picked by the OS. The fixtures
+// request localhost:28139, which is replaced with that port in a copy of the
+// command or program before it runs. A run is over when its program exits.
+// The server answers each request as soon as all of it has arrived and then
+// closes the connection, so programs don't wait for an idle keep-alive
+// connection to time out, and many runs can happen at once.
+
 import { exec } from "child_process";
 import fs from "fs";
-import net from "net";
+import os from "os";
 import path from "path";
 import { promisify } from "util";
 
@@ -13,20 +23,37 @@ import { hideBin } from "yargs/helpers";
 
 import { parse } from "../src/parse.ts";
 import { fixturesDir, converters } from "../test/test-utils.ts";
+import { formatRequest, startCapture } from "./capture.ts";
+import type { Capture, CapturedRequest } from "./capture.ts";
 
 const awaitableExec = promisify(exec);
 
-const DEFAULT_PORT = 28139; // chosen randomly
-const EXPECTED_URL = "localhost:" + DEFAULT_PORT;
+const FIXTURE_PORT = 28139; // chosen randomly
+const EXPECTED_URL = "localhost:" + FIXTURE_PORT;
 
-const MINIMAL_HTTP_RESPONSE = `\
-HTTP/1.1 200 OK
-Content-Length: 12
-Content-Type: text/plain; charset=utf-8
+const testDir = "/tmp/curlconverter"; // files are copied here to be executed
 
-Hello World!`.replace(/\n/g, "\r\n");
+// The java generator outputs statements, this wraps them in a class
+function javaHttpClientClass(contents: string, className: string): string {
+  const [imports, ...rest] = contents.split("\n\n");
+  return (
+    imports +
+    "\n\n" +
+    "public class " +
+    className +
+    " {\n" +
+    "  public static void main(String[] args) throws Exception {\n" +
+    "    " +
+    rest.join("\n\n") +
+    "\n" +
+    "  }\n" +
+    "}\n"
+  );
+}
 
-const testDir = "/tmp/curlconverter"; // files are copied here to be executed
+function renameJavaClass(contents: string, className: string): string {
+  return contents.replace("class Main", "class " + className);
+}
 const executables = {
   clojure: {
     copy: "cp <file> /tmp/curlconverter/clojure/main.clj",
@@ -67,27 +94,19 @@ const executables = {
   },
   java: {
     copy: function (contents: string) {
-      const [imports, ...rest] = contents.split("\n\n");
-
       fs.writeFileSync(
         "/tmp/curlconverter/java/Main.java",
-        imports +
-          "\n\n" +
-          "public class Main {\n" +
-          "  public static void main(String[] args) throws Exception {\n" +
-          "    " +
-          rest.join("\n\n") +
-          "\n" +
-          "  }\n" +
-          "}\n",
+        javaHttpClientClass(contents, "Main"),
         "utf8",
       );
     },
     exec: "cd /tmp/curlconverter/java && javac Main.java && java Main",
+    javaClass: javaHttpClientClass,
   },
   "java-httpurlconnection": {
     copy: "cp <file> /tmp/curlconverter/java-httpurlconnection/Main.java",
     exec: "cd /tmp/curlconverter/java-httpurlconnection && javac Main.java && java Main",
+    javaClass: renameJavaClass,
   },
   "java-jsoup": {
     setup:
@@ -126,6 +145,9 @@ const executables = {
       );
     },
     exec: "cd /tmp/curlconverter/java-jsoup && mvn compile && mvn exec:java -Dexec.mainClass=com.mycompany.app.Main",
+    javaClass: renameJavaClass,
+    classpath:
+      "cd /tmp/curlconverter/java-jsoup && mvn -q dependency:build-classpath -Dmdep.outputFile=<file>",
   },
   // mkdir -p /tmp/curlconverter/java-okhttp && cd /tmp/curlconverter/java-okhttp && curl https://repo1.maven.org/maven2/com/squareup/okhttp3/okhttp/4.11.0/okhttp-4.11.0.jar > okhttp-4.11.0.jar
   // "java-okhttp": {
@@ -198,8 +220,8 @@ var $ = jQueryInit(window);
       fs.writeFileSync(
         "/tmp/curlconverter/node-http/main.js",
         contents.replace(
-          "hostname: 'localhost:28139',",
-          "hostname: 'localhost', port: 28139,",
+          /hostname: 'localhost:(\d+)',/,
+          "hostname: 'localhost', port: $1,",
         ),
         "utf8",
       );
@@ -336,7 +358,9 @@ dispatchMain()\n`,
 
 const argv = await yargs(hideBin(process.argv))
   .scriptName("compare-request")
-  .usage("Usage: $0 [--no-diff] [-l <language>] [test_name...]")
+  .usage(
+    "Usage: $0 [--no-diff] [-l <language>] [-j <concurrency>] [test_name...]",
+  )
   .option("diff", {
     describe: "print a colorized diff instead of the raw requests",
     default: true,
@@ -357,68 +381,328 @@ const argv = await yargs(hideBin(process.argv))
     demandOption: false,
     type: "string",
   })
+  .option("j", {
+    alias: "concurrency",
+    describe:
+      "how many programs to run at once. Languages that are copied to a " +
+      "project directory in " +
+      testDir +
+      " run one at a time.",
+    default: os.availableParallelism(),
+    defaultDescription: "one per CPU",
+    demandOption: false,
+    type: "number",
+  })
+  .option("timeout", {
+    describe: "how many seconds a program can run for",
+    default: 120,
+    demandOption: false,
+    type: "number",
+  })
+  .option("java-batch", {
+    describe:
+      "compile the Java programs for every test with one javac and run " +
+      "them in one JVM",
+    default: false,
+    demandOption: false,
+    type: "boolean",
+  })
   .alias("h", "help")
   .help()
   .parse();
 
-const languages: (keyof typeof executables)[] = Array.isArray(argv.language)
+type Language = keyof typeof executables;
+const languages: Language[] = Array.isArray(argv.language)
   ? argv.language
   : [argv.language];
 
-const testFile = async (
-  testFilename: string,
-  languages: (keyof typeof executables)[],
-): Promise<void> => {
-  const rawRequests: string[] = [];
-
-  // TODO: this is flaky
-  const server = net.createServer();
-  server.on("connection", (socket) => {
-    socket.setEncoding("utf8");
+interface RunResult {
+  requests: CapturedRequest[];
+  error?: unknown;
+}
 
-    // Timeout very quickly because we only care about recieving the sent request.
-    socket.setTimeout(800, () => {
-      socket.end();
-    });
+// Replaces the fixture port in a curl command or program with the port of the
+// server a run sends its requests to
+function withPort(contents: string, port: number): string {
+  return contents.replace(
+    new RegExp(":" + FIXTURE_PORT + "\\b", "g"),
+    ":" + port,
+  );
+}
 
-    socket.on("data", (data) => {
-      // TODO: this is not a Buffer, it's a string...
-      rawRequests.push((data as unknown as string).replace(/\r\n/g, "\n"));
+// Closes the server and returns what it captured with the fixture's port put
+// back, since the Host header has the port in it
+async function captured(
+  capture: Capture,
+  error?: unknown,
+): Promise<RunResult> {
+  await capture.close();
+  const fixturePort = (s: string) =>
+    s.replaceAll(":" + capture.port, ":" + FIXTURE_PORT);
+  const requests = capture.requests.map((r) => ({
+    ...r,
+    target: fixturePort(r.target),
+    headers: r.headers.map(([n, v]): [string, string] => [n, fixturePort(v)]),
+  }));
+  return { requests, error };
+}
 
-      if (!socket.write(MINIMAL_HTTP_RESPONSE)) {
-        socket.pause();
+// Runs the curl command or program in file against its own server and
+// returns the requests it sent
+async function run(
+  language: Language | "curl",
+  file: string,
+): Promise<RunResult> {
+  const capture = await startCapture();
+  const runDir = path.join(testDir, "runs");
+  fs.mkdirSync(runDir, { recursive: true });
+  const runFile = path.join(
+    runDir,
+    capture.port + "-" + language + "-" + path.basename(file),
+  );
+  const options = { timeout: argv.timeout * 1000 };
+  let error: unknown;
+  try {
+    const contents = withPort(fs.readFileSync(file, "utf8"), capture.port);
+    fs.writeFileSync(runFile, contents, "utf8");
+    if (language === "curl") {
+      await awaitableExec("bash " + runFile, options);
+    } else {
+      const executable = executables[language];
+      if ("copy" in executable) {
+        if (typeof executable.copy === "function") {
+          executable.copy(contents);
+        } else {
+          await awaitableExec(executable.copy.replace("<file>", runFile));
+        }
       }
-    });
+      // TODO: escape?
+      await awaitableExec(executable.exec.replace("<file>", runFile), options);
+    }
+  } catch (e) {
+    // An error can happen because our server responds with a generic
+    // response.
+    error = e;
+  } finally {
+    fs.rmSync(runFile, { force: true });
+  }
+  return captured(capture, error);
+}
 
-    socket.on("drain", () => {
-      socket.resume();
-    });
-    socket.on("timeout", () => {
-      socket.end();
+// At most --concurrency programs run at once
+let running = 0;
+const waiting: (() => void)[] = [];
+async function limited<T>(f: () => Promise<T>): Promise<T> {
+  while (running >= Math.max(1, argv.concurrency)) {
+    await new Promise<void>((resolve) => waiting.push(resolve));
+  }
+  running++;
+  try {
+    return await f();
+  } finally {
+    running--;
+    waiting.shift()?.();
+  }
+}
+
+// Languages with a copy step are copied to the same place in testDir every
+// time, so only one program for each of them can run at a time.
+const languageQueues = new Map<Language, Promise<unknown>>();
+function runLanguage(language: Language, file: string): Promise<RunResult> {
+  const executable = executables[language];
+  if (!("copy" in executable)) {
+    return limited(() => run(language, file));
+  }
+  const previous = languageQueues.get(language) ?? Promise.resolve();
+  const next = () => limited(() => run(language, file));
+  const result = previous.then(next, next);
+  languageQueues.set(language, result);
+  return result;
+}
+
+// With --java-batch the Java programs aren't run by runLanguage(). They're
+// collected while the tests start and then compiled by one javac, each one
+// renamed to its own class, and run one after another in one JVM by
+// BatchRunner, each against its own server.
+interface JavaBatchEntry {
+  language: Language;
+  file: string;
+  className: string;
+  resolve: (result: RunResult) => void;
+}
+const javaBatch: JavaBatchEntry[] = [];
+
+function addToJavaBatch(
+  language: Language,
+  testName: string,
+  file: string,
+): Promise<RunResult> {
+  // Both can have "-" in them, like "java-jsoup" and "post_with_data-ascii"
+  const className =
+    language.replace(/\W/g, "_") + "__" + testName.replace(/\W/g, "_");
+  return new Promise((resolve) => {
+    javaBatch.push({ language, file, className, resolve });
+  });
+}
+
+const JAVA_BATCH_MARKER = "@@compare-requests@@";
+const JAVA_BATCH_RUNNER = `\
+public class BatchRunner {
+  // The arguments are a timeout in milliseconds and the classes to run
+  public static void main(String[] args) throws Exception {
+    long timeout = Long.parseLong(args[0]);
+    for (int i = 1; i < args.length; i++) {
+      String name = args[i];
+      String[] result = {"error timed out"};
+      Thread thread = new Thread(() -> {
+        try {
+          Class.forName(name)
+              .getMethod("main", String[].class)
+              .invoke(null, (Object) new String[0]);
+          result[0] = "ok";
+        } catch (java.lang.reflect.InvocationTargetException e) {
+          result[0] = "error " + e.getCause();
+        } catch (Throwable e) {
+          result[0] = "error " + e;
+        }
+      });
+      thread.setDaemon(true);
+      thread.start();
+      thread.join(timeout);
+      System.out.println(
+          "${JAVA_BATCH_MARKER} " + name + " " + result[0].replace('\\n', ' '));
+    }
+    System.exit(0);
+  }
+}
+`;
+
+// The jars the Java programs need. Working them out runs Maven, so they're
+// saved in testDir and only worked out again if that file is deleted.
+async function javaClasspath(): Promise<string[]> {
+  const classpath: string[] = [];
+  for (const language of new Set(javaBatch.map((e) => e.language))) {
+    const executable = executables[language];
+    if (!("classpath" in executable)) {
+      continue;
+    }
+    const classpathFile = path.join(testDir, language + ".classpath");
+    if (!fs.existsSync(classpathFile)) {
+      await awaitableExec(
+        executable.classpath.replace("<file>", classpathFile),
+      );
+    }
+    const jars = fs.readFileSync(classpathFile, "utf8").trim();
+    classpath.push(...jars.split(path.delimiter).filter(Boolean));
+  }
+  return classpath;
+}
+
+async function runJavaBatch(): Promise<void> {
+  if (!javaBatch.length) {
+    return;
+  }
+  const captures = await Promise.all(javaBatch.map(() => startCapture()));
+  const errors = new Map<string, unknown>();
+  const batchDir = fs.mkdtempSync(path.join(testDir, "java-batch-"));
+  try {
+    const classesDir = path.join(batchDir, "classes");
+    fs.mkdirSync(classesDir);
+    const classpath = [classesDir, ...(await javaClasspath())].join(
+      path.delimiter,
+    );
+    const runner = path.join(batchDir, "BatchRunner.java");
+    fs.writeFileSync(runner, JAVA_BATCH_RUNNER, "utf8");
+    const sources = javaBatch.map((entry, i) => {
+      const executable = executables[entry.language];
+      const contents = withPort(
+        fs.readFileSync(entry.file, "utf8"),
+        captures[i].port,
+      );
+      const source = path.join(batchDir, entry.className + ".java");
+      fs.writeFileSync(
+        source,
+        "javaClass" in executable
+          ? executable.javaClass(contents, entry.className)
+          : contents,
+        "utf8",
+      );
+      return source;
     });
-    socket.on("close", (error) => {
-      if (error) {
-        console.error("transmission error");
+
+    const argFile = path.join(batchDir, "sources.txt");
+    const compile = (files: string[]) => {
+      fs.writeFileSync(argFile, files.join("\n"), "utf8");
+      return awaitableExec(
+        "javac -cp " + classpath + " -d " + classesDir + " @" + argFile,
+      );
+    };
+    let compiled = javaBatch;
+    try {
+      await compile([runner, ...sources]);
+    } catch {
+      // One program that doesn't compile stops all of them from compiling,
+      // so compile them one at a time to find out which ones don't
+      await compile([runner]);
+      compiled = [];
+      for (const [i, entry] of javaBatch.entries()) {
+        try {
+          await compile([sources[i]]);
+          compiled.push(entry);
+        } catch (e) {
+          errors.set(entry.className, e);
+        }
       }
-    });
-    setTimeout(() => {
-      socket.destroy();
-    }, 1000);
-  });
+    }
+
+    if (compiled.length) {
+      const { stdout } = await awaitableExec(
+        "java -cp " +
+          classpath +
+          " BatchRunner " +
+          argv.timeout * 1000 +
+          " " +
+          compiled.map((e) => e.className).join(" "),
+        { maxBuffer: 256 * 1024 * 1024 },
+      );
+      for (const line of stdout.split("\n")) {
+        if (line.startsWith(JAVA_BATCH_MARKER + " ")) {
+          const [className, status, ...message] = line.split(" ").slice(1);
+          if (status !== "ok") {
+            errors.set(className, new Error(message.join(" ")));
+          }
+        }
+      }
+    }
+  } catch (e) {
+    for (const entry of javaBatch) {
+      if (!errors.has(entry.className)) {
+        errors.set(entry.className, e);
+      }
+    }
+  } finally {
+    fs.rmSync(batchDir, { recursive: true, force: true });
+  }
+  for (const [i, entry] of javaBatch.entries()) {
+    entry.resolve(await captured(captures[i], errors.get(entry.className)));
+  }
+}
 
-  server.maxConnections = 1;
-  server.listen(DEFAULT_PORT);
-  // setTimeout(function(){
-  //   server.close();
-  // }, 5000);
+interface TestResult {
+  inputFile: string;
+  files: string[];
+  curl: RunResult;
+  results: (RunResult | null)[];
+}
 
+// Starts every run for a test and returns null if it can't be tested
+function testFile(testFilename: string): Promise<TestResult> | null {
   const inputFile = path.join(
     fixturesDir,
     "curl_commands",
     testFilename + ".sh",
   );
   if (!fs.existsSync(inputFile)) {
-    server.close();
     throw new Error("input file doesn't exist: " + inputFile);
   }
   const curlCommand = fs.readFileSync(inputFile, "utf8");
@@ -431,56 +715,41 @@ const testFile = async (
     console.error("it needs to request");
     console.error("  http://" + EXPECTED_URL);
     console.error("so we can capture the data it sends.");
-    server.close();
-    return;
+    return null;
   }
-  try {
-    await awaitableExec("bash " + inputFile);
-  } catch (e) {}
 
-  const files = languages.map((l: keyof typeof executables) =>
+  const files = languages.map((l) =>
     path.join(fixturesDir, l, testFilename + converters[l].extension),
   );
-  for (let i = 0; i < languages.length; i++) {
-    const language = languages[i];
-    const languageFile = files[i];
-    const executable = executables[language];
-    if (fs.existsSync(languageFile)) {
-      if ("copy" in executable) {
-        if (typeof executable.copy === "function") {
-          executable.copy(fs.readFileSync(languageFile).toString());
-        } else {
-          await awaitableExec(executable.copy.replace("<file>", languageFile));
-        }
-      }
-      // TODO: escape?
-      const command = executable.exec.replace("<file>", languageFile);
-      try {
-        await awaitableExec(command);
-      } catch (e) {
-        // Uncomment for debugging. An error can happen because
-        // our server responds with a generic response.
-        console.error(e);
-      }
-    } else {
-      console.error(
-        language + " file doesn't exist, skipping: " + languageFile,
-      );
+  const curl = limited(() => run("curl", inputFile));
+  const results = languages.map((language, i) => {
+    if (!fs.existsSync(files[i])) {
+      console.error(language + " file doesn't exist, skipping: " + files[i]);
+      return null;
     }
-  }
+    if (argv.javaBatch && "javaClass" in executables[language]) {
+      return addToJavaBatch(language, testFilename, files[i]);
+    }
+    return runLanguage(language, files[i]);
+  });
+  return Promise.all([curl, Promise.all(results)]).then(
+    ([curl, results]) => ({ inputFile, files, curl, results }),
+  );
+}
 
-  // TODO: allow ignoring headers for each converter
-  function sortLines(a: string): string {
-    return (
-      a
-        .split("\n")
-        .filter(Boolean)
-        .filter((s) => !s.toLowerCase().startsWith("user-agent: "))
-        .sort(Intl.Collator().compare)
-        .join("\n") + "\n"
-    );
-  }
+// TODO: allow ignoring headers for each converter
+function sortLines(a: string): string {
+  return (
+    a
+      .split("\n")
+      .filter(Boolean)
+      .filter((s) => !s.toLowerCase().startsWith("user-agent: "))
+      .sort(Intl.Collator().compare)
+      .join("\n") + "\n"
+  );
+}
 
+function printTest({ inputFile, files, curl, results }: TestResult) {
   const requestName = path.parse(inputFile).name;
   console.log(requestName);
   console.log("=".repeat(requestName.length));
@@ -493,8 +762,20 @@ const testFile = async (
   }
   console.log("=".repeat(requestName.length));
 
-  const [curlRequest, ...languageRequests] = rawRequests;
-  for (const languageRequest of languageRequests) {
+  const curlRequest = curl.requests.map(formatRequest).join("\n");
+  for (const [i, result] of results.entries()) {
+    if (result === null) {
+      continue;
+    }
+    if (result.error) {
+      // Uncomment for debugging. An error can happen because
+      // our server responds with a generic response.
+      console.error(result.error);
+    }
+    if (!result.requests.length) {
+      console.error(languages[i] + " didn't send a request");
+    }
+    const languageRequest = result.requests.map(formatRequest).join("\n");
     if (argv.diff) {
       const a = argv.sort ? sortLines(curlRequest) : curlRequest;
       const b = argv.sort ? sortLines(languageRequest) : languageRequest;
@@ -510,9 +791,7 @@ const testFile = async (
     }
   }
   console.log();
-
-  server.close();
-};
+}
 
 // if no tests were specified, run them all
 const tests = argv._;
@@ -559,13 +838,18 @@ if (tests.length) {
     }
   }
 }
-function delay(ms: number) {
-  return new Promise((resolve) => setTimeout(resolve, ms));
-}
-for (const test of tests.sort()) {
-  const testName = path.parse(test.toString()).name;
-  await testFile(testName, languages);
-  await delay(1000);
+
+// Every test starts running now but they're printed in order, as soon as
+// each one and the ones before it are done
+const runningTests = tests
+  .sort()
+  .map((test) => testFile(path.parse(test.toString()).name));
+// Only starts once every test has added its Java programs to the batch
+limited(runJavaBatch);
+for (const runningTest of runningTests) {
+  if (runningTest) {
+    printTest(await runningTest);
+  }
 }
 
 process.exit(0);
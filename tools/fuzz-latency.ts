@@ -0,0 +1,352 @@
+#!/usr/bin/env node
+
+// Looks for commands that take more than linearly longer to convert the
+// longer they get, like ones that make a regex backtrack.
+//
+// Each candidate is a command with a short unit repeated in the value of one
+// of curl's options, in one of the kinds of Bash strings the tokenizer
+// handles. It's converted with the unit repeated n times and --factor times
+// as many times and if the time grows faster than the size, the command is
+// made as small as it can be while it's still slow and, with --save, written
+// to test/fixtures/latency/, where test/latency.ts checks how fast its time
+// grows the same way, so the test fails until whatever is slow is fixed.
+
+import fs from "fs";
+import path from "path";
+
+import yargs from "yargs";
+import { hideBin } from "yargs/helpers";
+
+import { curlLongOpts } from "../src/curl/opts.ts";
+import type { LongOpts } from "../src/curl/opts.ts";
+import { loadLanguage } from "../src/languages.ts";
+import type { WarnGenerator } from "../src/languages.ts";
+import { fixturesDir } from "../test/test-utils.ts";
+
+const argv = await yargs(hideBin(process.argv))
+  .scriptName("fuzz-latency")
+  .usage(
+    "Usage: $0 [-n <candidates>] [--seed <seed>] [-l <language>...] [--size <repeats>] [--save]",
+  )
+  .option("n", {
+    alias: "candidates",
+    describe: "how many commands to try",
+    default: 200,
+    type: "number",
+  })
+  .option("seed", {
+    describe:
+      "the seed for generating commands, " +
+      "the same seed tries the same commands",
+    default: 1,
+    type: "number",
+  })
+  .option("l", {
+    alias: "language",
+    describe: "the languages to convert to, one is picked for each command",
+    default: ["python", "javascript", "go", "java", "php", "json"],
+    type: "string",
+  })
+  .option("size", {
+    describe: "how many times to repeat the unit in the smaller command",
+    default: 500,
+    type: "number",
+  })
+  .option("factor", {
+    describe: "how many times bigger the bigger command is",
+    default: 8,
+    type: "number",
+  })
+  .option("threshold", {
+    describe:
+      "how fast the time has to grow to count as superlinear, " +
+      "as an exponent of the size (1 is linear, 2 is quadratic)",
+    default: 1.5,
+    type: "number",
+  })
+  .option("min-ms", {
+    describe:
+      "ignore commands that take less than this long at the bigger size",
+    default: 5,
+    type: "number",
+  })
+  .option("save", {
+    describe: "write what's found to test/fixtures/latency/",
+    default: false,
+    type: "boolean",
+  })
+  .alias("h", "help")
+  .help()
+  .parse();
+
+const latencyDir = path.join(fixturesDir, "latency");
+
+interface Pattern {
+  language: string;
+  // The command is prefix + unit repeated + suffix.
+  // They're split into pieces for minimizing.
+  prefix: string[];
+  unit: string[];
+  suffix: string[];
+}
+
+let seed = argv.seed >>> 0 || 1;
+function rand(n: number): number {
+  seed = (Math.imul(seed, 1103515245) + 12345) >>> 0;
+  return seed % n;
+}
+function pick<T>(choices: readonly T[]): T {
+  return choices[rand(choices.length)];
+}
+
+const longOpts = curlLongOpts as LongOpts;
+const stringOpts = Object.keys(longOpts).filter(
+  (o) => longOpts[o]?.type === "string" && !longOpts[o]?.removed,
+);
+const boolOpts = Object.keys(longOpts).filter(
+  (o) => longOpts[o]?.type === "bool" && !longOpts[o]?.removed,
+);
+// Options whose values get parsed, along with what their values usually
+// start with. These are picked more often than the rest of stringOpts.
+const parsedOpts: [string, string[]][] = [
+  [
+    "header",
+    [
+      "Content-Type: multipart/form-data; ",
+      "Content-Type: application/json; charset=",
+      "Cookie: ",
+      "Authorization: Basic ",
+      "X-Test: ",
+      "",
+    ],
+  ],
+  ["data", ["", "a=", '{"a": "', "@"]],
+  ["data-raw", ["", "a=", '{"a": "']],
+  ["data-binary", ["", '{"a": "']],
+  ["data-urlencode", ["", "a=", "a@", "=", "@"]],
+  ["form", ["a=", "a=@f;type=", "a=<", "a=;filename="]],
+  ["url", ["https://example.com/", "https://example.com/?", "example.com:"]],
+  ["url-query", ["", "a=", "+"]],
+  ["cookie", ["", "a="]],
+  ["user", ["", "a:"]],
+  ["aws-sigv4", ["aws:amz:"]],
+  ["proxy", ["http://"]],
+  ["request", [""]],
+];
+
+// What each of the kinds of Bash strings that tokenizer.ts handles starts and
+// ends with and what would end it early. A lone backslash would escape
+// whatever comes after it, like the closing quote.
+const stringKinds: [string, string, RegExp][] = [
+  ["", "", /^\\$|[\s'"|&;<>#]/u], // word
+  ["'", "'", /'/], // raw_string
+  ['"', '"', /^\\$|(^|[^\\])"/], // string
+  ["$'", "'", /^\\$|(^|[^\\])'/], // ansi_c_string
+];
+// What units are made of. Some of them are only allowed in some kinds of
+// strings, the rest of the time they're left out.
+const unitPieces = [
+  " ",
+  "\t",
+  ";",
+  "=",
+  "&",
+  "%",
+  "%2",
+  "%C3",
+  "+",
+  ",",
+  ":",
+  "/",
+  "?",
+  "#",
+  "@",
+  "a",
+  "0",
+  "-",
+  ".",
+  "[",
+  "]",
+  "{",
+  "}",
+  '"',
+  "'",
+  "\\",
+  "\\n",
+  "\\x",
+  "\\u00",
+  "\\'",
+  '\\"',
+  "$",
+  "$A",
+  "${A}",
+  "$(a)",
+  "`a`",
+  "\r\n",
+  "é",
+  "🎉",
+];
+
+function generate(languages: string[]): Pattern {
+  const prefix = ["curl"];
+  for (let i = rand(3); i > 0; i--) {
+    prefix.push(" --" + pick(boolOpts));
+  }
+  let opt = pick(stringOpts);
+  let valueStart = "";
+  if (rand(4)) {
+    const [parsedOpt, valueStarts] = pick(parsedOpts);
+    opt = parsedOpt;
+    valueStart = pick(valueStarts);
+  }
+  const [open, close, ends] = pick(stringKinds);
+  const allowed = (s: string) => !ends.test(s);
+  prefix.push(" --" + opt, " " + open);
+  if (valueStart && allowed(valueStart)) {
+    prefix.push(valueStart);
+  }
+
+  const unit: string[] = [];
+  for (let i = 1 + rand(4); i > 0; i--) {
+    const piece = pick(unitPieces);
+    if (allowed(piece)) {
+      unit.push(piece);
+    }
+  }
+  if (!unit.length) {
+    unit.push("a");
+  }
+
+  const suffix = [close];
+  if (opt !== "url") {
+    suffix.push(" example.com");
+  }
+  if (rand(2)) {
+    suffix.push(" -d a=b");
+  }
+  return { language: pick(languages), prefix, unit, suffix };
+}
+
+function build(p: Pattern, repeat: number): string {
+  return p.prefix.join("") + p.unit.join("").repeat(repeat) + p.suffix.join("");
+}
+
+const warnGenerators = new Map<string, WarnGenerator>();
+async function loadGenerator(language: string) {
+  if (!warnGenerators.has(language)) {
+    warnGenerators.set(language, (await loadLanguage(language))[1]);
+  }
+}
+
+// The fastest of 3 conversions, in milliseconds. Commands that throw are
+// timed too, the time it takes to reject a command counts as well.
+function time(p: Pattern, repeat: number): number {
+  const warnGenerator = warnGenerators.get(p.language) as WarnGenerator;
+  const command = build(p, repeat);
+  let best = Infinity;
+  for (let i = 0; i < 3; i++) {
+    const start = performance.now();
+    try {
+      warnGenerator(command);
+    } catch {}
+    best = Math.min(best, performance.now() - start);
+  }
+  return best;
+}
+
+// Returns how fast the time grows compared to the size, as an exponent,
+// or 0 if it's too fast to tell
+function growth(p: Pattern): number {
+  const small = time(p, argv.size);
+  const big = time(p, argv.size * argv.factor);
+  if (big < argv.minMs) {
+    return 0;
+  }
+  return Math.log(big / Math.max(small, 0.001)) / Math.log(argv.factor);
+}
+
+function isSlow(p: Pattern): boolean {
+  // Measured twice because a garbage collection can make one measurement slow
+  return growth(p) > argv.threshold && growth(p) > argv.threshold;
+}
+
+// Removes every piece that the command is still slow without
+function minimize(p: Pattern): Pattern {
+  for (const key of ["prefix", "unit", "suffix"] as const) {
+    for (let i = p[key].length - 1; i >= 0; i--) {
+      if (key === "prefix" && i === 0) {
+        continue; // "curl"
+      }
+      const pieces = p[key].filter((_, j) => j !== i);
+      if (key === "unit" && !pieces.length) {
+        continue;
+      }
+      const smaller = { ...p };
+      smaller[key] = pieces;
+      if (isSlow(smaller)) {
+        p = smaller;
+      }
+    }
+  }
+  return p;
+}
+
+// Finds how many repeats it takes for the command to take long enough that
+// test/latency.ts can tell how its time grows even once it's been fixed
+function testRepeat(p: Pattern): number | null {
+  for (
+    let repeat = argv.size * argv.factor;
+    repeat <= argv.size * 1024;
+    repeat *= 2
+  ) {
+    const ms = time(p, repeat);
+    if (ms > 100) {
+      return repeat;
+    }
+  }
+  return null;
+}
+
+const languages: string[] = Array.isArray(argv.language)
+  ? argv.language
+  : [argv.language];
+for (const language of languages) {
+  await loadGenerator(language);
+}
+
+let found = 0;
+for (let i = 0; i < argv.candidates; i++) {
+  const candidate = generate(languages);
+  if (!isSlow(candidate)) {
+    continue;
+  }
+  const p = minimize(candidate);
+  const repeat = testRepeat(p);
+  if (repeat === null) {
+    continue;
+  }
+  found++;
+  const fixture = {
+    language: p.language,
+    prefix: p.prefix.join(""),
+    unit: p.unit.join(""),
+    suffix: p.suffix.join(""),
+    repeat,
+  };
+  console.log(JSON.stringify(fixture));
+  if (argv.save) {
+    const name = "fuzz-" + argv.seed + "-" + i + "-" + p.language + ".json";
+    fs.mkdirSync(latencyDir, { recursive: true });
+    fs.writeFileSync(
+      path.join(latencyDir, name),
+      JSON.stringify(fixture, null, 2) + "\n",
+    );
+    console.log("wrote " + path.join(latencyDir, name));
+  }
+}
+console.error(
+  "tried " + argv.candidates + " commands, " + found + " were superlinear",
+);
+if (found) {
+  process.exit(1);
+}
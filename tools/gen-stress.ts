@@ -0,0 +1,68 @@
+#!/usr/bin/env node
+
+// Writes the commands from tools/stress.ts to files, for running them
+// through the CLI or a profiler.
+
+import fs from "fs";
+import path from "path";
+
+import yargs from "yargs";
+import { hideBin } from "yargs/helpers";
+
+import { getStressCase, stressCases, stressKinds } from "./stress.ts";
+
+const argv = await yargs(hideBin(process.argv))
+  .scriptName("gen-stress")
+  .usage("Usage: $0 [-k <kind>...] [--size <size>] [--out <directory>]")
+  .option("k", {
+    alias: "kind",
+    describe:
+      "the kinds of commands to generate\n" +
+      stressCases.map((c) => c.kind + ": " + c.describe).join("\n"),
+    choices: stressKinds,
+    default: stressKinds,
+    defaultDescription: "all of them",
+    type: "string",
+  })
+  .option("size", {
+    describe:
+      "how big each command is, in the unit for its kind " +
+      "(headers, characters, parts, ...)",
+    defaultDescription: "the biggest we've seen in real commands",
+    type: "number",
+  })
+  .option("out", {
+    describe: "the directory to write <kind>-<size>.sh files to, or - for stdout",
+    default: "stress",
+    type: "string",
+  })
+  .alias("h", "help")
+  .help()
+  .parse();
+
+const kinds: string[] = Array.isArray(argv.kind) ? argv.kind : [argv.kind];
+if (argv.out !== "-" && !fs.existsSync(argv.out)) {
+  fs.mkdirSync(argv.out, { recursive: true });
+}
+for (const kind of kinds) {
+  const stressCase = getStressCase(kind);
+  const size = argv.size ?? stressCase.maxSize;
+  const command = stressCase.generate(size);
+  if (argv.out === "-") {
+    process.stdout.write(command);
+    continue;
+  }
+  const outPath = path.join(argv.out, kind + "-" + size + ".sh");
+  fs.writeFileSync(outPath, command);
+  console.error(
+    "wrote " +
+      outPath +
+      " (" +
+      size +
+      " " +
+      stressCase.unit +
+      ", " +
+      command.length +
+      " characters)",
+  );
+}
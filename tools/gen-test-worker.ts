@@ -0,0 +1,20 @@
+// Entry point of the worker threads started by gen-test.ts. Each message is a
+// list of commands to convert and the reply is the code or the error for each
+// one.
+
+import { parentPort } from "worker_threads";
+
+import { converters } from "../test/test-utils.ts";
+import type { GenTestResult, GenTestTask } from "./gen-test.ts";
+
+parentPort!.on("message", (tasks: GenTestTask[]) => {
+  parentPort!.postMessage(
+    tasks.map(({ curl, language }): GenTestResult => {
+      try {
+        return { code: converters[language].converter(curl) };
+      } catch (e) {
+        return { error: (e as Error).stack ?? String(e) };
+      }
+    }),
+  );
+});
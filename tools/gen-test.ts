@@ -1,6 +1,17 @@
 #!/usr/bin/env node
 
+// Converts the commands in test/fixtures/curl_commands/ and saves the results
+// as the expected output of the tests.
+//
+// .gen-test-manifest.json stores a hash of what each output was generated
+// from, which is the command and every source file its converter imports (see
+// test/affected.ts), and of what was written. Outputs whose inputs haven't
+// changed and that haven't been edited since are skipped, the rest are
+// converted on worker threads.
+
+import crypto from "crypto";
 import fs from "fs";
+import os from "os";
 import path from "path";
 
 import yargs from "yargs";
@@ -8,6 +19,28 @@ import { hideBin } from "yargs/helpers";
 
 import { fixturesDir, converters } from "../test/test-utils.ts";
 import type { Converter } from "../test/test-utils.ts";
+import { converterSources, rootDir } from "../test/affected.ts";
+import { runOnWorkers } from "../test/workers.ts";
+
+export interface GenTestTask {
+  curl: string;
+  language: Converter;
+}
+
+export type GenTestResult =
+  | { code: string; error?: undefined }
+  | { code?: undefined; error: string };
+
+interface Manifest {
+  version: number;
+  // Keyed by the output's path in test/fixtures/, like "python/get_basic.py".
+  // output is null if the command was converted but not saved.
+  outputs: { [output: string]: { inputs: string; output: string | null } };
+}
+
+// Increase this if the hashes change
+const MANIFEST_VERSION = 1;
+const manifestPath = path.join(rootDir, ".gen-test-manifest.json");
 
 const curlCommandDir = path.resolve(fixturesDir, "curl_commands");
 
@@ -31,6 +64,20 @@ const argv = await yargs(hideBin(process.argv))
     demandOption: false,
     type: "boolean",
   })
+  .option("force", {
+    describe: "convert everything, even if it's up to date",
+    default: false,
+    demandOption: false,
+    type: "boolean",
+  })
+  .option("j", {
+    alias: "jobs",
+    describe: "how many worker threads to convert on",
+    default: os.availableParallelism(),
+    defaultDescription: "one per CPU",
+    demandOption: false,
+    type: "number",
+  })
   .positional("curl_command_filename", {
     // this has no effect, it's here for --help
     describe:
@@ -71,9 +118,61 @@ const inPaths = inFiles.map((infile) => {
   return testfile;
 });
 
-const printEachFile =
-  inPaths.length < 10 || languages.length < Object.keys(converters).length;
-let total = 0;
+function hash(...parts: string[]): string {
+  const h = crypto.createHash("sha256");
+  for (const part of parts) {
+    h.update(part).update("\0");
+  }
+  return h.digest("hex");
+}
+
+function readManifest(): Manifest {
+  try {
+    const manifest = JSON.parse(fs.readFileSync(manifestPath, "utf8"));
+    if (manifest.version === MANIFEST_VERSION) {
+      return manifest;
+    }
+  } catch {}
+  return { version: MANIFEST_VERSION, outputs: {} };
+}
+
+const fileHashes = new Map<string, string>();
+const sourceHashes = new Map<Converter, string>();
+function sourcesHash(language: Converter): string {
+  let result = sourceHashes.get(language);
+  if (result === undefined) {
+    // test-utils.ts has toParser() and decides which function is called
+    const files = ["test/test-utils.ts", ...converterSources(language)];
+    const parts: string[] = [];
+    for (const file of files) {
+      let fileHash = fileHashes.get(file);
+      if (fileHash === undefined) {
+        fileHash = hash(fs.readFileSync(path.join(rootDir, file), "utf8"));
+        fileHashes.set(file, fileHash);
+      }
+      parts.push(file, fileHash);
+    }
+    result = hash(...parts);
+    sourceHashes.set(language, result);
+  }
+  return result;
+}
+
+const manifest: Manifest = argv.force
+  ? { version: MANIFEST_VERSION, outputs: {} }
+  : readManifest();
+
+interface Output {
+  inPath: string;
+  outPath: string;
+  key: string;
+  inputs: string;
+  // What's there now
+  existing: string | null;
+}
+const tasks: GenTestTask[] = [];
+const outputs: Output[] = [];
+let upToDate = 0;
 for (const inPath of inPaths) {
   const curl = fs.readFileSync(inPath, "utf8");
   for (const language of languages) {
@@ -87,39 +186,80 @@ for (const inPath of inPaths) {
       fs.mkdirSync(outDir);
     }
     const outPath = path.join(outDir, newFilename);
+    const key = language + "/" + newFilename;
+    const inputs = hash(sourcesHash(language), curl);
+    const existing = fs.existsSync(outPath)
+      ? fs.readFileSync(outPath, "utf8")
+      : null;
 
-    let code;
-    try {
-      code = converter.converter(curl);
-    } catch (e) {
-      console.error("error converting curl command to " + language);
-      console.error(inPath);
-      console.error();
-      console.error(curl);
-      console.error();
-
-      console.error(e);
+    const entry = manifest.outputs[key];
+    if (
+      entry &&
+      entry.inputs === inputs &&
+      entry.output === (existing === null ? null : hash(existing)) &&
+      // A file that wasn't saved has to be if it's asked for now
+      (existing !== null || overwriteExistingOnly)
+    ) {
+      upToDate++;
       continue;
     }
+    tasks.push({ curl, language });
+    outputs.push({ inPath, outPath, key, inputs, existing });
+  }
+}
 
-    // Might as well generate the output to check
-    if (overwriteExistingOnly && !fs.existsSync(outPath)) {
-      continue;
-    }
+const results: GenTestResult[] = await runOnWorkers(
+  new URL("./gen-test-worker.js", import.meta.url),
+  tasks,
+  argv.jobs,
+);
 
-    const orig = fs.existsSync(outPath) ? fs.readFileSync(outPath, "utf8") : "";
+const printEachFile =
+  inPaths.length < 10 || languages.length < Object.keys(converters).length;
+let total = 0;
+for (const [i, result] of results.entries()) {
+  const { curl, language } = tasks[i];
+  const { inPath, outPath, key, inputs, existing } = outputs[i];
+
+  if (result.error !== undefined) {
+    console.error("error converting curl command to " + language);
+    console.error(inPath);
+    console.error();
+    console.error(curl);
+    console.error();
+
+    console.error(result.error);
+    continue;
+  }
+  const code = result.code;
+
+  // Might as well generate the output to check
+  if (overwriteExistingOnly && existing === null) {
+    manifest.outputs[key] = { inputs, output: null };
+    continue;
+  }
+
+  if (existing !== code) {
     fs.writeFileSync(outPath, code);
-    if (orig !== code) {
-      if (printEachFile) {
-        console.error("wrote to " + path.relative(fixturesDir, outPath));
-      } else {
-        total += 1;
-      }
+    if (printEachFile) {
+      console.error("wrote to " + path.relative(fixturesDir, outPath));
+    } else {
+      total += 1;
     }
   }
+  manifest.outputs[key] = { inputs, output: hash(code) };
 }
+fs.writeFileSync(manifestPath, JSON.stringify(manifest, null, 2) + "\n");
 if (!printEachFile) {
-  console.error("wrote " + total + " file" + (total === 1 ? "" : "s"));
+  console.error(
+    "wrote " +
+      total +
+      " file" +
+      (total === 1 ? "" : "s") +
+      ", " +
+      upToDate +
+      " up to date",
+  );
 }
 
 // if (inPaths.length && languages.length) {
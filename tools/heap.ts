@@ -0,0 +1,32 @@
+// Measures how much memory code allocates, for the benchmarks.
+
+import v8 from "v8";
+
+// Only the fields we use. The objects GCProfiler returns have camelCase keys.
+interface GCProfile {
+  statistics: {
+    beforeGC: { heapStatistics: { usedHeapSize: number } };
+    afterGC: { heapStatistics: { usedHeapSize: number } };
+  }[];
+}
+
+/**
+ * Calls f and returns what it returned and how many bytes were allocated on
+ * the JavaScript heap while it ran, which is how much bigger the heap is
+ * afterwards plus what the garbage collector freed in between.
+ */
+export function measureAllocations<T>(f: () => T): [T, number] {
+  const profiler = new v8.GCProfiler();
+  profiler.start();
+  const heapBefore = process.memoryUsage().heapUsed;
+  const result = f();
+  const heapAfter = process.memoryUsage().heapUsed;
+  const profile = profiler.stop() as unknown as GCProfile | undefined;
+  let freed = 0;
+  for (const gc of profile?.statistics ?? []) {
+    freed +=
+      gc.beforeGC.heapStatistics.usedHeapSize -
+      gc.afterGC.heapStatistics.usedHeapSize;
+  }
+  return [result, heapAfter - heapBefore + freed];
+}
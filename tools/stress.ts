@@ -0,0 +1,243 @@
+// Generates curl commands that are much bigger than the fixtures in
+// test/fixtures/curl_commands/, for finding the parts of curlconverter that
+// get slower faster than their input gets bigger.
+//
+// Each kind of command takes a size, like how many headers it has, and
+// always generates the same command for the same size.
+
+export type StressKind =
+  | "headers"
+  | "body"
+  | "form"
+  | "query"
+  | "next"
+  | "script";
+
+export interface StressCase {
+  kind: StressKind;
+  describe: string;
+  // What size means
+  unit: string;
+  // The biggest size of it we've seen in real commands
+  maxSize: number;
+  generate: (size: number) => string;
+}
+
+// The same pseudo-random numbers every time
+function random(seed: number): (n: number) => number {
+  return (n) => {
+    seed = (Math.imul(seed, 1103515245) + 12345) >>> 0;
+    return seed % n;
+  };
+}
+
+const WORDS = [
+  "alpha",
+  "bravo",
+  "charlie",
+  "delta",
+  "echo",
+  "foxtrot",
+  "golf",
+  "hotel",
+  "naïve",
+  "café",
+  "日本語",
+  "🎉",
+];
+
+function pick(rand: (n: number) => number): string {
+  return WORDS[rand(WORDS.length)];
+}
+
+function token(rand: (n: number) => number): string {
+  return rand(0x7fffffff).toString(36);
+}
+
+// -H 'X-Header-1: ...' -H 'X-Header-2: ...' ...
+// Some of the names repeat and some headers are cookies.
+function headers(size: number): string {
+  const rand = random(1);
+  const lines = ["curl https://example.com/api \\"];
+  for (let i = 0; i < size; i++) {
+    let header: string;
+    if (i % 10 === 9) {
+      header = "Cookie: session" + i + "=" + token(rand);
+    } else if (i % 10 === 8) {
+      header = "X-Header-" + rand(i + 1) + ": " + pick(rand);
+    } else {
+      header = "X-Header-" + i + ": " + token(rand) + " " + pick(rand);
+    }
+    lines.push("  -H '" + header + "' \\");
+  }
+  lines.push("  --compressed");
+  return lines.join("\n") + "\n";
+}
+
+// --data-binary '[{"id": 0, ...}, ...]' of at least size characters of JSON
+// with quotes, backslashes and non-ASCII characters in it
+function body(size: number): string {
+  const rand = random(2);
+  const records: string[] = [];
+  let length = 0;
+  for (let i = 0; length < size; i++) {
+    const record =
+      '{"id":' +
+      i +
+      ',"name":"' +
+      pick(rand) +
+      " " +
+      pick(rand) +
+      '","email":"' +
+      token(rand) +
+      '@example.com","score":' +
+      rand(1000) / 10 +
+      ',"tags":["' +
+      pick(rand) +
+      '","' +
+      pick(rand) +
+      '"],"bio":"they said \\"' +
+      pick(rand) +
+      '\\"\\n\\tand left"}';
+    records.push(record);
+    length += record.length + 2;
+  }
+  return (
+    "curl https://example.com/upload \\\n" +
+    "  -H 'Content-Type: application/json' \\\n" +
+    "  --data-binary '[" +
+    records.join(",\n") +
+    "]'\n"
+  );
+}
+
+// -F 'field1=...' -F 'file2=@...' ...
+function form(size: number): string {
+  const rand = random(3);
+  const lines = ["curl https://example.com/form \\"];
+  for (let i = 0; i < size; i++) {
+    let part: string;
+    if (i % 5 === 4) {
+      part = "file" + i + "=@upload" + i + ".txt;type=text/plain";
+    } else if (i % 5 === 3) {
+      part = "field" + i + '="' + pick(rand) + ' with, a comma"';
+    } else {
+      part = "field" + i + "=" + token(rand);
+    }
+    lines.push("  -F '" + part + "' \\");
+  }
+  lines.push("  --compressed");
+  return lines.join("\n") + "\n";
+}
+
+// A URL and --data with size key=value pairs each, some of them
+// percent-encoded
+function query(size: number): string {
+  const rand = random(4);
+  const pairs: string[] = [];
+  for (let i = 0; i < size; i++) {
+    const value =
+      i % 4 === 3
+        ? encodeURIComponent(pick(rand) + " " + pick(rand))
+        : token(rand);
+    pairs.push("key" + rand(size) + "=" + value);
+  }
+  const query = pairs.join("&");
+  return (
+    "curl 'https://example.com/search?" +
+    query +
+    "' \\\n  --data '" +
+    query +
+    "'\n"
+  );
+}
+
+// One curl command with size requests separated by --next
+function next(size: number): string {
+  const rand = random(5);
+  const lines = ["curl \\"];
+  for (let i = 0; i < size; i++) {
+    if (i) {
+      lines.push("  --next \\");
+    }
+    lines.push("  https://example.com/items/" + i + " \\");
+    lines.push("  -H 'Authorization: Bearer " + token(rand) + "' \\");
+    if (i % 2) {
+      lines.push("  -X POST -d 'name=" + token(rand) + "&n=" + i + "' \\");
+    }
+  }
+  lines.push("  --compressed");
+  return lines.join("\n") + "\n";
+}
+
+// size curl commands, one per line, like a script
+function script(size: number): string {
+  const rand = random(6);
+  const lines: string[] = [];
+  for (let i = 0; i < size; i++) {
+    lines.push(
+      "curl 'https://example.com/items/" +
+        i +
+        "' -H 'Accept: application/json' -H 'X-Request-Id: " +
+        token(rand) +
+        "'" +
+        (i % 3 === 2 ? " --data-raw '{\"n\":" + i + "}'" : ""),
+    );
+  }
+  return lines.join("\n") + "\n";
+}
+
+export const stressCases: StressCase[] = [
+  {
+    kind: "headers",
+    describe: "one command with lots of -H",
+    unit: "headers",
+    maxSize: 10000,
+    generate: headers,
+  },
+  {
+    kind: "body",
+    describe: "one command with a big --data-binary",
+    unit: "characters",
+    maxSize: 50 * 1024 * 1024,
+    generate: body,
+  },
+  {
+    kind: "form",
+    describe: "one command with lots of -F",
+    unit: "parts",
+    maxSize: 5000,
+    generate: form,
+  },
+  {
+    kind: "query",
+    describe: "a long query string in the URL and --data",
+    unit: "parameters",
+    maxSize: 10000,
+    generate: query,
+  },
+  {
+    kind: "next",
+    describe: "one command with lots of --next",
+    unit: "requests",
+    maxSize: 500,
+    generate: next,
+  },
+  {
+    kind: "script",
+    describe: "lots of curl commands",
+    unit: "commands",
+    maxSize: 5000,
+    generate: script,
+  },
+];
+
+export const stressKinds = stressCases.map((c) => c.kind);
+
+export function getStressCase(kind: string): StressCase {
+  const stressCase = stressCases.find((c) => c.kind === kind);
+  if (stressCase === undefined) {
+    throw new Error("unknown kind of stress test: " + kind);
+  }
+  return stressCase;
+}